@@ -4,6 +4,7 @@ import android.content.DialogInterface;
 import android.content.Intent;
 import android.os.Bundle;
 import com.rapidftr.R;
+import com.rapidftr.database.RecordWriteQueue;
 import com.rapidftr.model.BaseModel;
 import com.rapidftr.model.Child;
 import com.rapidftr.repository.ChildRepository;
@@ -83,7 +84,12 @@ public abstract class BaseChildActivity extends CollectionActivity {
         child.generateUniqueId();
         child.setSynced(false);
         @Cleanup ChildRepository repository = inject(ChildRepository.class);
-        repository.createOrUpdate(child);
+        repository.createOrUpdateLater(child, new RecordWriteQueue.FailureListener<Child>() {
+            @Override
+            public void failed(Child record, Exception e) {
+                makeToastOnMainThread(R.string.save_child_failure);
+            }
+        });
         return child;
     }
 
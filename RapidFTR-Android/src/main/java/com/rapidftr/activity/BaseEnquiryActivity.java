@@ -4,6 +4,7 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.view.View;
 import com.rapidftr.R;
+import com.rapidftr.database.RecordWriteQueue;
 import com.rapidftr.model.BaseModel;
 import com.rapidftr.model.Enquiry;
 import com.rapidftr.repository.EnquiryRepository;
@@ -93,8 +94,13 @@ public abstract class BaseEnquiryActivity extends CollectionActivity {
             enquiry.setOrganisation(getCurrentUser().getOrganisation());
         }
         enquiry.setSynced(false);
-        @Cleanup EnquiryRepository enquiryRepository = inject(EnquiryRepository.class);
-        enquiryRepository.createOrUpdate(enquiry);
+        @Cleanup EnquiryRepository repository = inject(EnquiryRepository.class);
+        repository.createOrUpdateLater(enquiry, new RecordWriteQueue.FailureListener<Enquiry>() {
+            @Override
+            public void failed(Enquiry record, Exception e) {
+                makeToastOnMainThread(R.string.save_enquiry_failed);
+            }
+        });
         return enquiry;
     }
 }
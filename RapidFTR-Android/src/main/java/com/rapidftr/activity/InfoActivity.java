@@ -1,12 +1,36 @@
 package com.rapidftr.activity;
 
+import android.content.Intent;
 import android.os.Bundle;
+import android.view.View;
 import com.rapidftr.R;
+import com.rapidftr.database.QueryStats;
 
 public class InfoActivity extends RapidFtrActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.info);
+        View export = findViewById(R.id.export_database_statistics);
+        // Nothing is recorded with instrumentation off, see ApplicationInjector
+        if (!getResources().getBoolean(R.bool.database_instrumentation)) {
+            export.setVisibility(View.GONE);
+            return;
+        }
+        export.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                exportDatabaseStatistics();
+            }
+        });
+    }
+
+    // Statement shapes and timings only, never record values, so the report can be sent on as it is
+    protected void exportDatabaseStatistics() {
+        Intent intent = new Intent(Intent.ACTION_SEND);
+        intent.setType("text/plain");
+        intent.putExtra(Intent.EXTRA_SUBJECT, getString(R.string.export_database_statistics));
+        intent.putExtra(Intent.EXTRA_TEXT, QueryStats.shared().report());
+        startActivity(Intent.createChooser(intent, getString(R.string.export_database_statistics)));
     }
 }
@@ -6,6 +6,7 @@ import android.content.*;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.os.Bundle;
+import android.os.Handler;
 import android.os.Looper;
 import android.os.Process;
 import android.util.Log;
@@ -122,6 +123,19 @@ public abstract class RapidFtrActivity extends Activity {
         toast.show();
     }
 
+    // From a background thread, which may still run after this screen is finished
+    protected void makeToastOnMainThread(final int resId) {
+        final RapidFtrApplication context = getContext();
+        new Handler(Looper.getMainLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                Toast toast = Toast.makeText(context, resId, Toast.LENGTH_LONG);
+                toast.setGravity(Gravity.CENTER_HORIZONTAL, 0, 0);
+                toast.show();
+            }
+        });
+    }
+
     protected Injector getInjector() {
         return getContext().getInjector();
     }
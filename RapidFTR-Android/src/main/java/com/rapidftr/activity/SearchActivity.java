@@ -4,6 +4,7 @@ import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.View;
+import android.widget.CheckBox;
 import android.widget.ListView;
 import android.widget.TextView;
 import com.rapidftr.R;
@@ -13,7 +14,6 @@ import com.rapidftr.adapter.pagination.PaginatedSearchResultsScrollListener;
 import com.rapidftr.model.Child;
 import com.rapidftr.repository.ChildRepository;
 import com.rapidftr.repository.ChildSearch;
-import com.rapidftr.service.FormService;
 import lombok.Cleanup;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -24,7 +24,6 @@ import java.util.List;
 public class SearchActivity extends RapidFtrActivity {
 
     private HighlightedFieldsViewAdapter highlightedFieldsViewAdapter;
-    private FormService formService;
     private ChildSearch childSearch;
     private PaginatedSearchResultsScrollListener scrollListener;
 
@@ -33,7 +32,6 @@ public class SearchActivity extends RapidFtrActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_search_child);
         findViewById(R.id.search_btn).setOnClickListener(searchListener());
-        formService = inject(FormService.class);
         try {
             hideEnquiriesTabIfRapidReg();
         } catch (JSONException e) {
@@ -74,7 +72,9 @@ public class SearchActivity extends RapidFtrActivity {
         if ("".equals(subString)) {
             return new ArrayList<Child>();
         }
-        this.childSearch = new ChildSearch(subString, inject(ChildRepository.class), formService.getHighlightedFields(Child.CHILD_FORM_NAME));
+        boolean includeArchived = ((CheckBox) findViewById(R.id.search_archived)).isChecked();
+        boolean similarNames = ((CheckBox) findViewById(R.id.search_similar_names)).isChecked();
+        this.childSearch = new ChildSearch(subString, inject(ChildRepository.class), includeArchived, similarNames);
         return childSearch.getRecordsForFirstPage();
     }
 
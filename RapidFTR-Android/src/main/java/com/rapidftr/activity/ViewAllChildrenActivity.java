@@ -11,6 +11,7 @@ import com.rapidftr.RapidFtrApplication;
 import com.rapidftr.adapter.HighlightedFieldsViewAdapter;
 import com.rapidftr.adapter.pagination.ViewAllChildrenPaginatedScrollListener;
 import com.rapidftr.model.Child;
+import com.rapidftr.model.RecordSummary;
 import com.rapidftr.repository.ChildRepository;
 import lombok.Cleanup;
 import org.json.JSONException;
@@ -32,11 +33,11 @@ public class ViewAllChildrenActivity extends RapidFtrActivity {
         listView(getChildren());
     }
 
-    private List<Child> getChildren() {
-        List<Child> children = new ArrayList<Child>();
+    private List<RecordSummary> getChildren() {
+        List<RecordSummary> children = new ArrayList<RecordSummary>();
         @Cleanup ChildRepository childRepository = inject(ChildRepository.class);
         try {
-            children = childRepository.getRecordsForFirstPage();
+            children = childRepository.getSummariesForFirstPage();
         } catch (JSONException e) {
             Log.e("ViewAllChildrenActivity", "Error while displaying children list");
             makeToast(R.string.fetch_child_error);
@@ -44,7 +45,7 @@ public class ViewAllChildrenActivity extends RapidFtrActivity {
         return children;
     }
 
-    private void listView(List<Child> children) {
+    private void listView(List<RecordSummary> children) {
         HighlightedFieldsViewAdapter highlightedFieldsViewAdapter = new HighlightedFieldsViewAdapter(this, children, Child.CHILD_FORM_NAME, ViewChildActivity.class);
         ListView childListView = (ListView) findViewById(R.id.child_list);
         if (children.isEmpty()) {
@@ -5,6 +5,7 @@ import com.rapidftr.R;
 import com.rapidftr.adapter.HighlightedFieldsViewAdapter;
 import com.rapidftr.adapter.pagination.ViewAllEnquiryScrollListener;
 import com.rapidftr.model.Enquiry;
+import com.rapidftr.model.RecordSummary;
 import com.rapidftr.repository.EnquiryRepository;
 import lombok.Cleanup;
 import org.json.JSONException;
@@ -18,14 +19,14 @@ public class ViewAllEnquiryActivity extends BaseEnquiryActivity {
         setContentView(R.layout.activity_view_all_enquiries);
         try {
             @Cleanup EnquiryRepository enquiryRepository = inject(EnquiryRepository.class);
-            List<Enquiry> enquiries = enquiryRepository.getRecordsForFirstPage();
+            List<RecordSummary> enquiries = enquiryRepository.getSummariesForFirstPage();
             listView(enquiries);
         } catch (JSONException e) {
             throw new RuntimeException(e);
         }
     }
 
-    private void listView(List<Enquiry> enquiries) {
+    private void listView(List<RecordSummary> enquiries) {
         HighlightedFieldsViewAdapter highlightedFieldsViewAdapter = new HighlightedFieldsViewAdapter(this, enquiries, Enquiry.ENQUIRY_FORM_NAME, ViewEnquiryActivity.class);
         ListView enquiryListView = (ListView) findViewById(R.id.enquiry_list);
         if (enquiries.isEmpty()) {
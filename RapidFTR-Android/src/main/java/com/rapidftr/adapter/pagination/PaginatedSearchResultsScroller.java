@@ -5,8 +5,6 @@ import com.rapidftr.model.Child;
 import com.rapidftr.repository.ChildSearch;
 import org.json.JSONException;
 
-import static com.rapidftr.adapter.pagination.ViewAllChildrenPaginatedScrollListener.DEFAULT_PAGE_SIZE;
-
 public class PaginatedSearchResultsScroller extends Scroller{
 
     private ChildSearch childSearch;
@@ -20,8 +18,8 @@ public class PaginatedSearchResultsScroller extends Scroller{
 
     @Override
     public void loadRecordsForNextPage() throws JSONException {
-        if (shouldQueryForMoreData()) {
-            adapter.addAll(childSearch.getRecordsForNextPage(adapter.getCount(), adapter.getCount() + DEFAULT_PAGE_SIZE));
+        if (shouldQueryForMoreData() && childSearch.hasMoreRecords()) {
+            adapter.addAll(childSearch.getRecordsForNextPage());
         }
     }
 }
@@ -1,5 +1,6 @@
 package com.rapidftr.adapter.pagination;
 
+import com.rapidftr.adapter.BaseModelViewAdapter;
 import org.json.JSONException;
 
 public abstract class Scroller {
@@ -24,6 +25,11 @@ public abstract class Scroller {
         return recordNumberToTriggerLoad <= numberOfRecordsSeen;
     }
 
+    protected String lastRecordIdIn(BaseModelViewAdapter<?> adapter) throws JSONException {
+        int count = adapter.getCount();
+        return count == 0 ? null : adapter.getItem(count - 1).getUniqueId();
+    }
+
     public void updateRecordNumbers(int firstVisibleItem, int numberOfVisibleItems, int numberOfItemsInAdapter) {
         this.firstVisibleItem = firstVisibleItem;
         this.numberOfVisibleItems = numberOfVisibleItems;
@@ -1,20 +1,18 @@
 package com.rapidftr.adapter.pagination;
 
 import com.rapidftr.adapter.HighlightedFieldsViewAdapter;
-import com.rapidftr.model.Child;
+import com.rapidftr.model.RecordSummary;
 import com.rapidftr.repository.ChildRepository;
 import org.json.JSONException;
 
 import java.util.List;
 
-import static com.rapidftr.adapter.pagination.ViewAllChildrenPaginatedScrollListener.DEFAULT_PAGE_SIZE;
-
 public class ViewAllChildScroller extends Scroller {
 
     private final ChildRepository repository;
-    private final HighlightedFieldsViewAdapter<Child> adapter;
+    private final HighlightedFieldsViewAdapter<RecordSummary> adapter;
 
-    public ViewAllChildScroller(ChildRepository repository, HighlightedFieldsViewAdapter<Child> adapter) {
+    public ViewAllChildScroller(ChildRepository repository, HighlightedFieldsViewAdapter<RecordSummary> adapter) {
         super();
         this.repository = repository;
         this.adapter = adapter;
@@ -23,7 +21,7 @@ public class ViewAllChildScroller extends Scroller {
     @Override
     public void loadRecordsForNextPage() throws JSONException {
         if (shouldQueryForMoreData()) {
-            List<Child> records = repository.getRecordsBetween(adapter.getCount(), adapter.getCount() + DEFAULT_PAGE_SIZE);
+            List<RecordSummary> records = repository.getSummariesAfter(lastRecordIdIn(adapter));
             adapter.addAll(records);
         }
     }
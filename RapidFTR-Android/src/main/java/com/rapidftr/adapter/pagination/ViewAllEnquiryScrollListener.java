@@ -2,7 +2,7 @@ package com.rapidftr.adapter.pagination;
 
 import android.widget.AbsListView;
 import com.rapidftr.adapter.HighlightedFieldsViewAdapter;
-import com.rapidftr.model.Enquiry;
+import com.rapidftr.model.RecordSummary;
 import com.rapidftr.repository.EnquiryRepository;
 import org.json.JSONException;
 
@@ -11,7 +11,7 @@ public class ViewAllEnquiryScrollListener implements AbsListView.OnScrollListene
     private ViewAllEnquiryScroller scroller;
 
     public ViewAllEnquiryScrollListener(
-            EnquiryRepository repository, HighlightedFieldsViewAdapter<Enquiry> highlightedFieldsViewAdapter) {
+            EnquiryRepository repository, HighlightedFieldsViewAdapter<RecordSummary> highlightedFieldsViewAdapter) {
         scroller = new ViewAllEnquiryScroller(repository, highlightedFieldsViewAdapter);
     }
 
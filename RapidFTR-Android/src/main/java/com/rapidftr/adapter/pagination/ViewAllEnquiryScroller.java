@@ -1,18 +1,17 @@
 package com.rapidftr.adapter.pagination;
 
 import com.rapidftr.adapter.HighlightedFieldsViewAdapter;
-import com.rapidftr.model.Enquiry;
+import com.rapidftr.model.RecordSummary;
 import com.rapidftr.repository.EnquiryRepository;
 import org.json.JSONException;
-import static com.rapidftr.adapter.pagination.ViewAllChildrenPaginatedScrollListener.DEFAULT_PAGE_SIZE;
 
 
 public class ViewAllEnquiryScroller extends Scroller{
 
     private final EnquiryRepository repository;
-    private final HighlightedFieldsViewAdapter<Enquiry> adapter;
+    private final HighlightedFieldsViewAdapter<RecordSummary> adapter;
 
-    public ViewAllEnquiryScroller(EnquiryRepository repository, HighlightedFieldsViewAdapter<Enquiry> adapter) {
+    public ViewAllEnquiryScroller(EnquiryRepository repository, HighlightedFieldsViewAdapter<RecordSummary> adapter) {
         super();
         this.repository = repository;
         this.adapter = adapter;
@@ -21,7 +20,7 @@ public class ViewAllEnquiryScroller extends Scroller{
     @Override
     public void loadRecordsForNextPage() throws JSONException {
         if(shouldQueryForMoreData()){
-            adapter.addAll(repository.getRecordsBetween(adapter.getCount(), adapter.getCount() + DEFAULT_PAGE_SIZE));
+            adapter.addAll(repository.getSummariesAfter(lastRecordIdIn(adapter)));
         }
     }
 }
@@ -7,11 +7,17 @@ import android.widget.Toast;
 import com.google.common.base.Throwables;
 import com.google.common.io.CharStreams;
 import com.rapidftr.RapidFtrApplication;
+import com.rapidftr.database.DatabaseSession;
+import com.rapidftr.database.RecordContentConversion;
+import com.rapidftr.database.SharedSessions;
 import com.rapidftr.model.User;
 import com.rapidftr.service.FormService;
 import com.rapidftr.service.LoginService;
+import com.rapidftr.task.BackfillSearchIndexesTask;
+import com.rapidftr.task.ConvertRecordContentTask;
 import com.rapidftr.task.MigrateUnverifiedDataToVerified;
 import com.rapidftr.utils.http.FluentResponse;
+import lombok.Cleanup;
 import lombok.Getter;
 import lombok.NonNull;
 import org.androidannotations.annotations.*;
@@ -63,6 +69,8 @@ public class LoginTask {
             User user = loadOnline(userName, password, url);
             migrateIfVerified(user);
             cacheForOffline(user);
+            convertRecordContent(user);
+            backfillSearchIndexes(user);
             loadFormSections();
             notifyToast(login_online_success);
             return true;
@@ -78,6 +86,8 @@ public class LoginTask {
             notifyProgress(login_offline_progress);
             User user = loadOffline(userName, password);
             cacheForOffline(user);
+            convertRecordContent(user);
+            backfillSearchIndexes(user);
             notifyToast(login_offline_success);
             return true;
         } catch (LoginException e) {
@@ -147,6 +157,25 @@ public class LoginTask {
         }
     }
 
+    // Login runs in the background, so the format check is done here and the task only started when there is work
+    protected void convertRecordContent(@NonNull User user) {
+        try {
+            @Cleanup DatabaseSession session = SharedSessions.acquire(user, application);
+            if (!new RecordContentConversion(session).isNeeded()) {
+                return;
+            }
+        } catch (Exception e) {
+            Log.e(APP_IDENTIFIER, "Failed to check the record content format", e);
+            return;
+        }
+        new ConvertRecordContentTask(user, application).execute();
+    }
+
+    // Records written before the search indexes existed are indexed in the background rather than on the first search
+    protected void backfillSearchIndexes(@NonNull User user) {
+        new BackfillSearchIndexesTask(user, application).execute();
+    }
+
     protected void loadFormSections() {
         try {
             notifyProgress(login_form_progress);
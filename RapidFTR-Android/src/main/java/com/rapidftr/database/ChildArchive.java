@@ -0,0 +1,88 @@
+package com.rapidftr.database;
+
+import static com.rapidftr.database.DatabaseStatements.execute;
+import static com.rapidftr.database.DatabaseStatements.queryForLong;
+
+/*
+ * Moves synced children the device has not written for a while into archived_children, so the everyday queries
+ * scan only the children in use. A child is in exactly one of the two tables.
+ */
+public class ChildArchive {
+
+    static final int BATCH_SIZE = 100;
+
+    private static final String COLUMNS = "id, child_owner, child_json, synced, created_at, last_updated_at, _id, _rev, "
+            + "last_synced_at, touched_at";
+
+    private final DatabaseSession session;
+
+    public ChildArchive(DatabaseSession session) {
+        this.session = session;
+    }
+
+    public boolean hasChildrenUntouchedSince(long cutoffMillis) {
+        return queryForLong(session, "SELECT COUNT(1) FROM (SELECT 1 FROM " + children() + " WHERE synced = ?"
+                + " AND touched_at < ? LIMIT 1)", Database.BooleanColumn.trueValue.getColumnValue(), cutoffMillis) > 0;
+    }
+
+    // Oldest first; returns how many children were moved, fewer than the batch size once none are left
+    public int archiveBatchUntouchedSince(long cutoffMillis) {
+        // The rowids of the batch, walked off the synced and touched_at index in the same order by every statement
+        String batch = "SELECT rowid FROM " + children() + " WHERE synced = ? AND touched_at < ?"
+                + " ORDER BY touched_at, rowid LIMIT " + BATCH_SIZE;
+        String synced = Database.BooleanColumn.trueValue.getColumnValue();
+        session.beginTransaction();
+        try {
+            int count = (int) queryForLong(session, "SELECT COUNT(1) FROM (" + batch + ")", synced, cutoffMillis);
+            execute(session, "INSERT OR REPLACE INTO " + archive() + "(" + COLUMNS + ", archived_at) SELECT " + COLUMNS
+                    + ", ? FROM " + children() + " WHERE rowid IN (" + batch + ")",
+                    System.currentTimeMillis(), synced, cutoffMillis);
+            execute(session, "INSERT INTO " + Database.archived_child_search.getTableName() + "(docid, short_id, content)"
+                    + " SELECT a.rowid, s.short_id, s.content FROM " + children() + " c"
+                    + " JOIN " + archive() + " a ON a.id = c.id"
+                    + " JOIN " + Database.child_search.getTableName() + " s ON s.docid = c.rowid"
+                    + " WHERE c.rowid IN (" + batch + ")", synced, cutoffMillis);
+            execute(session, "INSERT INTO " + Database.archived_child_name.getTableName() + "(docid, name, name_key)"
+                    + " SELECT a.rowid, n.name, n.name_key FROM " + children() + " c"
+                    + " JOIN " + archive() + " a ON a.id = c.id"
+                    + " JOIN " + Database.child_name.getTableName() + " n ON n.docid = c.rowid"
+                    + " WHERE c.rowid IN (" + batch + ")", synced, cutoffMillis);
+            execute(session, "DELETE FROM " + Database.child_search.getTableName() + " WHERE docid IN (" + batch + ")",
+                    synced, cutoffMillis);
+            execute(session, "DELETE FROM " + Database.child_name.getTableName() + " WHERE docid IN (" + batch + ")",
+                    synced, cutoffMillis);
+            execute(session, "DELETE FROM " + Database.child_summary.getTableName() + " WHERE id IN (SELECT id FROM "
+                    + children() + " WHERE rowid IN (" + batch + "))", synced, cutoffMillis);
+            execute(session, "DELETE FROM " + children() + " WHERE rowid IN (" + batch + ")", synced, cutoffMillis);
+            session.setTransactionSuccessful();
+            return count;
+        } finally {
+            session.endTransaction();
+        }
+    }
+
+    // Before a child is written back to the children table
+    public void remove(String id) {
+        execute(session, "DELETE FROM " + Database.archived_child_search.getTableName() + " WHERE docid IN (SELECT rowid FROM "
+                + archive() + " WHERE id = ?)", id);
+        execute(session, "DELETE FROM " + Database.archived_child_name.getTableName() + " WHERE docid IN (SELECT rowid FROM "
+                + archive() + " WHERE id = ?)", id);
+        execute(session, "DELETE FROM " + archive() + " WHERE id = ?", id);
+    }
+
+    public void deleteByOwner(String owner) {
+        execute(session, "DELETE FROM " + Database.archived_child_search.getTableName() + " WHERE docid IN (SELECT rowid FROM "
+                + archive() + " WHERE child_owner = ?)", owner);
+        execute(session, "DELETE FROM " + Database.archived_child_name.getTableName() + " WHERE docid IN (SELECT rowid FROM "
+                + archive() + " WHERE child_owner = ?)", owner);
+        execute(session, "DELETE FROM " + archive() + " WHERE child_owner = ?", owner);
+    }
+
+    private static String children() {
+        return Database.child.getTableName();
+    }
+
+    private static String archive() {
+        return Database.archived_child.getTableName();
+    }
+}
@@ -12,7 +12,12 @@ import static com.google.common.collect.Iterables.filter;
 
 public enum Database {
 
-    child("children"), enquiry("enquiry"), potential_match("potential_match");
+    child("children"), enquiry("enquiry"), potential_match("potential_match"),
+    child_summary("children_summary"), enquiry_summary("enquiry_summary"),
+    child_search("children_search"), enquiry_search("enquiry_search"), search_index_backfill("search_index_backfill"),
+    record_counts("record_counts"), history("history"), record_content_format("record_content_format"),
+    maintenance_log("maintenance_log"), archived_child("archived_children"), archived_child_search("archived_children_search"),
+    child_name("children_names"), enquiry_name("enquiry_names"), archived_child_name("archived_children_names");
     private String tableName;
 
     Database(String tableName) {
@@ -72,7 +77,10 @@ public enum Database {
         created_at("created_at", true, true),
         created_organisation("created_organisation", true, false),
 
-        last_synced_at("last_synced_at", true, true);
+        last_synced_at("last_synced_at", true, true),
+        // When the device last wrote the record, in milliseconds, see ChildArchive
+        touched_at("touched_at", true, true),
+        archived_at("archived_at", true, true);
         private
         @Getter
         final String columnName;
@@ -102,6 +110,62 @@ public enum Database {
         }
     }
 
+    @RequiredArgsConstructor(suppressConstructorProperties = true)
+    public enum SummaryTableColumn {
+        id("id"),
+        content("summary_json");
+
+        private
+        @Getter
+        final String columnName;
+    }
+
+    @RequiredArgsConstructor(suppressConstructorProperties = true)
+    public enum SearchTableColumn {
+        id("docid"),
+        short_id("short_id"),
+        content("content");
+
+        private
+        @Getter
+        final String columnName;
+    }
+
+    @RequiredArgsConstructor(suppressConstructorProperties = true)
+    public enum NameTableColumn {
+        id("docid"),
+        name("name"),
+        key("name_key");
+
+        private
+        @Getter
+        final String columnName;
+    }
+
+    @RequiredArgsConstructor(suppressConstructorProperties = true)
+    public enum RecordCountColumn {
+        entity("entity"),
+        owner("owner"),
+        synced("synced"),
+        count("record_count");
+
+        private
+        @Getter
+        final String columnName;
+    }
+
+    @RequiredArgsConstructor(suppressConstructorProperties = true)
+    public enum HistoryTableColumn {
+        id("id"),
+        record_id("record_id"),
+        content("history_json"),
+        synced("synced");
+
+        private
+        @Getter
+        final String columnName;
+    }
+
     @RequiredArgsConstructor(suppressConstructorProperties = true)
     public enum PotentialMatchTableColumn {
         id("id"),
@@ -109,7 +173,9 @@ public enum Database {
         child_id("child_id"),
         created_at("created_at", true, false),
         revision("_rev", true, true),
-        confirmed("confirmed");
+        // Replaced by status, no longer written or read
+        confirmed("confirmed"),
+        status("status");
 
         private
         @Getter
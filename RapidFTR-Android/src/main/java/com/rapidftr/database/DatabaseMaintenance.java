@@ -0,0 +1,337 @@
+package com.rapidftr.database;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.database.Cursor;
+import android.util.Log;
+import com.rapidftr.R;
+import com.rapidftr.RapidFtrApplication;
+import com.rapidftr.model.User;
+import lombok.Cleanup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.rapidftr.database.DatabaseStatements.execute;
+import static com.rapidftr.database.DatabaseStatements.queryForLong;
+
+/*
+ * Housekeeping for one database, run in the background on its helper's connection while no session is out, and
+ * stopped between two steps as soon as one is handed out. The due tasks (archive, ANALYZE, incremental vacuum,
+ * integrity check) share one time box per task, and every run is written to the maintenance log.
+ */
+public class DatabaseMaintenance {
+
+    public enum Task {
+        ARCHIVE, ANALYZE, INCREMENTAL_VACUUM, INTEGRITY_CHECK
+    }
+
+    static final String OK = "ok";
+    static final String CANCELLED = "cancelled";
+    static final String TIMED_OUT = "timed out";
+    static final int LOG_ENTRIES = 100;
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+    private static final int VACUUM_PAGES_PER_STEP = 128;
+
+    private static final Map<String, DatabaseMaintenance> DATABASES = new HashMap<String, DatabaseMaintenance>();
+
+    private final long idleMillis;
+    private final long taskMillis;
+    private final int analyzeAfterRecords;
+    private final long vacuumFreeBytes;
+    private final long integrityCheckMillis;
+    private final long archiveAfterMillis;
+
+    private final AtomicInteger changedRecords = new AtomicInteger();
+    private volatile boolean cancelled;
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> scheduled;
+
+    DatabaseMaintenance(long idleMillis, long taskMillis, int analyzeAfterRecords,
+                        long vacuumFreeBytes, long integrityCheckMillis, long archiveAfterMillis) {
+        this.idleMillis = idleMillis;
+        this.taskMillis = taskMillis;
+        this.analyzeAfterRecords = analyzeAfterRecords;
+        this.vacuumFreeBytes = vacuumFreeBytes;
+        this.integrityCheckMillis = integrityCheckMillis;
+        this.archiveAfterMillis = archiveAfterMillis;
+    }
+
+    public static synchronized DatabaseMaintenance forDatabase(User user, Context context) {
+        DatabaseMaintenance maintenance = DATABASES.get(user.getDbName());
+        if (maintenance == null) {
+            Resources resources = context.getResources();
+            maintenance = new DatabaseMaintenance(TimeUnit.SECONDS.toMillis(resources.getInteger(R.integer.database_maintenance_idle_seconds)),
+                    TimeUnit.SECONDS.toMillis(resources.getInteger(R.integer.database_maintenance_task_seconds)),
+                    resources.getInteger(R.integer.database_analyze_after_records),
+                    resources.getInteger(R.integer.database_vacuum_free_kilobytes) * 1024L,
+                    TimeUnit.DAYS.toMillis(resources.getInteger(R.integer.database_integrity_check_days)),
+                    TimeUnit.DAYS.toMillis(resources.getInteger(R.integer.child_archive_after_days)));
+            DATABASES.put(user.getDbName(), maintenance);
+        }
+        return maintenance;
+    }
+
+    // Counts towards the next ANALYZE, for databases no helper has opened yet there is nothing to count for
+    public static synchronized void recordsChanged(String databaseName, int count) {
+        DatabaseMaintenance maintenance = DATABASES.get(databaseName);
+        if (maintenance != null) {
+            maintenance.recordsChanged(count);
+        }
+    }
+
+    public static synchronized void stopAll() {
+        for (DatabaseMaintenance maintenance : DATABASES.values()) {
+            maintenance.stop();
+        }
+        DATABASES.clear();
+    }
+
+    // A run cancelled before it started does not start, the flag is cleared for the run scheduled here only
+    synchronized void scheduleWhenIdle(final DatabaseSession session) {
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+        cancelled = false;
+        scheduled = executor().schedule(new Runnable() {
+            @Override
+            public void run() {
+                runScheduled(session);
+            }
+        }, idleMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void recordsChanged(int count) {
+        changedRecords.addAndGet(count);
+    }
+
+    public synchronized void cancel() {
+        cancelled = true;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+    }
+
+    // The run in progress, if any, stops at its next step; anything queued behind it on the thread has finished too
+    void cancelAndWait() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            cancel();
+            running = executor;
+        }
+        if (running == null) {
+            return;
+        }
+        try {
+            running.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get(taskMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.w(RapidFtrApplication.APP_IDENTIFIER, "Database maintenance did not stop", e);
+        } catch (TimeoutException e) {
+            Log.w(RapidFtrApplication.APP_IDENTIFIER, "Database maintenance did not stop", e);
+        } catch (RejectedExecutionException e) {
+            // Stopped on log out in the meantime
+        }
+    }
+
+    private synchronized void stop() {
+        cancel();
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(taskMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+    }
+
+    private synchronized ScheduledExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "DatabaseMaintenance");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    private void runScheduled(DatabaseSession session) {
+        try {
+            runDueTasks(session);
+        } catch (RuntimeException e) {
+            Log.e(RapidFtrApplication.APP_IDENTIFIER, "Database maintenance failed", e);
+        }
+    }
+
+    void runDueTasks(DatabaseSession session) {
+        for (Task task : Task.values()) {
+            if (cancelled) {
+                return;
+            }
+            if (isDue(session, task)) {
+                run(session, task);
+            }
+        }
+    }
+
+    boolean isDue(DatabaseSession session, Task task) {
+        switch (task) {
+            case ARCHIVE:
+                return new ChildArchive(session).hasChildrenUntouchedSince(System.currentTimeMillis() - archiveAfterMillis);
+            case ANALYZE:
+                return changedRecords.get() >= analyzeAfterRecords || lastRun(session, task) == 0;
+            case INCREMENTAL_VACUUM:
+                return pragma(session, "auto_vacuum") == AUTO_VACUUM_INCREMENTAL
+                        && pragma(session, "freelist_count") * pragma(session, "page_size") >= vacuumFreeBytes;
+            default:
+                return System.currentTimeMillis() - lastRun(session, task) >= integrityCheckMillis;
+        }
+    }
+
+    String run(DatabaseSession session, Task task) {
+        long startedAt = System.currentTimeMillis();
+        long deadline = startedAt + taskMillis;
+        long sizeBefore = size(session);
+        int changesCounted = changedRecords.get();
+        String result;
+        try {
+            switch (task) {
+                case ARCHIVE:
+                    result = archive(session, deadline);
+                    break;
+                case ANALYZE:
+                    result = analyze(session, deadline);
+                    break;
+                case INCREMENTAL_VACUUM:
+                    result = vacuum(session, deadline);
+                    break;
+                default:
+                    result = checkIntegrity(session, deadline);
+            }
+        } catch (RuntimeException e) {
+            result = "failed: " + e.getMessage();
+        }
+        if (task == Task.ANALYZE && OK.equals(result)) {
+            changedRecords.addAndGet(-changesCounted);
+        }
+        long duration = System.currentTimeMillis() - startedAt;
+        long sizeAfter = size(session);
+        execute(session, "INSERT INTO " + Database.maintenance_log.getTableName()
+                + "(task, started_at, duration_millis, size_before, size_after, result) VALUES (?, ?, ?, ?, ?, ?)",
+                task.name(), startedAt, duration, sizeBefore, sizeAfter, result);
+        execute(session, "DELETE FROM " + Database.maintenance_log.getTableName() + " WHERE id <= (SELECT max(id) FROM "
+                + Database.maintenance_log.getTableName() + ") - " + LOG_ENTRIES);
+        String entry = task + " " + result + " in " + duration + "ms, " + sizeBefore / 1024 + "KB to " + sizeAfter / 1024 + "KB";
+        if (!OK.equals(result) && !CANCELLED.equals(result) && !TIMED_OUT.equals(result)) {
+            Log.e(RapidFtrApplication.APP_IDENTIFIER, "Database maintenance " + entry);
+        } else {
+            Log.i(RapidFtrApplication.APP_IDENTIFIER, "Database maintenance " + entry);
+        }
+        return result;
+    }
+
+    // A batch at a time, the children moved count towards the next ANALYZE
+    private String archive(DatabaseSession session, long deadline) {
+        ChildArchive archive = new ChildArchive(session);
+        long cutoff = System.currentTimeMillis() - archiveAfterMillis;
+        int moved;
+        do {
+            if (isStopped(deadline)) {
+                return stoppedResult();
+            }
+            moved = archive.archiveBatchUntouchedSince(cutoff);
+            recordsChanged(moved);
+        } while (moved == ChildArchive.BATCH_SIZE);
+        return OK;
+    }
+
+    // One table at a time, the virtual search tables keep no statistics
+    private String analyze(DatabaseSession session, long deadline) {
+        List<String> tables = new ArrayList<String>();
+        @Cleanup Cursor cursor = session.rawQuery("SELECT name FROM sqlite_master WHERE type = 'table'"
+                + " AND name NOT LIKE 'sqlite_%' AND sql NOT LIKE 'CREATE VIRTUAL%'", null);
+        while (cursor.moveToNext()) {
+            tables.add(cursor.getString(0));
+        }
+        for (String table : tables) {
+            if (isStopped(deadline)) {
+                return stoppedResult();
+            }
+            session.execSQL("ANALYZE \"" + table + "\"");
+        }
+        return OK;
+    }
+
+    // Never a full VACUUM, which may renumber the rowids the search and name indexes are keyed on
+    private String vacuum(DatabaseSession session, long deadline) {
+        while (pragma(session, "freelist_count") > 0) {
+            if (isStopped(deadline)) {
+                return stoppedResult();
+            }
+            // The pragma frees a page per row it returns, counting the rows steps it through all of them
+            @Cleanup Cursor cursor = session.rawQuery("PRAGMA incremental_vacuum(" + VACUUM_PAGES_PER_STEP + ")", null);
+            cursor.getCount();
+        }
+        return OK;
+    }
+
+    // Starts only with at least half of its time box left, it cannot stop once started
+    private String checkIntegrity(DatabaseSession session, long deadline) {
+        if (isStopped(deadline - taskMillis / 2)) {
+            return stoppedResult();
+        }
+        StringBuilder problems = new StringBuilder();
+        @Cleanup Cursor cursor = session.rawQuery("PRAGMA quick_check", null);
+        while (cursor.moveToNext()) {
+            problems.append(problems.length() == 0 ? "" : "; ").append(cursor.getString(0));
+        }
+        return problems.toString();
+    }
+
+    private boolean isStopped(long deadline) {
+        return cancelled || System.currentTimeMillis() >= deadline;
+    }
+
+    private String stoppedResult() {
+        return cancelled ? CANCELLED : TIMED_OUT;
+    }
+
+    // Runs that were stopped or found problems do not count, the task is due again
+    private long lastRun(DatabaseSession session, Task task) {
+        return queryForLong(session, "SELECT ifnull(max(started_at), 0) FROM " + Database.maintenance_log.getTableName()
+                + " WHERE task = ? AND result = ?", task.name(), OK);
+    }
+
+    private static long size(DatabaseSession session) {
+        return pragma(session, "page_count") * pragma(session, "page_size");
+    }
+
+    private static long pragma(DatabaseSession session, String name) {
+        @Cleanup Cursor cursor = session.rawQuery("PRAGMA " + name, null);
+        return cursor.moveToNext() ? cursor.getLong(0) : 0;
+    }
+}
@@ -9,7 +9,24 @@ public interface DatabaseSession extends Closeable {
 
     public Cursor rawQuery(String sql, String[] selectionArgs);
     public void execSQL(String sql);
+    public void execSQL(String sql, Object[] bindArgs);
     public int update(String table, ContentValues contentvalues, String whereClause, String[] whereArgs);
     public long replace(String table, String nullColumnHack, ContentValues values);
     public long replaceOrThrow(String table, String nullColumnHack, ContentValues values);
+
+    // Compiled once per session and thread, and reused by that thread only for as long as it stays in the statement cache
+    public DatabaseStatement compile(String sql);
+
+    // Shared by every session on the same database
+    public RecordCache getRecordCache(Database table);
+
+    // Shared by every session on the same database too, see RecordWriteQueues
+    public RecordWriteQueues getWriteQueues();
+
+    // The format record content is written in on this database, see RecordContent. Reads take every format.
+    public RecordContent.Format getContentFormat();
+
+    public void beginTransaction();
+    public void setTransactionSuccessful();
+    public void endTransaction();
 }
@@ -0,0 +1,22 @@
+package com.rapidftr.database;
+
+/*
+ * A compiled statement obtained from DatabaseSession.compile. It stays cached in its session, so bind and run it
+ * straight away instead of holding on to it, and leave closing it to the session.
+ */
+public interface DatabaseStatement {
+
+    public void bindString(int index, String value);
+    public void bindLong(int index, long value);
+    public void bindDouble(int index, double value);
+    public void bindBlob(int index, byte[] value);
+    public void bindNull(int index);
+    public void clearBindings();
+
+    public void execute();
+    public long executeInsert();
+    public long simpleQueryForLong();
+    public String simpleQueryForString();
+
+    public void close();
+}
@@ -0,0 +1,67 @@
+package com.rapidftr.database;
+
+import android.content.ContentValues;
+
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+public final class DatabaseStatements {
+
+    private DatabaseStatements() {
+    }
+
+    // Replaces every binding of the statement, in order, so a cached statement never carries values over
+    public static DatabaseStatement bind(DatabaseStatement statement, Object... args) {
+        statement.clearBindings();
+        for (int i = 0; i < args.length; i++) {
+            int index = i + 1;
+            Object arg = args[i];
+            if (arg == null) {
+                statement.bindNull(index);
+            } else if (arg instanceof Boolean) {
+                statement.bindLong(index, (Boolean) arg ? 1 : 0);
+            } else if (arg instanceof Double || arg instanceof Float) {
+                statement.bindDouble(index, ((Number) arg).doubleValue());
+            } else if (arg instanceof Number) {
+                statement.bindLong(index, ((Number) arg).longValue());
+            } else if (arg instanceof byte[]) {
+                statement.bindBlob(index, (byte[]) arg);
+            } else {
+                statement.bindString(index, arg.toString());
+            }
+        }
+        return statement;
+    }
+
+    /*
+     * Same as DatabaseSession.replaceOrThrow, but the INSERT OR REPLACE is compiled once per table and column set and
+     * then reused from the session's statement cache. Columns are sorted so the same values always produce the same SQL.
+     */
+    public static long replace(DatabaseSession session, String table, ContentValues values) {
+        SortedSet<String> columns = new TreeSet<String>(values.keySet());
+        StringBuilder sql = new StringBuilder("INSERT OR REPLACE INTO ").append(table).append("(");
+        StringBuilder placeholders = new StringBuilder();
+        Object[] args = new Object[columns.size()];
+        int i = 0;
+        for (String column : columns) {
+            if (i > 0) {
+                sql.append(", ");
+                placeholders.append(", ");
+            }
+            sql.append(column);
+            placeholders.append("?");
+            args[i++] = values.get(column);
+        }
+        sql.append(") VALUES (").append(placeholders).append(")");
+        return bind(session.compile(sql.toString()), args).executeInsert();
+    }
+
+    // Sessions are shared between threads, but every thread compiles statements of its own, see StatementCache
+    public static long queryForLong(DatabaseSession session, String sql, Object... args) {
+        return bind(session.compile(sql), args).simpleQueryForLong();
+    }
+
+    public static void execute(DatabaseSession session, String sql, Object... args) {
+        bind(session.compile(sql), args).execute();
+    }
+}
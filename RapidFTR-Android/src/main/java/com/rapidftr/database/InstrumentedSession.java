@@ -0,0 +1,233 @@
+package com.rapidftr.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import lombok.Delegate;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Hands the time, rows and bytes of every statement run through the session it wraps to QueryStats. A query is
+ * timed while SQLite works for it and recorded when its cursor is closed.
+ */
+public class InstrumentedSession implements DatabaseSession {
+
+    // Twice the statements a thread keeps compiled, so the statements in use are not wrapped again every time
+    private static final int STATEMENT_WRAPPERS = 2 * StatementCache.DEFAULT_CAPACITY;
+
+    @Delegate(types = DatabaseSession.class)
+    private final DatabaseSession session;
+    private final QueryStats stats;
+
+    private final Map<DatabaseStatement, InstrumentedStatement> statements =
+            new LinkedHashMap<DatabaseStatement, InstrumentedStatement>(STATEMENT_WRAPPERS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<DatabaseStatement, InstrumentedStatement> eldest) {
+                    return size() > STATEMENT_WRAPPERS;
+                }
+            };
+
+    public InstrumentedSession(DatabaseSession session, QueryStats stats) {
+        this.session = session;
+        this.stats = stats;
+    }
+
+    @Override
+    public Cursor rawQuery(String sql, String[] selectionArgs) {
+        long start = System.nanoTime();
+        Cursor cursor = session.rawQuery(sql, selectionArgs);
+        return new InstrumentedCursor(cursor, sql, System.nanoTime() - start);
+    }
+
+    @Override
+    public void execSQL(String sql) {
+        long start = System.nanoTime();
+        session.execSQL(sql);
+        stats.record(sql, System.nanoTime() - start, 0, 0);
+    }
+
+    @Override
+    public void execSQL(String sql, Object[] bindArgs) {
+        long start = System.nanoTime();
+        session.execSQL(sql, bindArgs);
+        stats.record(sql, System.nanoTime() - start, 0, 0);
+    }
+
+    @Override
+    public int update(String table, ContentValues values, String whereClause, String[] whereArgs) {
+        long start = System.nanoTime();
+        int rows = session.update(table, values, whereClause, whereArgs);
+        stats.record("UPDATE " + table + " SET " + values.keySet() + " WHERE " + whereClause, System.nanoTime() - start, rows, 0);
+        return rows;
+    }
+
+    @Override
+    public long replace(String table, String nullColumnHack, ContentValues values) {
+        long start = System.nanoTime();
+        long rowId = session.replace(table, nullColumnHack, values);
+        stats.record("REPLACE INTO " + table + values.keySet(), System.nanoTime() - start, 1, 0);
+        return rowId;
+    }
+
+    @Override
+    public long replaceOrThrow(String table, String nullColumnHack, ContentValues values) {
+        long start = System.nanoTime();
+        long rowId = session.replaceOrThrow(table, nullColumnHack, values);
+        stats.record("REPLACE INTO " + table + values.keySet(), System.nanoTime() - start, 1, 0);
+        return rowId;
+    }
+
+    @Override
+    public DatabaseStatement compile(String sql) {
+        DatabaseStatement statement = session.compile(sql);
+        synchronized (statements) {
+            InstrumentedStatement instrumented = statements.get(statement);
+            if (instrumented == null) {
+                instrumented = new InstrumentedStatement(statement, sql);
+                statements.put(statement, instrumented);
+            }
+            return instrumented;
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (statements) {
+            statements.clear();
+        }
+        try {
+            session.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private class InstrumentedStatement implements DatabaseStatement {
+
+        @Delegate(types = DatabaseStatement.class)
+        private final DatabaseStatement statement;
+        private final String sql;
+
+        InstrumentedStatement(DatabaseStatement statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public void execute() {
+            long start = System.nanoTime();
+            statement.execute();
+            stats.record(sql, System.nanoTime() - start, 0, 0);
+        }
+
+        @Override
+        public long executeInsert() {
+            long start = System.nanoTime();
+            long rowId = statement.executeInsert();
+            stats.record(sql, System.nanoTime() - start, 1, 0);
+            return rowId;
+        }
+
+        @Override
+        public long simpleQueryForLong() {
+            long start = System.nanoTime();
+            long value = statement.simpleQueryForLong();
+            stats.record(sql, System.nanoTime() - start, 1, 8);
+            return value;
+        }
+
+        @Override
+        public String simpleQueryForString() {
+            long start = System.nanoTime();
+            String value = statement.simpleQueryForString();
+            stats.record(sql, System.nanoTime() - start, 1, value == null ? 0 : value.length());
+            return value;
+        }
+
+        // The wrapped session closes its statements itself
+        @Override
+        public void close() {
+        }
+    }
+
+    private class InstrumentedCursor extends CursorWrapper {
+
+        private final String sql;
+        private long nanos;
+        private int rows;
+        private long bytes;
+        private boolean recorded;
+
+        InstrumentedCursor(Cursor cursor, String sql, long nanos) {
+            super(cursor);
+            this.sql = sql;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public boolean moveToNext() {
+            long start = System.nanoTime();
+            return moved(super.moveToNext(), start);
+        }
+
+        @Override
+        public boolean moveToFirst() {
+            long start = System.nanoTime();
+            return moved(super.moveToFirst(), start);
+        }
+
+        @Override
+        public boolean moveToPosition(int position) {
+            long start = System.nanoTime();
+            return moved(super.moveToPosition(position), start);
+        }
+
+        @Override
+        public boolean move(int offset) {
+            long start = System.nanoTime();
+            return moved(super.move(offset), start);
+        }
+
+        @Override
+        public int getCount() {
+            long start = System.nanoTime();
+            int count = super.getCount();
+            nanos += System.nanoTime() - start;
+            return count;
+        }
+
+        @Override
+        public String getString(int columnIndex) {
+            String value = super.getString(columnIndex);
+            bytes += value == null ? 0 : value.length();
+            return value;
+        }
+
+        @Override
+        public byte[] getBlob(int columnIndex) {
+            byte[] value = super.getBlob(columnIndex);
+            bytes += value == null ? 0 : value.length;
+            return value;
+        }
+
+        @Override
+        public void close() {
+            super.close();
+            if (!recorded) {
+                recorded = true;
+                stats.record(sql, nanos, rows, bytes);
+            }
+        }
+
+        private boolean moved(boolean moved, long start) {
+            nanos += System.nanoTime() - start;
+            if (moved) {
+                rows = Math.max(rows, getPosition() + 1);
+            }
+            return moved;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.rapidftr.database;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/*
+ * Latency, rows and bytes per SQL shape, and the last slow statements, kept in memory for InfoActivity to export.
+ * The shape folds literals and placeholder lists into ?, so no record value ever reaches the report.
+ */
+public class QueryStats {
+
+    public static final int SLOW_STATEMENTS = 50;
+    public static final long DEFAULT_SLOW_MILLIS = 100;
+
+    // Upper bounds of the latency buckets in milliseconds, the last bucket takes everything slower
+    static final long[] BUCKET_MILLIS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 5000};
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final QueryStats SHARED = new QueryStats(DEFAULT_SLOW_MILLIS);
+
+    private final Map<String, Shape> shapes = new LinkedHashMap<String, Shape>();
+    private final LinkedList<SlowStatement> slowStatements = new LinkedList<SlowStatement>();
+    private volatile long slowMillis;
+
+    QueryStats(long slowMillis) {
+        this.slowMillis = slowMillis;
+    }
+
+    public static QueryStats shared() {
+        return SHARED;
+    }
+
+    public void setSlowMillis(long slowMillis) {
+        this.slowMillis = slowMillis;
+    }
+
+    static String shapeOf(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = PLACEHOLDER_LIST.matcher(shape).replaceAll("?");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    public void record(String sql, long nanos, int rows, long bytes) {
+        String shape = shapeOf(sql);
+        long millis = nanos / 1000000;
+        synchronized (this) {
+            Shape stats = shapes.get(shape);
+            if (stats == null) {
+                stats = new Shape();
+                shapes.put(shape, stats);
+            }
+            stats.add(nanos, millis, rows, bytes);
+            if (millis >= slowMillis) {
+                slowStatements.addLast(new SlowStatement(System.currentTimeMillis(), shape, millis, rows, bytes));
+                if (slowStatements.size() > SLOW_STATEMENTS) {
+                    slowStatements.removeFirst();
+                }
+            }
+        }
+    }
+
+    public synchronized List<SlowStatement> getSlowStatements() {
+        return new ArrayList<SlowStatement>(slowStatements);
+    }
+
+    synchronized Shape getShape(String sql) {
+        return shapes.get(shapeOf(sql));
+    }
+
+    public synchronized void clear() {
+        shapes.clear();
+        slowStatements.clear();
+    }
+
+    // Slowest shapes by total time first
+    public synchronized String report() {
+        List<Map.Entry<String, Shape>> entries = new ArrayList<Map.Entry<String, Shape>>(shapes.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Shape>>() {
+            @Override
+            public int compare(Map.Entry<String, Shape> first, Map.Entry<String, Shape> second) {
+                return Long.valueOf(second.getValue().totalNanos).compareTo(first.getValue().totalNanos);
+            }
+        });
+
+        StringBuilder report = new StringBuilder("Statements by total time\n");
+        report.append("count, total ms, max ms, rows, bytes, latency buckets ");
+        for (long bound : BUCKET_MILLIS) {
+            report.append("<=").append(bound).append(' ');
+        }
+        report.append(">").append(BUCKET_MILLIS[BUCKET_MILLIS.length - 1]).append(" ms\n");
+        for (Map.Entry<String, Shape> entry : entries) {
+            Shape shape = entry.getValue();
+            report.append(shape.count).append(", ").append(shape.totalNanos / 1000000).append(", ")
+                    .append(shape.maxMillis).append(", ").append(shape.rows).append(", ").append(shape.bytes).append(", ");
+            for (int i = 0; i < shape.buckets.length; i++) {
+                report.append(i == 0 ? "" : " ").append(shape.buckets[i]);
+            }
+            report.append("\n  ").append(entry.getKey()).append('\n');
+        }
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        report.append("\nLast ").append(slowStatements.size()).append(" statements slower than ").append(slowMillis).append(" ms\n");
+        for (SlowStatement statement : slowStatements) {
+            report.append(format.format(new Date(statement.getAt()))).append(", ").append(statement.getMillis()).append(" ms, ")
+                    .append(statement.getRows()).append(" rows, ").append(statement.getBytes()).append(" bytes\n  ")
+                    .append(statement.getShape()).append('\n');
+        }
+        return report.toString();
+    }
+
+    static class Shape {
+        int count;
+        long totalNanos;
+        long maxMillis;
+        long rows;
+        long bytes;
+        final int[] buckets = new int[BUCKET_MILLIS.length + 1];
+
+        void add(long nanos, long millis, int rows, long bytes) {
+            count++;
+            totalNanos += nanos;
+            maxMillis = Math.max(maxMillis, millis);
+            this.rows += rows;
+            this.bytes += bytes;
+            int bucket = 0;
+            while (bucket < BUCKET_MILLIS.length && millis > BUCKET_MILLIS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket]++;
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor(suppressConstructorProperties = true)
+    public static class SlowStatement {
+        private final long at;
+        private final String shape;
+        private final long millis;
+        private final int rows;
+        private final long bytes;
+    }
+}
@@ -0,0 +1,121 @@
+package com.rapidftr.database;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.util.Log;
+import com.rapidftr.RapidFtrApplication;
+import net.sqlcipher.database.SQLiteDatabase;
+import net.sqlcipher.database.SQLiteException;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/*
+ * A few read-only connections to a database in write-ahead logging mode. They read the last committed state without
+ * waiting for the writable connection, which stays locked for as long as a sync transaction is open. A connection is
+ * lent to one cursor at a time and comes back to the pool when that cursor is closed. Every connection derives the
+ * key again, so they are all opened in the background up front and a read never waits for one to open.
+ */
+class ReadConnectionPool implements Closeable {
+
+    private final String path;
+    private final String key;
+    private final int capacity;
+    private final Deque<SQLiteDatabase> idle = new ArrayDeque<SQLiteDatabase>();
+    private int opened;
+    private boolean closed;
+
+    ReadConnectionPool(String path, String key, int capacity) {
+        this.path = path;
+        this.key = key;
+        this.capacity = capacity;
+    }
+
+    // Null when no connection is idle, the caller reads from the writable connection instead of waiting
+    Cursor tryQuery(String sql, String[] selectionArgs) {
+        SQLiteDatabase connection = tryAcquire();
+        if (connection == null) {
+            return null;
+        }
+        try {
+            return new ConnectionCursor(connection.rawQuery(sql, selectionArgs), connection);
+        } catch (RuntimeException e) {
+            release(connection);
+            throw e;
+        }
+    }
+
+    private synchronized SQLiteDatabase tryAcquire() {
+        return closed || idle.isEmpty() ? null : idle.pop();
+    }
+
+    // Until they are open, reads go to the writable connection
+    void openInBackground() {
+        Thread opening = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (openOne()) {
+                }
+            }
+        }, "read connections of " + path);
+        opening.setDaemon(true);
+        opening.start();
+    }
+
+    private boolean openOne() {
+        synchronized (this) {
+            if (closed || opened >= capacity) {
+                return false;
+            }
+            opened++;
+        }
+        try {
+            release(SQLiteDatabase.openDatabase(path, key, null, SQLiteDatabase.OPEN_READONLY));
+            return true;
+        } catch (SQLiteException e) {
+            Log.e(RapidFtrApplication.APP_IDENTIFIER, "Could not open a read connection: " + e.getMessage());
+            synchronized (this) {
+                opened--;
+            }
+            return false;
+        }
+    }
+
+    private synchronized void release(SQLiteDatabase connection) {
+        if (closed) {
+            connection.close();
+            opened--;
+        } else {
+            idle.push(connection);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        while (!idle.isEmpty()) {
+            idle.pop().close();
+            opened--;
+        }
+    }
+
+    private class ConnectionCursor extends CursorWrapper {
+
+        private SQLiteDatabase connection;
+
+        ConnectionCursor(Cursor cursor, SQLiteDatabase connection) {
+            super(cursor);
+            this.connection = connection;
+        }
+
+        @Override
+        public void close() {
+            super.close();
+            if (connection != null) {
+                release(connection);
+                connection = null;
+            }
+        }
+    }
+}
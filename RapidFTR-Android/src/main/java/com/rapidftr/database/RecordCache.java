@@ -0,0 +1,116 @@
+package com.rapidftr.database;
+
+import android.util.LruCache;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Least recently used records of one table as their stored JSON, bounded in bytes and found by unique id or _id.
+ * Every invalidation moves the generation on, so a reader that started before a write can never put back what the
+ * write evicted.
+ */
+public class RecordCache {
+
+    // Per entry bookkeeping of the cache and its maps, on top of the characters it holds
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    @RequiredArgsConstructor(suppressConstructorProperties = true)
+    public static class Entry {
+        private final @Getter String uniqueId;
+        private final @Getter String internalId;
+        private final @Getter String content;
+        private final @Getter boolean synced;
+
+        int sizeInBytes() {
+            return ENTRY_OVERHEAD_BYTES + 2 * (length(uniqueId) + length(internalId) + length(content));
+        }
+
+        private static int length(String value) {
+            return value == null ? 0 : value.length();
+        }
+    }
+
+    private final @Getter String name;
+    private final LruCache<String, Entry> entries;
+    private final Map<String, String> uniqueIdsByInternalId = new HashMap<String, String>();
+    private long generation;
+    private long hits;
+    private long misses;
+
+    public RecordCache(String name, int maxSizeInBytes) {
+        this.name = name;
+        this.entries = new LruCache<String, Entry>(maxSizeInBytes) {
+            @Override
+            protected int sizeOf(String uniqueId, Entry entry) {
+                return entry.sizeInBytes();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String uniqueId, Entry oldEntry, Entry newEntry) {
+                if (oldEntry.getInternalId() != null && uniqueId.equals(uniqueIdsByInternalId.get(oldEntry.getInternalId()))) {
+                    uniqueIdsByInternalId.remove(oldEntry.getInternalId());
+                }
+            }
+        };
+    }
+
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    public synchronized Entry getByUniqueId(String uniqueId) {
+        return count(uniqueId == null ? null : entries.get(uniqueId));
+    }
+
+    public synchronized Entry getByInternalId(String internalId) {
+        String uniqueId = internalId == null ? null : uniqueIdsByInternalId.get(internalId);
+        return count(uniqueId == null ? null : entries.get(uniqueId));
+    }
+
+    public synchronized void put(long readGeneration, Entry entry) {
+        if (readGeneration != generation || entry.getUniqueId() == null) {
+            return;
+        }
+        entries.put(entry.getUniqueId(), entry);
+        if (entry.getInternalId() != null && entries.get(entry.getUniqueId()) == entry) {
+            uniqueIdsByInternalId.put(entry.getInternalId(), entry.getUniqueId());
+        }
+    }
+
+    public synchronized void invalidate(String uniqueId) {
+        generation++;
+        if (uniqueId != null) {
+            entries.remove(uniqueId);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.evictAll();
+        uniqueIdsByInternalId.clear();
+    }
+
+    public synchronized int getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (int) (100 * hits / lookups);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%s: %d records, %d/%d KB, %d hits, %d misses, %d%% hit rate, %d evictions", name,
+                entries.snapshot().size(), entries.size() / 1024, entries.maxSize() / 1024,
+                hits, misses, getHitRate(), entries.evictionCount());
+    }
+
+    private Entry count(Entry entry) {
+        if (entry == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return entry;
+    }
+}
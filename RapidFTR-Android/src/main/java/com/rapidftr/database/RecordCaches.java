@@ -0,0 +1,68 @@
+package com.rapidftr.database;
+
+import android.util.Log;
+import com.rapidftr.RapidFtrApplication;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * The record caches of one database, one per table. Every session opened on a database shares its caches, so a record
+ * read on one screen is still cached on the next. Caches are dropped on log out so decrypted records do not outlive
+ * the user's session.
+ */
+public class RecordCaches {
+
+    public static final int DEFAULT_MAX_SIZE_IN_BYTES_PER_TABLE = 512 * 1024;
+
+    private static final Map<String, RecordCaches> DATABASES = new HashMap<String, RecordCaches>();
+
+    private final int maxSizeInBytesPerTable;
+    private final Map<Database, RecordCache> caches = new EnumMap<Database, RecordCache>(Database.class);
+
+    public RecordCaches(int maxSizeInBytesPerTable) {
+        this.maxSizeInBytesPerTable = maxSizeInBytesPerTable;
+    }
+
+    public static synchronized RecordCaches forDatabase(String databaseName, int maxSizeInBytesPerTable) {
+        RecordCaches caches = DATABASES.get(databaseName);
+        if (caches == null) {
+            caches = new RecordCaches(maxSizeInBytesPerTable);
+            DATABASES.put(databaseName, caches);
+        }
+        return caches;
+    }
+
+    // Logs the statistics of every cache before dropping it, they are what the cache size is tuned by
+    public static synchronized void clearAll() {
+        for (RecordCaches caches : DATABASES.values()) {
+            for (RecordCache cache : caches.all()) {
+                Log.i(RapidFtrApplication.APP_IDENTIFIER, "Record cache " + cache);
+            }
+            caches.invalidateAll();
+        }
+        DATABASES.clear();
+    }
+
+    public synchronized RecordCache forTable(Database table) {
+        RecordCache cache = caches.get(table);
+        if (cache == null) {
+            cache = new RecordCache(table.getTableName(), maxSizeInBytesPerTable);
+            caches.put(table, cache);
+        }
+        return cache;
+    }
+
+    public synchronized List<RecordCache> all() {
+        return new ArrayList<RecordCache>(caches.values());
+    }
+
+    private synchronized void invalidateAll() {
+        for (RecordCache cache : caches.values()) {
+            cache.invalidateAll();
+        }
+    }
+}
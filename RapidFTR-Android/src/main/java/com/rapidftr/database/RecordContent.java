@@ -0,0 +1,261 @@
+package com.rapidftr.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.Iterator;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/*
+ * Encodes the JSON content of record rows in the session's format. DEFLATE and SMILE rows start with bytes plain
+ * JSON never starts with, so rows of every format are read alike and can share a table.
+ */
+public final class RecordContent {
+
+    public enum Format {
+        PLAIN, DEFLATE, SMILE
+    }
+
+    static final byte DEFLATE_V1 = 1;
+
+    // Never change it, rows tagged DEFLATE_V1 only inflate with exactly these bytes. A new dictionary needs a new tag.
+    // Deflate finds matches near the end of the dictionary cheaper, so the most common fragments come last.
+    private static final byte[] DICTIONARY_V1 = utf8("\"criteria\":{\"enquirer_name\":\"\"potential_matches\":["
+            + "\"recorded_audio\":\"\"audio_attachments\":{\"current_photo_key\":\"\"photo_keys\":[\"photo-"
+            + "\"syncLog\":\"\"posted_from\":\"Mobile\"couchrest-type\":\"Child\"created_by_full_name\":\""
+            + "\"last_updated_by_full_name\":\"\"created_organisation\":\"\"protection_status\":\"\"nationality\":\""
+            + "\"date_of_birth\":\"\"gender\":\"\"name\":\"\"short_id\":\"\"_rev\":\"\"_id\":\""
+            + "\"last_synced_at\":\"\"last_updated_at\":\"\"created_at\":\"\"created_by\":\"\"synced\":false,"
+            + "\"unique_identifier\":\"\",\"\":\"\"}");
+
+    private static final SmileFactory SMILE = new SmileFactory();
+
+    private RecordContent() {
+    }
+
+    public static void put(ContentValues values, String column, JSONObject record, Format format) throws JSONException {
+        Object content = encode(record, format);
+        if (content instanceof byte[]) {
+            values.put(column, (byte[]) content);
+        } else {
+            values.put(column, (String) content);
+        }
+    }
+
+    // A String for plain text and a byte[] for the binary formats
+    static Object encode(JSONObject record, Format format) throws JSONException {
+        switch (format) {
+            case DEFLATE:
+                return compress(record.toString());
+            case SMILE:
+                return smile(record);
+            default:
+                return record.toString();
+        }
+    }
+
+    // Reads the column as a blob, which the cursor window hands over for text columns too, and looks at the first bytes
+    public static JSONObject readObject(Cursor cursor, int columnIndex) throws JSONException {
+        return decodeObject(cursor.getBlob(columnIndex));
+    }
+
+    public static String read(Cursor cursor, int columnIndex) throws JSONException {
+        byte[] content = cursor.getBlob(columnIndex);
+        return isSmile(content) ? decodeObject(content).toString() : decode(content);
+    }
+
+    static Format formatOf(byte[] content) {
+        if (isSmile(content)) {
+            return Format.SMILE;
+        }
+        return content != null && content.length > 0 && content[0] == DEFLATE_V1 ? Format.DEFLATE : Format.PLAIN;
+    }
+
+    static JSONObject decodeObject(byte[] content) throws JSONException {
+        if (!isSmile(content)) {
+            String json = decode(content);
+            return new JSONObject(json == null || json.trim().length() == 0 ? "{}" : json);
+        }
+        try {
+            JsonParser parser = SMILE.createParser(content);
+            try {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new JSONException("Record content is not an object");
+                }
+                return readObject(parser);
+            } finally {
+                parser.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static byte[] compress(String json) {
+        byte[] input = utf8(json);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setDictionary(DICTIONARY_V1);
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 2 + 16);
+            output.write(DEFLATE_V1);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static String decode(byte[] content) {
+        if (content == null) {
+            return null;
+        }
+        if (content.length == 0 || content[0] != DEFLATE_V1) {
+            // A text field read as a blob keeps the terminating NUL of the cursor window
+            int length = content.length;
+            while (length > 0 && content[length - 1] == 0) {
+                length--;
+            }
+            return string(content, 0, length);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(content, 1, content.length - 1);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(content.length * 4);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && inflater.needsDictionary()) {
+                    inflater.setDictionary(DICTIONARY_V1);
+                } else if (inflated == 0 && inflater.needsInput()) {
+                    throw new IllegalStateException("Truncated record content");
+                }
+                output.write(buffer, 0, inflated);
+            }
+            byte[] json = output.toByteArray();
+            return string(json, 0, json.length);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    static byte[] smile(JSONObject record) throws JSONException {
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream(512);
+            JsonGenerator generator = SMILE.createGenerator(output);
+            writeValue(generator, record);
+            generator.close();
+            return output.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isSmile(byte[] content) {
+        return content != null && content.length >= 3 && content[0] == ':' && content[1] == ')' && content[2] == '\n';
+    }
+
+    // Same values org.json would give the parsed text: Integer or Long for whole numbers, Double for the rest
+    private static JSONObject readObject(JsonParser parser) throws IOException, JSONException {
+        JSONObject object = new JSONObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            object.put(name, readValue(parser, parser.nextToken()));
+        }
+        return object;
+    }
+
+    private static JSONArray readArray(JsonParser parser) throws IOException, JSONException {
+        JSONArray array = new JSONArray();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            array.put(readValue(parser, token));
+        }
+        return array;
+    }
+
+    private static Object readValue(JsonParser parser, JsonToken token) throws IOException, JSONException {
+        switch (token) {
+            case START_OBJECT:
+                return readObject(parser);
+            case START_ARRAY:
+                return readArray(parser);
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                return parser.getNumberValue();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            default:
+                return JSONObject.NULL;
+        }
+    }
+
+    private static void writeValue(JsonGenerator generator, Object value) throws IOException, JSONException {
+        if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            generator.writeStartObject();
+            for (Iterator<?> keys = object.keys(); keys.hasNext(); ) {
+                String key = (String) keys.next();
+                generator.writeFieldName(key);
+                writeValue(generator, object.get(key));
+            }
+            generator.writeEndObject();
+        } else if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            generator.writeStartArray();
+            for (int i = 0; i < array.length(); i++) {
+                writeValue(generator, array.get(i));
+            }
+            generator.writeEndArray();
+        } else if (value == null || JSONObject.NULL.equals(value)) {
+            generator.writeNull();
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            generator.writeNumber(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            generator.writeNumber(((Number) value).doubleValue());
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+
+    private static byte[] utf8(String text) {
+        try {
+            return text.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String string(byte[] bytes, int offset, int length) {
+        try {
+            return new String(bytes, offset, length, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.rapidftr.database;
+
+import android.database.Cursor;
+import android.util.Log;
+import lombok.Cleanup;
+import org.json.JSONException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.rapidftr.RapidFtrApplication.APP_IDENTIFIER;
+import static com.rapidftr.database.DatabaseStatements.execute;
+
+/*
+ * Rewrites the content of the child, enquiry and archived child rows stored in another format than the session's one, a batch of
+ * rows per transaction. Reads work on every format, so this only saves the cost of reading the old one and can run
+ * in the background whenever. Once a table is through, its format is recorded and later runs do not scan it again.
+ */
+public class RecordContentConversion {
+
+    static final int BATCH_SIZE = 100;
+    // Recorded while a table is converted, so a conversion cut short is never taken for one that finished
+    private static final String CONVERTING = "CONVERTING";
+    private static final Database[] TABLES = {Database.child, Database.enquiry, Database.archived_child};
+
+    private final DatabaseSession session;
+
+    public RecordContentConversion(DatabaseSession session) {
+        this.session = session;
+    }
+
+    public void run() throws JSONException {
+        convert(Database.child, Database.ChildTableColumn.content.getColumnName());
+        convert(Database.enquiry, Database.EnquiryTableColumn.content.getColumnName());
+        convert(Database.archived_child, Database.ChildTableColumn.content.getColumnName());
+    }
+
+    // Checked at log in so the conversion is only scheduled when a table may hold rows in another format
+    public boolean isNeeded() {
+        for (Database table : TABLES) {
+            if (!isConverted(table, session.getContentFormat())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void convert(Database table, String contentColumn) throws JSONException {
+        RecordContent.Format format = session.getContentFormat();
+        if (isConverted(table, format)) {
+            return;
+        }
+        recordFormat(table, CONVERTING);
+        int converted = 0;
+        long lastRowId = 0;
+        int batch;
+        do {
+            session.beginTransaction();
+            try {
+                Map<Long, byte[]> rows = rowsToConvert(table, contentColumn, format, lastRowId);
+                for (Map.Entry<Long, byte[]> row : rows.entrySet()) {
+                    execute(session, "UPDATE " + table.getTableName() + " SET " + contentColumn + " = ? WHERE rowid = ?",
+                            RecordContent.encode(RecordContent.decodeObject(row.getValue()), format), row.getKey());
+                    lastRowId = row.getKey();
+                }
+                batch = rows.size();
+                if (batch < BATCH_SIZE) {
+                    recordFormat(table, format.name());
+                }
+                session.setTransactionSuccessful();
+            } finally {
+                session.endTransaction();
+            }
+            converted += batch;
+        } while (batch == BATCH_SIZE);
+        Log.i(APP_IDENTIFIER, "Converted " + converted + " " + table.getTableName() + " to " + format);
+    }
+
+    // A table with no format recorded was only ever written as plain text
+    private boolean isConverted(Database table, RecordContent.Format format) {
+        @Cleanup Cursor cursor = session.rawQuery("SELECT format FROM " + Database.record_content_format.getTableName()
+                + " WHERE table_name = ?", new String[]{table.getTableName()});
+        String recorded = cursor.moveToNext() ? cursor.getString(0) : RecordContent.Format.PLAIN.name();
+        return format.name().equals(recorded);
+    }
+
+    private void recordFormat(Database table, String format) {
+        execute(session, "INSERT OR REPLACE INTO " + Database.record_content_format.getTableName()
+                + "(table_name, format) VALUES (?, ?)", table.getTableName(), format);
+    }
+
+    // Looks at the first byte in SQL, so rows already in the format are never read. Plain JSON starts with '{'.
+    private Map<Long, byte[]> rowsToConvert(Database table, String contentColumn, RecordContent.Format format, long afterRowId) {
+        String firstByte = "hex(substr(" + contentColumn + ", 1, 1))";
+        String condition = format == RecordContent.Format.PLAIN ? firstByte + " IN ('01', '3A')"
+                : firstByte + " != '" + (format == RecordContent.Format.SMILE ? "3A" : "01") + "'";
+        @Cleanup Cursor cursor = session.rawQuery("SELECT rowid, " + contentColumn + " FROM " + table.getTableName()
+                + " WHERE rowid > ? AND " + condition + " ORDER BY rowid LIMIT " + BATCH_SIZE,
+                new String[]{String.valueOf(afterRowId)});
+        Map<Long, byte[]> rows = new LinkedHashMap<Long, byte[]>();
+        while (cursor.moveToNext()) {
+            rows.put(cursor.getLong(0), cursor.getBlob(1));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,257 @@
+package com.rapidftr.database;
+
+import android.os.Looper;
+import android.util.Log;
+import com.rapidftr.model.BaseModel;
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import static com.rapidftr.RapidFtrApplication.APP_IDENTIFIER;
+
+/*
+ * Writes the records saved from the screens of one table on a background thread, in the order of their last save.
+ * A queued record stays readable from the queue until its write is committed, see RecordWriteQueues for who owns it.
+ */
+public class RecordWriteQueue<T extends BaseModel> {
+
+    public interface Writer<T extends BaseModel> {
+        // The queue keeps a copy, the screen may go on changing the record it saved
+        T copy(T record) throws JSONException;
+
+        void write(DatabaseSession session, T record) throws JSONException;
+    }
+
+    // Called on the writer thread
+    public interface FailureListener<T extends BaseModel> {
+        void failed(T record, Exception e);
+    }
+
+    static final long WAIT_MILLIS = 10000;
+
+    private final String name;
+    private final DatabaseHelper database;
+    private final Writer<T> writer;
+    private final LinkedHashMap<String, T> pending = new LinkedHashMap<String, T>();
+    private final Map<String, FailureListener<T>> listeners = new HashMap<String, FailureListener<T>>();
+    private final Runnable write = new Runnable() {
+        @Override
+        public void run() {
+            write();
+        }
+    };
+    private ExecutorService executor;
+    private volatile Thread writerThread;
+    private boolean writing;
+    private boolean closed;
+    private Runnable whenWritten;
+
+    RecordWriteQueue(String name, DatabaseHelper database, Writer<T> writer) {
+        this.name = name;
+        this.database = database;
+        this.writer = writer;
+    }
+
+    public void save(T record) throws JSONException {
+        save(record, null);
+    }
+
+    public synchronized void save(T record, FailureListener<T> listener) throws JSONException {
+        if (closed) {
+            throw new IllegalStateException("The records of " + name + " can no longer be saved");
+        }
+        String id = record.getUniqueId();
+        pending.remove(id);
+        pending.put(id, writer.copy(record));
+        if (listener == null) {
+            listeners.remove(id);
+        } else {
+            listeners.put(id, listener);
+        }
+        if (!writing) {
+            writing = true;
+            executor().execute(write);
+        }
+    }
+
+    public synchronized T get(String id) throws JSONException {
+        T record = pending.get(id);
+        return record == null ? null : writer.copy(record);
+    }
+
+    public synchronized boolean isPending(String id) {
+        return pending.containsKey(id);
+    }
+
+    // Copies of the records not written yet, in the order they will be
+    public synchronized List<T> getPending() throws JSONException {
+        List<T> records = new ArrayList<T>();
+        for (T record : pending.values()) {
+            records.add(writer.copy(record));
+        }
+        return records;
+    }
+
+    // For the bulk reads and writes of sync, which run in the background; never waits on the main thread or the
+    // writer's own, and gives up after a while rather than hang the caller on a write that does not finish
+    public synchronized void awaitWritten() {
+        if (Thread.currentThread() == writerThread || Looper.myLooper() == Looper.getMainLooper()) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (!pending.isEmpty()) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) {
+                Log.w(APP_IDENTIFIER, pending.size() + " records of " + name + " are still waiting to be written");
+                return;
+            }
+            try {
+                wait(left);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Takes no more records; those queued already are still written, and whenWritten runs once they are
+    void close(Runnable whenWritten) {
+        synchronized (this) {
+            closed = true;
+            if (writing) {
+                this.whenWritten = whenWritten;
+                return;
+            }
+            shutDown();
+        }
+        if (whenWritten != null) {
+            whenWritten.run();
+        }
+    }
+
+    private void write() {
+        boolean more = true;
+        while (more) {
+            writePending();
+            Runnable written;
+            synchronized (this) {
+                more = !pending.isEmpty();
+                if (more) {
+                    continue;
+                }
+                writing = false;
+                written = whenWritten;
+                whenWritten = null;
+                if (closed) {
+                    shutDown();
+                }
+                notifyAll();
+            }
+            if (written != null) {
+                written.run();
+            }
+        }
+    }
+
+    private void writePending() {
+        DatabaseSession session;
+        try {
+            session = database.getSession();
+        } catch (RuntimeException e) {
+            failAll(e);
+            return;
+        }
+        try {
+            T record;
+            while ((record = next()) != null) {
+                try {
+                    writer.write(session, record);
+                    written(record, null);
+                } catch (Exception e) {
+                    written(record, e);
+                }
+            }
+        } finally {
+            try {
+                session.close();
+            } catch (IOException e) {
+                Log.w(APP_IDENTIFIER, "Could not close the session of " + name, e);
+            }
+        }
+    }
+
+    private synchronized T next() {
+        return pending.isEmpty() ? null : pending.values().iterator().next();
+    }
+
+    // A failure of a version saved over in the meantime is of no interest, the newer one is written next
+    private void written(T record, Exception failure) {
+        FailureListener<T> listener;
+        synchronized (this) {
+            String id = record.getUniqueId();
+            if (pending.get(id) != record) {
+                return;
+            }
+            pending.remove(id);
+            listener = listeners.remove(id);
+            notifyAll();
+        }
+        if (failure != null) {
+            failed(record, listener, failure);
+        }
+    }
+
+    private void failAll(Exception failure) {
+        List<T> records;
+        List<FailureListener<T>> recordListeners = new ArrayList<FailureListener<T>>();
+        synchronized (this) {
+            records = new ArrayList<T>(pending.values());
+            for (T record : records) {
+                recordListeners.add(listeners.get(record.getUniqueId()));
+            }
+            pending.clear();
+            listeners.clear();
+            notifyAll();
+        }
+        for (int i = 0; i < records.size(); i++) {
+            failed(records.get(i), recordListeners.get(i), failure);
+        }
+    }
+
+    private void failed(T record, FailureListener<T> listener, Exception failure) {
+        Log.e(APP_IDENTIFIER, "Could not write record " + record.getUniqueId() + " of " + name, failure);
+        if (listener != null) {
+            listener.failed(record, failure);
+        }
+    }
+
+    private synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    writerThread = new Thread(runnable, "RecordWriteQueue " + name);
+                    writerThread.setDaemon(true);
+                    return writerThread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    // Lets the write in progress, if any, finish
+    private synchronized void shutDown() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+}
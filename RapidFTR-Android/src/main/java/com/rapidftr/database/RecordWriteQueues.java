@@ -0,0 +1,92 @@
+package com.rapidftr.database;
+
+import com.rapidftr.model.BaseModel;
+import lombok.Delegate;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * The write queues of one database, one per table, shared by every session on it like its record caches. Each queue
+ * writes through sessions of the database it belongs to, so its records never land in the database of whoever logs
+ * in next; SharedSessions closes them on log out.
+ */
+public class RecordWriteQueues {
+
+    private final String name;
+    private final DatabaseHelper database;
+    private final Map<Database, RecordWriteQueue<?>> queues = new EnumMap<Database, RecordWriteQueue<?>>(Database.class);
+    private boolean closed;
+
+    public RecordWriteQueues(String name, DatabaseHelper database) {
+        this.name = name;
+        this.database = database;
+    }
+
+    // For a session not handed out by SharedSessions, which the queues write through without closing it
+    public static RecordWriteQueues writingTo(String name, final DatabaseSession session) {
+        return new RecordWriteQueues(name, new DatabaseHelper() {
+            @Override
+            public DatabaseSession getSession() {
+                return new KeptOpen(session);
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+    }
+
+    // The writer of the first repository to ask for the queue of a table is the one it keeps
+    @SuppressWarnings("unchecked")
+    public synchronized <T extends BaseModel> RecordWriteQueue<T> forTable(Database table, RecordWriteQueue.Writer<T> writer) {
+        RecordWriteQueue<T> queue = (RecordWriteQueue<T>) queues.get(table);
+        if (queue == null) {
+            queue = new RecordWriteQueue<T>(table.getTableName() + " of " + name, database, writer);
+            if (closed) {
+                queue.close(null);
+            }
+            queues.put(table, queue);
+        }
+        return queue;
+    }
+
+    // whenWritten runs once every record queued already is written, on the writer thread of the last queue to finish
+    public void close(final Runnable whenWritten) {
+        List<RecordWriteQueue<?>> closing;
+        synchronized (this) {
+            closed = true;
+            closing = new ArrayList<RecordWriteQueue<?>>(queues.values());
+        }
+        final AtomicInteger writing = new AtomicInteger(closing.size() + 1);
+        Runnable written = new Runnable() {
+            @Override
+            public void run() {
+                if (writing.decrementAndGet() == 0) {
+                    whenWritten.run();
+                }
+            }
+        };
+        for (RecordWriteQueue<?> queue : closing) {
+            queue.close(written);
+        }
+        written.run();
+    }
+
+    private static class KeptOpen implements DatabaseSession {
+
+        @Delegate(types = DatabaseSession.class)
+        private final DatabaseSession session;
+
+        KeptOpen(DatabaseSession session) {
+            this.session = session;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
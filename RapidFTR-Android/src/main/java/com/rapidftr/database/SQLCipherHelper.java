@@ -1,25 +1,59 @@
 package com.rapidftr.database;
 
 import android.content.Context;
-import com.google.inject.Inject;
+import android.database.Cursor;
+import com.rapidftr.R;
 import com.rapidftr.database.migration.Migrations;
 import com.rapidftr.model.User;
+import lombok.Cleanup;
 import lombok.Getter;
 import net.sqlcipher.database.SQLiteDatabase;
+import net.sqlcipher.database.SQLiteDatabaseHook;
 import net.sqlcipher.database.SQLiteOpenHelper;
 
 public class SQLCipherHelper extends SQLiteOpenHelper implements DatabaseHelper {
 
-    public static final int DB_VERSION = 2;
+    public static final int DB_VERSION = 14;
+
+    // Only takes effect on a database without tables yet, see DatabaseMaintenance
+    private static final SQLiteDatabaseHook INCREMENTAL_AUTO_VACUUM = new SQLiteDatabaseHook() {
+        @Override
+        public void preKey(SQLiteDatabase database) {
+        }
+
+        @Override
+        public void postKey(SQLiteDatabase database) {
+            database.rawExecSQL("PRAGMA auto_vacuum = INCREMENTAL");
+        }
+    };
 
     protected @Getter final DatabaseSession session;
+    private ReadConnectionPool readers;
+    private final DatabaseMaintenance maintenance;
 
-    @Inject
+    // Opens the database again, with its key derivation; sessions on a user's database come from SharedSessions
     public SQLCipherHelper(User user, Context context) {
-        super(context, user.getDbName(), null, DB_VERSION);
+        super(context, user.getDbName(), null, DB_VERSION, INCREMENTAL_AUTO_VACUUM);
         SQLiteDatabase.loadLibs(context);
 
-        this.session = new SQLCipherSession(getWritableDatabase(user.getDbKey()));
+        SQLiteDatabase database = getWritableDatabase(user.getDbKey());
+        if (context.getResources().getBoolean(R.bool.database_write_ahead_logging) && enableWriteAheadLogging(database)) {
+            readers = new ReadConnectionPool(database.getPath(), user.getDbKey(),
+                    context.getResources().getInteger(R.integer.database_read_connections));
+            readers.openInBackground();
+        }
+        RecordCaches caches = RecordCaches.forDatabase(user.getDbName(),
+                context.getResources().getInteger(R.integer.record_cache_kilobytes_per_table) * 1024);
+        RecordContent.Format contentFormat =
+                RecordContent.Format.valueOf(context.getString(R.string.record_content_format).toUpperCase());
+        this.session = new SQLCipherSession(database, readers, caches, contentFormat);
+        this.maintenance = DatabaseMaintenance.forDatabase(user, context);
+    }
+
+    // The journal mode is kept in the database file, so a database stays in WAL mode once it has been switched
+    static boolean enableWriteAheadLogging(SQLiteDatabase database) {
+        @Cleanup Cursor cursor = database.rawQuery("PRAGMA journal_mode = WAL", null);
+        return cursor.moveToNext() && "wal".equalsIgnoreCase(cursor.getString(0));
     }
 
     @Override
@@ -31,13 +65,27 @@ public class SQLCipherHelper extends SQLiteOpenHelper implements DatabaseHelper
 
     @Override
     public void onUpgrade(SQLiteDatabase database, int oldVersion, int newVersion) {
-        for (Migrations migration : Migrations.forVersion(newVersion)) {
-            database.execSQL(migration.getSql());
+        for (int version = oldVersion + 1; version <= newVersion; version++) {
+            for (Migrations migration : Migrations.forVersion(version)) {
+                database.execSQL(migration.getSql());
+            }
         }
     }
 
+    // On this helper's connection, so it neither derives the key again nor writes beside it; see SharedSessions
+    public void scheduleMaintenance() {
+        maintenance.scheduleWhenIdle(session);
+    }
+
+    public void cancelMaintenance() {
+        maintenance.cancel();
+    }
+
+    // Closes the cached statements and the read connections along with the database, once maintenance has stopped
     @Override
     public void close() {
+        maintenance.cancelAndWait();
+        session.close();
         super.close();
         SQLiteDatabase.releaseMemory();
     }
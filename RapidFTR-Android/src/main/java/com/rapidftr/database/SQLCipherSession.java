@@ -1,14 +1,77 @@
 package com.rapidftr.database;
 
+import android.database.Cursor;
 import lombok.Delegate;
-import lombok.RequiredArgsConstructor;
 import net.sqlcipher.database.SQLiteDatabase;
 
 
-@RequiredArgsConstructor(suppressConstructorProperties = true)
 public class SQLCipherSession implements DatabaseSession {
 
     @Delegate(types = DatabaseSession.class)
     protected final SQLiteDatabase database;
 
+    private final ReadConnectionPool readers;
+    private final RecordCaches caches;
+    private final RecordContent.Format contentFormat;
+    private final RecordWriteQueues writeQueues = RecordWriteQueues.writingTo("session", this);
+
+    private final StatementCache statements = new StatementCache(StatementCache.DEFAULT_CAPACITY) {
+        @Override
+        protected DatabaseStatement compileStatement(String sql) {
+            return new SQLCipherStatement(database.compileStatement(sql));
+        }
+    };
+
+    public SQLCipherSession(SQLiteDatabase database) {
+        this(database, null, new RecordCaches(RecordCaches.DEFAULT_MAX_SIZE_IN_BYTES_PER_TABLE), RecordContent.Format.PLAIN);
+    }
+
+    SQLCipherSession(SQLiteDatabase database, ReadConnectionPool readers, RecordCaches caches, RecordContent.Format contentFormat) {
+        this.database = database;
+        this.readers = readers;
+        this.caches = caches;
+        this.contentFormat = contentFormat;
+    }
+
+    // Inside a transaction the query has to see its own uncommitted writes, so only the writable connection will do
+    @Override
+    public Cursor rawQuery(String sql, String[] selectionArgs) {
+        if (readers != null && !database.inTransaction()) {
+            Cursor cursor = readers.tryQuery(sql, selectionArgs);
+            if (cursor != null) {
+                return cursor;
+            }
+        }
+        return database.rawQuery(sql, selectionArgs);
+    }
+
+    @Override
+    public DatabaseStatement compile(String sql) {
+        return statements.get(sql);
+    }
+
+    @Override
+    public RecordCache getRecordCache(Database table) {
+        return caches.forTable(table);
+    }
+
+    // Replaced by the queues of SharedSessions for the sessions it hands out
+    @Override
+    public RecordWriteQueues getWriteQueues() {
+        return writeQueues;
+    }
+
+    @Override
+    public RecordContent.Format getContentFormat() {
+        return contentFormat;
+    }
+
+    @Override
+    public void close() {
+        statements.clear();
+        if (readers != null) {
+            readers.close();
+        }
+        database.close();
+    }
 }
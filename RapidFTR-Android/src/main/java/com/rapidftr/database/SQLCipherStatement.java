@@ -0,0 +1,13 @@
+package com.rapidftr.database;
+
+import lombok.Delegate;
+import lombok.RequiredArgsConstructor;
+import net.sqlcipher.database.SQLiteStatement;
+
+@RequiredArgsConstructor(suppressConstructorProperties = true)
+public class SQLCipherStatement implements DatabaseStatement {
+
+    @Delegate(types = DatabaseStatement.class)
+    private final SQLiteStatement statement;
+
+}
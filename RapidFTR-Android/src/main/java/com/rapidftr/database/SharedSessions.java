@@ -0,0 +1,187 @@
+package com.rapidftr.database;
+
+import android.content.Context;
+import com.rapidftr.R;
+import com.rapidftr.model.User;
+import lombok.Delegate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Opens a user's database once and hands out ref-counted sessions on it, so the key derivation is not paid by every
+ * repository a screen injects. The database closes once it has been idle, or at log out, and is maintained only while
+ * no session is out.
+ */
+public class SharedSessions implements DatabaseHelper {
+
+    interface Opener {
+        DatabaseHelper open();
+    }
+
+    private static final Map<String, SharedSessions> DATABASES = new HashMap<String, SharedSessions>();
+
+    private final String name;
+    private final long idleMillis;
+    private final Opener opener;
+    private final RecordWriteQueues writeQueues;
+
+    private DatabaseHelper helper;
+    private int references;
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> closing;
+
+    SharedSessions(String name, long idleMillis, Opener opener) {
+        this.name = name;
+        this.idleMillis = idleMillis;
+        this.opener = opener;
+        this.writeQueues = new RecordWriteQueues(name, this);
+    }
+
+    public static synchronized SharedSessions forDatabase(final User user, final Context context) {
+        SharedSessions sessions = DATABASES.get(user.getDbName());
+        if (sessions == null) {
+            sessions = new SharedSessions(user.getDbName(),
+                    TimeUnit.SECONDS.toMillis(context.getResources().getInteger(R.integer.database_session_idle_seconds)),
+                    new Opener() {
+                        @Override
+                        public DatabaseHelper open() {
+                            return new SQLCipherHelper(user, context);
+                        }
+                    });
+            DATABASES.put(user.getDbName(), sessions);
+        }
+        return sessions;
+    }
+
+    public static DatabaseSession acquire(User user, Context context) {
+        return forDatabase(user, context).getSession();
+    }
+
+    // On log out, sessions still held by the screens left behind cannot be used afterwards. The records already queued
+    // are still written, each database closing once its queues are.
+    public static void closeAll() {
+        List<SharedSessions> databases;
+        synchronized (SharedSessions.class) {
+            databases = new ArrayList<SharedSessions>(DATABASES.values());
+            DATABASES.clear();
+        }
+        for (SharedSessions sessions : databases) {
+            sessions.close();
+        }
+    }
+
+    @Override
+    public synchronized DatabaseSession getSession() {
+        if (closing != null) {
+            closing.cancel(false);
+            closing = null;
+        }
+        if (helper == null) {
+            helper = opener.open();
+        }
+        references++;
+        if (helper instanceof SQLCipherHelper) {
+            ((SQLCipherHelper) helper).cancelMaintenance();
+        }
+        return new Session(helper.getSession());
+    }
+
+    synchronized int getReferences() {
+        return references;
+    }
+
+    synchronized boolean isOpen() {
+        return helper != null;
+    }
+
+    @Override
+    public void close() {
+        writeQueues.close(new Runnable() {
+            @Override
+            public void run() {
+                closeNow();
+            }
+        });
+    }
+
+    private synchronized void closeNow() {
+        references = 0;
+        closeIfIdle();
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    synchronized void closeIfIdle() {
+        if (references == 0 && helper != null) {
+            try {
+                helper.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            } finally {
+                helper = null;
+            }
+        }
+    }
+
+    private synchronized void release() {
+        references = Math.max(0, references - 1);
+        if (references > 0 || helper == null) {
+            return;
+        }
+        if (helper instanceof SQLCipherHelper) {
+            ((SQLCipherHelper) helper).scheduleMaintenance();
+        }
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "SharedSessions " + name);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        closing = executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                closeIfIdle();
+            }
+        }, idleMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Closing gives the reference back, only the first time
+    private class Session implements DatabaseSession {
+
+        @Delegate(types = DatabaseSession.class)
+        private final DatabaseSession session;
+        private boolean closed;
+
+        Session(DatabaseSession session) {
+            this.session = session;
+        }
+
+        @Override
+        public RecordWriteQueues getWriteQueues() {
+            return writeQueues;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                release();
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.rapidftr.database;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Least recently used compiled statements of one session by SQL, one cache per thread, since a statement carries
+ * its bindings. Statements are compiled and closed outside the cache's lock.
+ */
+public abstract class StatementCache {
+
+    public static final int DEFAULT_CAPACITY = 32;
+
+    private final int capacity;
+    private final Map<Thread, LinkedHashMap<String, DatabaseStatement>> threads =
+            new HashMap<Thread, LinkedHashMap<String, DatabaseStatement>>();
+
+    public StatementCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    protected abstract DatabaseStatement compileStatement(String sql);
+
+    public DatabaseStatement get(String sql) {
+        List<DatabaseStatement> unused = new ArrayList<DatabaseStatement>();
+        DatabaseStatement statement;
+        synchronized (threads) {
+            statement = statementsOfCurrentThread(unused).get(sql);
+        }
+        if (statement == null) {
+            statement = compileStatement(sql);
+            synchronized (threads) {
+                LinkedHashMap<String, DatabaseStatement> statements = statementsOfCurrentThread(unused);
+                statements.put(sql, statement);
+                Iterator<DatabaseStatement> leastRecentlyUsed = statements.values().iterator();
+                while (statements.size() > capacity) {
+                    unused.add(leastRecentlyUsed.next());
+                    leastRecentlyUsed.remove();
+                }
+            }
+        }
+        close(unused);
+        return statement;
+    }
+
+    public int size() {
+        synchronized (threads) {
+            int size = 0;
+            for (Map<String, DatabaseStatement> statements : threads.values()) {
+                size += statements.size();
+            }
+            return size;
+        }
+    }
+
+    public void clear() {
+        List<DatabaseStatement> unused = new ArrayList<DatabaseStatement>();
+        synchronized (threads) {
+            for (Map<String, DatabaseStatement> statements : threads.values()) {
+                unused.addAll(statements.values());
+            }
+            threads.clear();
+        }
+        close(unused);
+    }
+
+    // A thread seen for the first time gets a cache, and those of threads that have ended are given up
+    private LinkedHashMap<String, DatabaseStatement> statementsOfCurrentThread(List<DatabaseStatement> unused) {
+        LinkedHashMap<String, DatabaseStatement> statements = threads.get(Thread.currentThread());
+        if (statements == null) {
+            Iterator<Map.Entry<Thread, LinkedHashMap<String, DatabaseStatement>>> others = threads.entrySet().iterator();
+            while (others.hasNext()) {
+                Map.Entry<Thread, LinkedHashMap<String, DatabaseStatement>> other = others.next();
+                if (!other.getKey().isAlive()) {
+                    unused.addAll(other.getValue().values());
+                    others.remove();
+                }
+            }
+            statements = new LinkedHashMap<String, DatabaseStatement>(capacity, 0.75f, true);
+            threads.put(Thread.currentThread(), statements);
+        }
+        return statements;
+    }
+
+    private static void close(List<DatabaseStatement> statements) {
+        for (DatabaseStatement statement : statements) {
+            statement.close();
+        }
+    }
+}
@@ -19,7 +19,67 @@ public enum Migrations {
     v001_add_revColumn(1, MigrationSQL.addRevColumn),
     v001_add_last_synced_at_column(1,MigrationSQL.addLastSyncedAtColumn),
     v001_createEnquiryTable(1, MigrationSQL.createEnquiryTable),
-    v002_createPotentialMatchTable(2, MigrationSQL.createPotentialMatchTable)
+    v002_createPotentialMatchTable(2, MigrationSQL.createPotentialMatchTable),
+    v003_createChildOwnerIndex(3, MigrationSQL.createChildOwnerIndex),
+    v003_createChildSyncedIndex(3, MigrationSQL.createChildSyncedIndex),
+    v003_createChildInternalIdIndex(3, MigrationSQL.createChildInternalIdIndex),
+    v003_createEnquiryCreatedByIndex(3, MigrationSQL.createEnquiryCreatedByIndex),
+    v003_createEnquirySyncedIndex(3, MigrationSQL.createEnquirySyncedIndex),
+    v003_createEnquiryInternalIdIndex(3, MigrationSQL.createEnquiryInternalIdIndex),
+    v003_createPotentialMatchEnquiryIdIndex(3, MigrationSQL.createPotentialMatchEnquiryIdIndex),
+    v003_createPotentialMatchChildIdIndex(3, MigrationSQL.createPotentialMatchChildIdIndex),
+    v004_createChildSummaryTable(4, MigrationSQL.createSummaryTable(Database.child_summary)),
+    v004_createEnquirySummaryTable(4, MigrationSQL.createSummaryTable(Database.enquiry_summary)),
+    v005_createChildSearchTable(5, MigrationSQL.createSearchTable(Database.child_search)),
+    v005_createEnquirySearchTable(5, MigrationSQL.createSearchTable(Database.enquiry_search)),
+    v005_createSearchIndexBackfillTable(5, MigrationSQL.createSearchIndexBackfillTable),
+    v005_queueChildSearchIndexBackfill(5, MigrationSQL.queueSearchIndexBackfill(Database.child)),
+    v005_queueEnquirySearchIndexBackfill(5, MigrationSQL.queueSearchIndexBackfill(Database.enquiry)),
+    v006_createRecordCountsTable(6, MigrationSQL.createRecordCountsTable),
+    v006_countInsertedChildren(6, MigrationSQL.countInsertedRecords(Database.child)),
+    v006_countReplacedChildren(6, MigrationSQL.countReplacedRecords(Database.child)),
+    v006_countDeletedChildren(6, MigrationSQL.countDeletedRecords(Database.child)),
+    v006_countUpdatedChildren(6, MigrationSQL.countUpdatedRecords(Database.child)),
+    v006_countExistingChildren(6, MigrationSQL.countExistingRecords(Database.child)),
+    v006_countInsertedEnquiries(6, MigrationSQL.countInsertedRecords(Database.enquiry)),
+    v006_countReplacedEnquiries(6, MigrationSQL.countReplacedRecords(Database.enquiry)),
+    v006_countDeletedEnquiries(6, MigrationSQL.countDeletedRecords(Database.enquiry)),
+    v006_countUpdatedEnquiries(6, MigrationSQL.countUpdatedRecords(Database.enquiry)),
+    v006_countExistingEnquiries(6, MigrationSQL.countExistingRecords(Database.enquiry)),
+    v007_createHistoryTable(7, MigrationSQL.createHistoryTable),
+    v007_createHistoryRecordIdIndex(7, MigrationSQL.createHistoryRecordIdIndex),
+    v008_createRecordContentFormatTable(8, MigrationSQL.createRecordContentFormatTable),
+    v009_createMaintenanceLogTable(9, MigrationSQL.createMaintenanceLogTable),
+    v010_addPotentialMatchStatusColumn(10, MigrationSQL.addPotentialMatchStatusColumn),
+    v010_fillPotentialMatchStatus(10, MigrationSQL.fillPotentialMatchStatus),
+    v010_dropPotentialMatchChildIdIndex(10, MigrationSQL.dropIndex("idx_potential_match_child_id")),
+    v010_dropPotentialMatchEnquiryIdIndex(10, MigrationSQL.dropIndex("idx_potential_match_enquiry_id")),
+    v010_createPotentialMatchChildIdStatusIndex(10, MigrationSQL.createPotentialMatchStatusIndex(Database.PotentialMatchTableColumn.child_id)),
+    v010_createPotentialMatchEnquiryIdStatusIndex(10, MigrationSQL.createPotentialMatchStatusIndex(Database.PotentialMatchTableColumn.enquiry_id)),
+    v011_addChildTouchedAtColumn(11, MigrationSQL.addChildTouchedAtColumn),
+    v011_fillChildTouchedAt(11, MigrationSQL.fillChildTouchedAt),
+    v011_createChildSyncedTouchedAtIndex(11, MigrationSQL.createChildSyncedTouchedAtIndex),
+    v011_createArchivedChildTable(11, MigrationSQL.createArchivedChildTable),
+    v011_createArchivedChildInternalIdIndex(11, MigrationSQL.createArchivedChildInternalIdIndex),
+    v011_createArchivedChildSearchTable(11, MigrationSQL.createSearchTable(Database.archived_child_search)),
+    v012_createChildNameTable(12, MigrationSQL.createNameTable(Database.child_name)),
+    v012_createEnquiryNameTable(12, MigrationSQL.createNameTable(Database.enquiry_name)),
+    v012_createArchivedChildNameTable(12, MigrationSQL.createNameTable(Database.archived_child_name)),
+    v012_createChildNameKeyIndex(12, MigrationSQL.createNameKeyIndex(Database.child_name)),
+    v012_createEnquiryNameKeyIndex(12, MigrationSQL.createNameKeyIndex(Database.enquiry_name)),
+    v012_createArchivedChildNameKeyIndex(12, MigrationSQL.createNameKeyIndex(Database.archived_child_name)),
+    v012_createChildNameRecordIndex(12, MigrationSQL.createNameRecordIndex(Database.child_name)),
+    v012_createEnquiryNameRecordIndex(12, MigrationSQL.createNameRecordIndex(Database.enquiry_name)),
+    v012_createArchivedChildNameRecordIndex(12, MigrationSQL.createNameRecordIndex(Database.archived_child_name)),
+    v012_queueChildNameIndexBackfill(12, MigrationSQL.queueSearchIndexBackfill(Database.child_name)),
+    v012_queueEnquiryNameIndexBackfill(12, MigrationSQL.queueSearchIndexBackfill(Database.enquiry_name)),
+    v012_queueArchivedChildNameIndexBackfill(12, MigrationSQL.queueSearchIndexBackfill(Database.archived_child_name)),
+    v013_countInsertedArchivedChildren(13, MigrationSQL.countInsertedRecords(Database.archived_child)),
+    v013_countReplacedArchivedChildren(13, MigrationSQL.countReplacedRecords(Database.archived_child)),
+    v013_countDeletedArchivedChildren(13, MigrationSQL.countDeletedRecords(Database.archived_child)),
+    v013_countUpdatedArchivedChildren(13, MigrationSQL.countUpdatedRecords(Database.archived_child)),
+    v013_countExistingArchivedChildren(13, MigrationSQL.countExistingRecords(Database.archived_child)),
+    v014_addHistorySyncedColumn(14, MigrationSQL.addHistorySyncedColumn)
     ;
 
     private int databaseVersion;
@@ -111,5 +171,283 @@ class MigrationSQL {
             + Database.PotentialMatchTableColumn.revision.getColumnName() + " text,"
             + Database.PotentialMatchTableColumn.confirmed.getColumnName() + " text default 'false'"
             + ");";
-}
 
+    // Owner first so the paginated list queries can both filter and walk "ORDER BY id" off the index
+    public static final String createChildOwnerIndex = "CREATE INDEX IF NOT EXISTS idx_children_owner_id ON "
+            + Database.child.getTableName() + "("
+            + Database.ChildTableColumn.owner.getColumnName() + ", "
+            + Database.ChildTableColumn.id.getColumnName()
+            + ");";
+
+    public static final String createChildSyncedIndex = "CREATE INDEX IF NOT EXISTS idx_children_synced_owner ON "
+            + Database.child.getTableName() + "("
+            + Database.ChildTableColumn.synced.getColumnName() + ", "
+            + Database.ChildTableColumn.owner.getColumnName()
+            + ");";
+
+    public static final String createChildInternalIdIndex = "CREATE INDEX IF NOT EXISTS idx_children_internal_id ON "
+            + Database.child.getTableName() + "("
+            + Database.ChildTableColumn.internal_id.getColumnName()
+            + ");";
+
+    public static final String createEnquiryCreatedByIndex = "CREATE INDEX IF NOT EXISTS idx_enquiry_created_by_id ON "
+            + Database.enquiry.getTableName() + "("
+            + Database.EnquiryTableColumn.created_by.getColumnName() + ", "
+            + Database.EnquiryTableColumn.id.getColumnName()
+            + ");";
+
+    public static final String createEnquirySyncedIndex = "CREATE INDEX IF NOT EXISTS idx_enquiry_synced ON "
+            + Database.enquiry.getTableName() + "("
+            + Database.EnquiryTableColumn.synced.getColumnName()
+            + ");";
+
+    public static final String createEnquiryInternalIdIndex = "CREATE INDEX IF NOT EXISTS idx_enquiry_internal_id ON "
+            + Database.enquiry.getTableName() + "("
+            + Database.EnquiryTableColumn.internal_id.getColumnName()
+            + ");";
+
+    public static final String createPotentialMatchEnquiryIdIndex = "CREATE INDEX IF NOT EXISTS idx_potential_match_enquiry_id ON "
+            + Database.potential_match.getTableName() + "("
+            + Database.PotentialMatchTableColumn.enquiry_id.getColumnName()
+            + ");";
+
+    public static final String createPotentialMatchChildIdIndex = "CREATE INDEX IF NOT EXISTS idx_potential_match_child_id ON "
+            + Database.potential_match.getTableName() + "("
+            + Database.PotentialMatchTableColumn.child_id.getColumnName()
+            + ");";
+
+    // List screens read these narrow rows instead of the full record blob, see RecordSummary
+    public static String createSummaryTable(Database summaryTable) {
+        return "create table "
+                + summaryTable.getTableName() + "("
+                + Database.SummaryTableColumn.id.getColumnName() + " text primary key not null,"
+                + Database.SummaryTableColumn.content.getColumnName() + " text not null"
+                + ");";
+    }
+
+    // fts3 rather than fts4 so the same schema also loads in the older SQLite the unit tests run against
+    public static String createSearchTable(Database searchTable) {
+        return "CREATE VIRTUAL TABLE "
+                + searchTable.getTableName() + " USING fts3("
+                + Database.SearchTableColumn.short_id.getColumnName() + ", "
+                + Database.SearchTableColumn.content.getColumnName()
+                + ");";
+    }
+
+    // Records written before the search tables existed are indexed from Java on the first search, see RecordSearchIndex
+    public static final String createSearchIndexBackfillTable = "create table "
+            + Database.search_index_backfill.getTableName() + "("
+            + "table_name text primary key not null"
+            + ");";
+
+    // Queued under the record table for its search index and under the name table for its name index, see RecordNameIndex
+    public static String queueSearchIndexBackfill(Database table) {
+        return "INSERT INTO " + Database.search_index_backfill.getTableName()
+                + "(table_name) VALUES ('" + table.getTableName() + "');";
+    }
+
+    // Number of records per table, owner and synced state, kept up to date by the triggers below, see RecordStats
+    public static final String createRecordCountsTable = "create table "
+            + Database.record_counts.getTableName() + "("
+            + Database.RecordCountColumn.entity.getColumnName() + " text not null,"
+            + Database.RecordCountColumn.owner.getColumnName() + " text not null,"
+            + Database.RecordCountColumn.synced.getColumnName() + " text not null,"
+            + Database.RecordCountColumn.count.getColumnName() + " integer not null default 0,"
+            + "primary key (" + Database.RecordCountColumn.entity.getColumnName() + ", "
+            + Database.RecordCountColumn.owner.getColumnName() + ", "
+            + Database.RecordCountColumn.synced.getColumnName() + ")"
+            + ");";
+
+    public static String countInsertedRecords(Database recordTable) {
+        return "CREATE TRIGGER " + recordTable.getTableName() + "_count_insert AFTER INSERT ON "
+                + recordTable.getTableName() + " BEGIN "
+                + changeRecordCount(recordTable, "NEW", 1)
+                + " END;";
+    }
+
+    // INSERT OR REPLACE does not fire delete triggers while recursive triggers are off, so the row it is about to
+    // replace is uncounted here. Records are never written with INSERT OR IGNORE, which would leave it uncounted.
+    public static String countReplacedRecords(Database recordTable) {
+        String table = recordTable.getTableName();
+        return "CREATE TRIGGER " + table + "_count_replace BEFORE INSERT ON " + table + " BEGIN "
+                + "UPDATE " + Database.record_counts.getTableName() + " SET " + recordCount() + " = " + recordCount() + " - 1"
+                + " WHERE " + Database.RecordCountColumn.entity.getColumnName() + " = '" + table + "'"
+                + " AND EXISTS (SELECT 1 FROM " + table + " r WHERE r.id = NEW.id"
+                + " AND r." + ownerColumn(recordTable) + " = " + Database.record_counts.getTableName() + "." + Database.RecordCountColumn.owner.getColumnName()
+                + " AND r.synced = " + Database.record_counts.getTableName() + "." + Database.RecordCountColumn.synced.getColumnName() + ");"
+                + " END;";
+    }
+
+    public static String countDeletedRecords(Database recordTable) {
+        return "CREATE TRIGGER " + recordTable.getTableName() + "_count_delete AFTER DELETE ON "
+                + recordTable.getTableName() + " BEGIN "
+                + changeRecordCount(recordTable, "OLD", -1)
+                + " END;";
+    }
+
+    public static String countUpdatedRecords(Database recordTable) {
+        return "CREATE TRIGGER " + recordTable.getTableName() + "_count_update AFTER UPDATE OF "
+                + ownerColumn(recordTable) + ", synced ON " + recordTable.getTableName() + " BEGIN "
+                + changeRecordCount(recordTable, "OLD", -1) + " "
+                + changeRecordCount(recordTable, "NEW", 1)
+                + " END;";
+    }
+
+    public static String countExistingRecords(Database recordTable) {
+        return "INSERT INTO " + Database.record_counts.getTableName() + "("
+                + Database.RecordCountColumn.entity.getColumnName() + ", "
+                + Database.RecordCountColumn.owner.getColumnName() + ", "
+                + Database.RecordCountColumn.synced.getColumnName() + ", "
+                + recordCount() + ") SELECT '" + recordTable.getTableName() + "', "
+                + ownerColumn(recordTable) + ", synced, COUNT(1) FROM " + recordTable.getTableName()
+                + " GROUP BY " + ownerColumn(recordTable) + ", synced;";
+    }
+
+    // Histories of children and enquiries, appended on every write instead of growing the record blob, see HistoryStore.
+    // Histories still inside a record written before this table existed move here the next time the record is saved.
+    public static final String createHistoryTable = "create table "
+            + Database.history.getTableName() + "("
+            + Database.HistoryTableColumn.id.getColumnName() + " integer primary key autoincrement,"
+            + Database.HistoryTableColumn.record_id.getColumnName() + " text not null,"
+            + Database.HistoryTableColumn.content.getColumnName() + " text not null"
+            + ");";
+
+    public static final String createHistoryRecordIdIndex = "CREATE INDEX IF NOT EXISTS idx_history_record_id ON "
+            + Database.history.getTableName() + "("
+            + Database.HistoryTableColumn.record_id.getColumnName() + ", "
+            + Database.HistoryTableColumn.id.getColumnName()
+            + ");";
+
+    // Histories in the table until now were all still to be sent, those already sent having been deleted
+    public static final String addHistorySyncedColumn = "ALTER TABLE "
+            + Database.history.getTableName()
+            + " ADD COLUMN " + Database.HistoryTableColumn.synced.getColumnName()
+            + " integer not null default 0";
+
+    // The format each record table was last converted to as a whole, see RecordContentConversion
+    public static final String createRecordContentFormatTable = "create table "
+            + Database.record_content_format.getTableName() + "("
+            + "table_name text primary key not null,"
+            + "format text not null"
+            + ");";
+
+    // Sizes are in bytes, see DatabaseMaintenance
+    public static final String createMaintenanceLogTable = "create table "
+            + Database.maintenance_log.getTableName() + "("
+            + "id integer primary key autoincrement,"
+            + "task text not null,"
+            + "started_at integer not null,"
+            + "duration_millis integer not null,"
+            + "size_before integer not null,"
+            + "size_after integer not null,"
+            + "result text not null"
+            + ");";
+
+    public static final String addPotentialMatchStatusColumn = "ALTER TABLE "
+            + Database.potential_match.getTableName()
+            + " ADD COLUMN " + Database.PotentialMatchTableColumn.status.getColumnName()
+            + " text not null default 'POTENTIAL'";
+
+    public static final String fillPotentialMatchStatus = "UPDATE " + Database.potential_match.getTableName()
+            + " SET " + Database.PotentialMatchTableColumn.status.getColumnName() + " = 'CONFIRMED'"
+            + " WHERE " + Database.PotentialMatchTableColumn.confirmed.getColumnName() + " = 'true'";
+
+    // The matches of a record are looked up by its id and their status, see PotentialMatchRepository
+    public static String createPotentialMatchStatusIndex(Database.PotentialMatchTableColumn recordIdColumn) {
+        return "CREATE INDEX IF NOT EXISTS idx_potential_match_" + recordIdColumn.getColumnName() + "_status ON "
+                + Database.potential_match.getTableName() + "("
+                + recordIdColumn.getColumnName() + ", "
+                + Database.PotentialMatchTableColumn.status.getColumnName()
+                + ");";
+    }
+
+    public static final String addChildTouchedAtColumn = "ALTER TABLE "
+            + Database.child.getTableName()
+            + " ADD COLUMN " + Database.ChildTableColumn.touched_at.getColumnName()
+            + " integer not null default 0";
+
+    // Existing records count as touched by the upgrade, so none of them is archived before the archive period is over
+    public static final String fillChildTouchedAt = "UPDATE " + Database.child.getTableName()
+            + " SET " + Database.ChildTableColumn.touched_at.getColumnName() + " = strftime('%s', 'now') * 1000";
+
+    public static final String createChildSyncedTouchedAtIndex = "CREATE INDEX IF NOT EXISTS idx_children_synced_touched_at ON "
+            + Database.child.getTableName() + "("
+            + Database.ChildTableColumn.synced.getColumnName() + ", "
+            + Database.ChildTableColumn.touched_at.getColumnName()
+            + ");";
+
+    // Synced children nobody wrote for a long time, moved out of the children table, see ChildArchive
+    public static final String createArchivedChildTable = "create table "
+            + Database.archived_child.getTableName() + "("
+            + Database.ChildTableColumn.id.getColumnName() + " text primary key not null,"
+            + Database.ChildTableColumn.owner.getColumnName() + " text not null,"
+            + Database.ChildTableColumn.content.getColumnName() + " text not null,"
+            + Database.ChildTableColumn.synced.getColumnName() + " text not null,"
+            + Database.ChildTableColumn.created_at.getColumnName() + " text,"
+            + Database.ChildTableColumn.last_updated_at.getColumnName() + " text,"
+            + Database.ChildTableColumn.internal_id.getColumnName() + " text,"
+            + Database.ChildTableColumn.internal_rev.getColumnName() + " text,"
+            + Database.ChildTableColumn.last_synced_at.getColumnName() + " text,"
+            + Database.ChildTableColumn.touched_at.getColumnName() + " integer not null,"
+            + Database.ChildTableColumn.archived_at.getColumnName() + " integer not null"
+            + ");";
+
+    public static final String createArchivedChildInternalIdIndex = "CREATE INDEX IF NOT EXISTS idx_archived_children_internal_id ON "
+            + Database.archived_child.getTableName() + "("
+            + Database.ChildTableColumn.internal_id.getColumnName()
+            + ");";
+
+    // Phonetic keys of the words in the name fields, one row per word and key under the record's rowid, see RecordNameIndex
+    public static String createNameTable(Database nameTable) {
+        return "create table "
+                + nameTable.getTableName() + "("
+                + Database.NameTableColumn.id.getColumnName() + " integer not null,"
+                + Database.NameTableColumn.name.getColumnName() + " text not null,"
+                + Database.NameTableColumn.key.getColumnName() + " text not null"
+                + ");";
+    }
+
+    public static String createNameKeyIndex(Database nameTable) {
+        return "CREATE INDEX IF NOT EXISTS idx_" + nameTable.getTableName() + "_key ON "
+                + nameTable.getTableName() + "("
+                + Database.NameTableColumn.key.getColumnName() + ", "
+                + Database.NameTableColumn.id.getColumnName()
+                + ");";
+    }
+
+    public static String createNameRecordIndex(Database nameTable) {
+        return "CREATE INDEX IF NOT EXISTS idx_" + nameTable.getTableName() + "_docid ON "
+                + nameTable.getTableName() + "("
+                + Database.NameTableColumn.id.getColumnName()
+                + ");";
+    }
+
+    public static String dropIndex(String name) {
+        return "DROP INDEX IF EXISTS " + name;
+    }
+
+    private static String changeRecordCount(Database recordTable, String row, int change) {
+        String where = " WHERE " + Database.RecordCountColumn.entity.getColumnName() + " = '" + recordTable.getTableName() + "'"
+                + " AND " + Database.RecordCountColumn.owner.getColumnName() + " = " + row + "." + ownerColumn(recordTable)
+                + " AND " + Database.RecordCountColumn.synced.getColumnName() + " = " + row + ".synced;";
+        String insertMissingRow = "INSERT OR IGNORE INTO " + Database.record_counts.getTableName() + "("
+                + Database.RecordCountColumn.entity.getColumnName() + ", "
+                + Database.RecordCountColumn.owner.getColumnName() + ", "
+                + Database.RecordCountColumn.synced.getColumnName() + ") VALUES ('"
+                + recordTable.getTableName() + "', " + row + "." + ownerColumn(recordTable) + ", " + row + ".synced); ";
+        return (change > 0 ? insertMissingRow : "")
+                + "UPDATE " + Database.record_counts.getTableName() + " SET " + recordCount() + " = " + recordCount()
+                + (change > 0 ? " + " : " - ") + Math.abs(change) + where;
+    }
+
+    private static String recordCount() {
+        return Database.RecordCountColumn.count.getColumnName();
+    }
+
+    // Archived children keep the columns of the children table
+    private static String ownerColumn(Database recordTable) {
+        return recordTable == Database.enquiry
+                ? Database.EnquiryTableColumn.created_by.getColumnName()
+                : Database.ChildTableColumn.owner.getColumnName();
+    }
+}
@@ -22,6 +22,7 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
 
@@ -39,6 +40,24 @@ public class BaseModel extends JSONObject implements Parcelable {
 
     public BaseModel(String content) throws JSONException {
         super(Strings.nullToEmpty(content).trim().length() == 0 ? "{}" : content);
+        setDefaults();
+    }
+
+    // Takes over the values of content that has been parsed already, see RecordContent
+    protected BaseModel(JSONObject values) throws JSONException {
+        super(values, keysOf(values));
+        setDefaults();
+    }
+
+    private static String[] keysOf(JSONObject values) {
+        List<String> keys = new ArrayList<String>();
+        for (Iterator<?> iterator = values.keys(); iterator.hasNext(); ) {
+            keys.add((String) iterator.next());
+        }
+        return keys.toArray(new String[keys.size()]);
+    }
+
+    private void setDefaults() throws JSONException {
         if (!has(created_at.getColumnName())) {
             setCreatedAt(RapidFtrDateTime.now().defaultFormat());
         }
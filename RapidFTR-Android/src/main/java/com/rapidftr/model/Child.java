@@ -4,7 +4,6 @@ import android.os.Parcel;
 import android.util.Log;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
-import com.google.common.collect.Collections2;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.rapidftr.repository.ChildRepository;
@@ -53,6 +52,11 @@ public class Child extends BaseModel {
         setSynced(synced);
     }
 
+    public Child(JSONObject values, boolean synced) throws JSONException {
+        super(values);
+        setSynced(synced);
+    }
+
     public boolean isValid() {
         int numberOfNonInternalFields = names().length();
 
@@ -95,9 +99,7 @@ public class Child extends BaseModel {
     private List<BaseModel> getMatchesByConfirmationStatus(PotentialMatchRepository potentialMatchRepo, EnquiryRepository enquiryRepository, boolean status) {
         List<BaseModel> models = new ArrayList<BaseModel>();
         try {
-            List<PotentialMatch> matches = potentialMatchRepo.getPotentialMatchesFor(this);
-            Collection<PotentialMatch> potentialMatches = Collections2.filter(matches, new PotentialMatch.FilterByConfirmationStatus(status));
-            models.addAll(enquiryRepository.getAllWithInternalIds(idsFromMatches(potentialMatches)));
+            models.addAll(potentialMatchRepo.getMatchedEnquiries(this, status, 0, PotentialMatchRepository.NO_LIMIT));
             return models;
         } catch (JSONException exception) {
             return new ArrayList<BaseModel>();
@@ -2,10 +2,10 @@ package com.rapidftr.model;
 
 import android.database.Cursor;
 import com.google.common.base.Function;
-import com.google.common.collect.Collections2;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.rapidftr.database.Database;
+import com.rapidftr.database.RecordContent;
 import com.rapidftr.repository.ChildRepository;
 import com.rapidftr.repository.EnquiryRepository;
 import com.rapidftr.repository.PotentialMatchRepository;
@@ -37,7 +37,7 @@ public class Enquiry extends BaseModel {
     }
 
     public Enquiry(Cursor cursor) throws JSONException {
-        super(cursor.getString(cursor.getColumnIndex(content.getColumnName())));
+        super(RecordContent.readObject(cursor, cursor.getColumnIndex(content.getColumnName())));
 
         for (Database.EnquiryTableColumn column : Database.EnquiryTableColumn.values()) {
             final int columnIndex = cursor.getColumnIndex(column.getColumnName());
@@ -57,6 +57,10 @@ public class Enquiry extends BaseModel {
         setHistories();
     }
 
+    public Enquiry(JSONObject values) throws JSONException {
+        super(values);
+    }
+
     public boolean isValid() {
         int numberOfInternalFields = names().length();
 
@@ -96,9 +100,7 @@ public class Enquiry extends BaseModel {
     private List<BaseModel> getMatchesByConfirmationStatus(PotentialMatchRepository potentialMatchRepo, ChildRepository childRepository, boolean status) {
         List<BaseModel> models = new ArrayList<BaseModel>();
         try {
-            List<PotentialMatch> matches = potentialMatchRepo.getPotentialMatchesFor(this);
-            Collection<PotentialMatch> potentialMatches = Collections2.filter(matches, new PotentialMatch.FilterByConfirmationStatus(status));
-            models.addAll(childRepository.getAllWithInternalIds(idsFromMatches(potentialMatches)));
+            models.addAll(potentialMatchRepo.getMatchedChildren(this, status, 0, PotentialMatchRepository.NO_LIMIT));
             return models;
         } catch (JSONException exception) {
             return new ArrayList<BaseModel>();
@@ -40,12 +40,15 @@ public class History extends JSONObject implements Parcelable {
     }
 
     public static History buildHistoryBetween(RapidFtrApplication rapidFtrApplication, BaseModel originalModel, BaseModel updatedModel) throws JSONException {
+        return buildHistoryBetween(rapidFtrApplication.getCurrentUser(), originalModel, updatedModel);
+    }
+
+    public static History buildHistoryBetween(User user, BaseModel originalModel, BaseModel updatedModel) throws JSONException {
         History history = new History();
         addChangesForOldValues(originalModel, updatedModel, history);
         addChangesForNewValues(originalModel, updatedModel, history);
-        User currentUser = rapidFtrApplication.getCurrentUser();
-        String organisation = currentUser.getOrganisation();
-        String userName = currentUser.getUserName();
+        String organisation = user.getOrganisation();
+        String userName = user.getUserName();
         history.put(History.USER_NAME, userName);
         history.put(History.USER_ORGANISATION, organisation);
         history.put(History.DATETIME, RapidFtrDateTime.now().defaultFormat());
@@ -1,6 +1,5 @@
 package com.rapidftr.model;
 
-import com.google.common.base.Predicate;
 import org.json.JSONException;
 
 public class PotentialMatch extends BaseModel {
@@ -30,9 +29,13 @@ public class PotentialMatch extends BaseModel {
     }
 
     public PotentialMatch(String enquiryId, String childId, String uniqueIdentifier, Boolean isConfirmed) {
+        this(enquiryId, childId, uniqueIdentifier, isConfirmed ? PotentialMatchStatus.CONFIRMED : PotentialMatchStatus.POTENTIAL);
+    }
+
+    public PotentialMatch(String enquiryId, String childId, String uniqueIdentifier, PotentialMatchStatus status) {
         this(enquiryId, childId, uniqueIdentifier);
 
-        this.put(STATUS_FIELD, isConfirmed ? PotentialMatchStatus.CONFIRMED.name() : PotentialMatchStatus.POTENTIAL.name());
+        this.put(STATUS_FIELD, status.name());
     }
 
     public String getChildId() {
@@ -61,24 +64,15 @@ public class PotentialMatch extends BaseModel {
         return "potential_match";
     }
 
-    public Boolean isConfirmed() {
-        return PotentialMatchStatus.valueOf(getString(STATUS_FIELD)) == PotentialMatchStatus.CONFIRMED;
+    public PotentialMatchStatus getStatus() {
+        return PotentialMatchStatus.valueOf(getString(STATUS_FIELD));
     }
 
-    public Boolean isDeleted() {
-        return PotentialMatchStatus.valueOf(getString(STATUS_FIELD)) == PotentialMatchStatus.DELETED;
+    public Boolean isConfirmed() {
+        return getStatus() == PotentialMatchStatus.CONFIRMED;
     }
 
-    public static class FilterByConfirmationStatus implements Predicate<PotentialMatch> {
-        private Boolean keepConfirmedMatches;
-
-        public FilterByConfirmationStatus(Boolean keepConfirmedMatches) {
-            this.keepConfirmedMatches = keepConfirmedMatches;
-        }
-
-        @Override
-        public boolean apply(PotentialMatch potentialMatch) {
-            return potentialMatch.isConfirmed() == keepConfirmedMatches;
-        }
+    public Boolean isDeleted() {
+        return getStatus() == PotentialMatchStatus.DELETED;
     }
 }
@@ -0,0 +1,37 @@
+package com.rapidftr.model;
+
+import com.rapidftr.forms.FormField;
+import org.json.JSONException;
+
+import java.util.List;
+
+import static com.rapidftr.database.Database.ChildTableColumn.created_at;
+
+/*
+ * The handful of values a list row shows for a child or enquiry: its id, title and highlighted fields and
+ * the photo used for the thumbnail. Kept next to the full record so list screens never parse the whole record.
+ */
+public class RecordSummary extends BaseModel {
+
+    public static final String CURRENT_PHOTO_KEY = "current_photo_key";
+
+    public RecordSummary(String content) throws JSONException {
+        super(content);
+    }
+
+    private RecordSummary() {
+        super();
+    }
+
+    public static RecordSummary summarise(BaseModel record, List<FormField> summaryFields) throws JSONException {
+        RecordSummary summary = new RecordSummary();
+        summary.setUniqueId(record.getUniqueId());
+        summary.setSynced(record.isSynced());
+        summary.put(created_at.getColumnName(), record.opt(created_at.getColumnName()));
+        summary.put(CURRENT_PHOTO_KEY, record.opt(CURRENT_PHOTO_KEY));
+        for (FormField field : summaryFields) {
+            summary.put(field.getId(), record.opt(field.getId()));
+        }
+        return summary;
+    }
+}
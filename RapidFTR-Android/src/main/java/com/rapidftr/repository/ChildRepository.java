@@ -2,15 +2,19 @@ package com.rapidftr.repository;
 
 import android.content.ContentValues;
 import android.database.Cursor;
-import android.util.Log;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 import com.rapidftr.RapidFtrApplication;
 import com.rapidftr.adapter.pagination.ViewAllChildrenPaginatedScrollListener;
+import com.rapidftr.database.ChildArchive;
 import com.rapidftr.database.Database;
 import com.rapidftr.database.DatabaseSession;
+import com.rapidftr.database.RecordCache;
+import com.rapidftr.database.RecordContent;
+import com.rapidftr.database.RecordWriteQueue;
 import com.rapidftr.model.Child;
 import com.rapidftr.model.History;
+import com.rapidftr.model.RecordSummary;
 import com.rapidftr.model.User;
 import com.rapidftr.utils.RapidFtrDateTime;
 import lombok.Cleanup;
@@ -20,71 +24,207 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.rapidftr.database.Database.BooleanColumn;
 import static com.rapidftr.database.Database.BooleanColumn.falseValue;
 import static com.rapidftr.database.Database.ChildTableColumn.*;
+import static com.rapidftr.database.DatabaseStatements.execute;
+import static com.rapidftr.database.DatabaseStatements.queryForLong;
+import static com.rapidftr.database.DatabaseStatements.replace;
 
 public class ChildRepository implements Repository<Child> {
 
     protected final String userName;
     protected final DatabaseSession session;
-    private PaginatedSearchQueryBuilder paginatedSearchQueryBuilder;
     private RapidFtrApplication applicationInstance;
+    private final RecordSummaryStore summaries;
+    private final RecordSearchIndex searchIndex;
+    private final HistoryStore histories;
+    private final ChildArchive archive;
+    private final RecordSearchIndex archivedSearchIndex;
+    private final RecordNameIndex nameIndex;
+    private final RecordNameIndex archivedNameIndex;
+    private final PagedRecordStream.RowReader<Child> rowReader = new PagedRecordStream.RowReader<Child>() {
+        @Override
+        public Child read(Cursor cursor) throws JSONException {
+            return childFrom(cursor);
+        }
+    };
+    private final RecordLookup.CacheReader<Child> cacheReader = new RecordLookup.CacheReader<Child>() {
+        @Override
+        public Child read(RecordCache.Entry entry) throws JSONException {
+            return new Child(entry.getContent(), entry.isSynced());
+        }
+    };
+    private final QueuedRecords.View<Child, RecordSummary> summaryView = new QueuedRecords.View<Child, RecordSummary>() {
+        @Override
+        public RecordSummary of(Child child) throws JSONException {
+            return summaries.summarise(child);
+        }
+    };
+    private final RecordCache cache;
+    private final RecordStats stats;
+    private final RecordWriteQueue<Child> writes;
+    private final RecordBatchWriter<Child> batches;
 
     @Inject
     public ChildRepository(@Named("USER_NAME") String userName, DatabaseSession session, RapidFtrApplication applicationInstance) {
         this.userName = userName;
         this.session = session;
         this.applicationInstance = applicationInstance;
+        this.summaries = new RecordSummaryStore(session, applicationInstance, Child.CHILD_FORM_NAME,
+                Database.child, content.getColumnName(), owner.getColumnName(), Database.child_summary);
+        this.searchIndex = new RecordSearchIndex(session, summaries,
+                Database.child, content.getColumnName(), owner.getColumnName(), Database.child_search);
+        this.histories = new HistoryStore(session, Database.child, owner.getColumnName());
+        this.archive = new ChildArchive(session);
+        this.archivedSearchIndex = new RecordSearchIndex(session, summaries,
+                Database.archived_child, content.getColumnName(), owner.getColumnName(), Database.archived_child_search);
+        this.nameIndex = new RecordNameIndex(session, Database.child, content.getColumnName(), owner.getColumnName(),
+                Database.child_name, RecordNameIndex.Encoding.DOUBLE_METAPHONE);
+        this.archivedNameIndex = new RecordNameIndex(session, Database.archived_child, content.getColumnName(),
+                owner.getColumnName(), Database.archived_child_name, RecordNameIndex.Encoding.DOUBLE_METAPHONE);
+        this.cache = session.getRecordCache(Database.child);
+        this.batches = new RecordBatchWriter<Child>(session, cache);
+        this.stats = new RecordStats(session);
+        this.writes = session.getWriteQueues().forTable(Database.child, writer(userName, applicationInstance));
+    }
+
+    // Histories name the user logged in when the queue was made, who may have logged out by the time a write runs
+    private static RecordWriteQueue.Writer<Child> writer(final String userName, final RapidFtrApplication application) {
+        final User user = application.getCurrentUser();
+        return new RecordWriteQueue.Writer<Child>() {
+            @Override
+            public Child copy(Child child) throws JSONException {
+                return new Child(child, child.isSynced());
+            }
+
+            @Override
+            public void write(DatabaseSession session, Child child) throws JSONException {
+                new ChildRepository(userName, session, application).createOrUpdate(child, user);
+            }
+        };
+    }
+
+    // Returns as soon as the child is queued, see RecordWriteQueue
+    public void createOrUpdateLater(Child child, RecordWriteQueue.FailureListener<Child> listener) throws JSONException {
+        writes.save(child, listener);
     }
 
     @Override
     public Child get(String id) throws JSONException {
-        @Cleanup Cursor cursor = session.rawQuery("SELECT child_json, synced FROM children WHERE id = ?", new String[]{id});
-        if (cursor.moveToNext()) {
-            return childFrom(cursor);
-        } else {
+        Child child = writes.get(id);
+        if (child == null) {
+            child = find(id);
+        }
+        if (child == null) {
             throw new NullPointerException(id);
         }
+        return child;
+    }
+
+    private Child find(String id) throws JSONException {
+        RecordCache.Entry cached = cache.getByUniqueId(id);
+        if (cached != null) {
+            return cacheReader.read(cached);
+        }
+        long generation = cache.getGeneration();
+        Child child = findIn(Database.child, id);
+        if (child == null) {
+            child = findIn(Database.archived_child, id);
+        }
+        if (child != null) {
+            cache.put(generation, RecordLookup.cacheEntry(child));
+        }
+        return child;
+    }
+
+    private Child findIn(Database table, String id) throws JSONException {
+        @Cleanup Cursor cursor = session.rawQuery("SELECT child_json, synced FROM " + table.getTableName() + " WHERE id = ?",
+                new String[]{id == null ? "" : id});
+        return cursor.moveToNext() ? childFrom(cursor) : null;
     }
 
     @Override
     public boolean exists(String childId) {
-        @Cleanup Cursor cursor = session.rawQuery("SELECT child_json FROM children WHERE id = ?", new String[]{childId == null ? "" : childId});
-        return cursor.moveToNext() && cursor.getCount() > 0;
+        return writes.isPending(childId) || isStored(childId);
+    }
+
+    private boolean isStored(String childId) {
+        String id = childId == null ? "" : childId;
+        return queryForLong(session, "SELECT COUNT(1) FROM children WHERE id = ?", id) > 0
+                || queryForLong(session, "SELECT COUNT(1) FROM archived_children WHERE id = ?", id) > 0;
     }
 
+    // The children the list pages through; archived ones are only found by get and search. A queued save of an
+    // archived child brings it back into the list.
     @Override
     public int size() {
-        @Cleanup Cursor cursor = session.rawQuery("SELECT COUNT(1) FROM children WHERE child_owner = ?", new String[]{userName});
-        return cursor.moveToNext() ? cursor.getInt(0) : 0;
+        try {
+            QueuedRecords<Child> queued = queued();
+            int size = stats.countByOwner(Database.child, userName);
+            for (Child child : queued.ownedBy(userName)) {
+                if (queryForLong(session, "SELECT COUNT(1) FROM children WHERE id = ?", child.getUniqueId()) == 0) {
+                    size++;
+                }
+            }
+            return size;
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Taken before the query it is laid over, see QueuedRecords
+    private QueuedRecords<Child> queued() throws JSONException {
+        return new QueuedRecords<Child>(writes.getPending());
     }
 
     @Override
-    public List<Child> getRecordsBetween(int fromPageNumber, int pageNumber) throws JSONException {
-        String sql = String.format(
-                "SELECT child_json, synced FROM children WHERE child_owner='%s' ORDER BY id LIMIT %d OFFSET %d",
-                userName, pageNumber - fromPageNumber, fromPageNumber);
-        Log.d("QUERY LIMIT", String.format(sql));
-        @Cleanup Cursor cursor = session.rawQuery(sql, null);
-        return toChildren(cursor);
+    public List<Child> getRecordsAfter(String lastRecordId) throws JSONException {
+        if (lastRecordId == null) {
+            return getRecordsForFirstPage();
+        }
+        QueuedRecords<Child> queued = queued();
+        String sql = "SELECT child_json, synced FROM children WHERE child_owner = ? AND id > ? ORDER BY id LIMIT "
+                + ViewAllChildrenPaginatedScrollListener.DEFAULT_PAGE_SIZE;
+        @Cleanup Cursor cursor = session.rawQuery(sql, new String[]{userName, lastRecordId});
+        return queued.overPage(toChildren(cursor), userName, lastRecordId,
+                ViewAllChildrenPaginatedScrollListener.DEFAULT_PAGE_SIZE, QueuedRecords.<Child>asQueued());
+    }
+
+    public List<RecordSummary> getSummariesForFirstPage() throws JSONException {
+        return getSummariesAfter(null);
+    }
+
+    public List<RecordSummary> getSummariesAfter(String lastRecordId) throws JSONException {
+        QueuedRecords<Child> queued = queued();
+        return queued.overPage(summaries.getSummariesAfter(userName, lastRecordId), userName, lastRecordId,
+                ViewAllChildrenPaginatedScrollListener.DEFAULT_PAGE_SIZE, summaryView);
     }
 
     @Override
     public List<Child> allCreatedByCurrentUser() throws JSONException { return new ArrayList<Child>(); }
 
+    @Override
+    public RecordStream<Child> streamAllCreatedByCurrentUser() {
+        writes.awaitWritten();
+        return streamWhere("child_owner = ?", userName);
+    }
+
     @Override
     public List<Child> getRecordsForFirstPage() throws JSONException {
-        String sql = String.format(
-                "SELECT child_json, synced FROM children WHERE child_owner='%s' ORDER BY id LIMIT %d",
-                userName, ViewAllChildrenPaginatedScrollListener.FIRST_PAGE);
-        @Cleanup Cursor cursor = session.rawQuery(sql, null);
-        return toChildren(cursor);
+        QueuedRecords<Child> queued = queued();
+        String sql = "SELECT child_json, synced FROM children WHERE child_owner = ? ORDER BY id LIMIT "
+                + ViewAllChildrenPaginatedScrollListener.FIRST_PAGE;
+        @Cleanup Cursor cursor = session.rawQuery(sql, new String[]{userName});
+        return queued.overPage(toChildren(cursor), userName, null,
+                ViewAllChildrenPaginatedScrollListener.FIRST_PAGE, QueuedRecords.<Child>asQueued());
     }
 
     @Override
     public ArrayList<String> getRecordIdsByOwner() throws JSONException {
+        writes.awaitWritten();
         ArrayList<String> ids = new ArrayList<String>();
         @Cleanup Cursor cursor = session.rawQuery("SELECT _id FROM children WHERE child_owner = ? ", new String[]{userName});
         while (cursor.moveToNext()) {
@@ -94,32 +234,86 @@ public class ChildRepository implements Repository<Child> {
     }
 
     public void deleteChildrenByOwner() throws JSONException {
-        session.execSQL("DELETE FROM children WHERE child_owner = '" + userName + "';");
+        writes.awaitWritten();
+        summaries.deleteByOwner(userName);
+        searchIndex.deleteByOwner(userName);
+        nameIndex.deleteByOwner(userName);
+        histories.deleteByOwner(userName);
+        archive.deleteByOwner(userName);
+        execute(session, "DELETE FROM children WHERE child_owner = ?", userName);
+        cache.invalidateAll();
     }
 
     @Override
     public void createOrUpdate(Child child) throws JSONException {
-        if (exists(child.getUniqueId())) {
-            Child existingChild = get(child.getUniqueId());
-            child.addHistory(History.buildHistoryBetween(applicationInstance, existingChild, child));
-        } else {
-            User currentUser = applicationInstance.getCurrentUser();
-            child.addHistory(History.buildCreationHistory(child, currentUser));
+        createOrUpdate(child, applicationInstance.getCurrentUser());
+    }
+
+    // Reads the stored version once and writes the new one in the same transaction, so the history is never built
+    // against a version another writer has already replaced
+    public void createOrUpdate(Child child, User user) throws JSONException {
+        writes.awaitWritten();
+        session.beginTransaction();
+        try {
+            Child existingChild = find(child.getUniqueId());
+            History history;
+            if (existingChild != null) {
+                history = History.buildHistoryBetween(user, existingChild, child);
+            } else {
+                history = History.buildCreationHistory(child, user);
+            }
+            child.setLastUpdatedAt(getTimeStamp());
+            createOrUpdateWithoutHistory(child);
+            histories.add(child.getUniqueId(), history);
+            session.setTransactionSuccessful();
+        } finally {
+            session.endTransaction();
+            cache.invalidate(child.getUniqueId());
         }
-        child.setLastUpdatedAt(getTimeStamp());
-        createOrUpdateWithoutHistory(child);
     }
 
     @Override
     public void createOrUpdateWithoutHistory(Child child) throws JSONException {
+        writes.awaitWritten();
+        // Evicted before the write and again once it is committed, so no read in between can cache the old version
+        cache.invalidate(child.getUniqueId());
+        session.beginTransaction();
+        try {
+            histories.moveFrom(child);
+            save(child);
+            session.setTransactionSuccessful();
+        } finally {
+            session.endTransaction();
+            cache.invalidate(child.getUniqueId());
+        }
+    }
+
+    private void save(Child child) throws JSONException {
         ContentValues values = new ContentValues();
         values.put(Database.ChildTableColumn.owner.getColumnName(), child.getCreatedBy());
         values.put(id.getColumnName(), child.getUniqueId());
-        values.put(content.getColumnName(), child.getJsonString());
+        RecordContent.put(values, content.getColumnName(), child, session.getContentFormat());
         values.put(synced.getColumnName(), child.isSynced());
         values.put(created_at.getColumnName(), child.getCreatedAt());
+        values.put(touched_at.getColumnName(), System.currentTimeMillis());
         populateInternalColumns(child, values);
-        session.replaceOrThrow(Database.child.getTableName(), null, values);
+        archive.remove(child.getUniqueId());
+        searchIndex.remove(child.getUniqueId());
+        nameIndex.remove(child.getUniqueId());
+        long rowId = replace(session, Database.child.getTableName(), values);
+        summaries.save(child);
+        searchIndex.add(child, rowId);
+        nameIndex.add(child, rowId);
+    }
+
+    @Override
+    public void createOrUpdateAllWithoutHistory(Iterable<Child> children) throws JSONException {
+        writes.awaitWritten();
+        batches.writeAll(children, this);
+    }
+
+    public void setBatchSize(int batchSize) {
+        batches.setBatchSize(batchSize);
     }
 
     private void populateInternalColumns(Child child, ContentValues values) {
@@ -129,29 +323,65 @@ public class ChildRepository implements Repository<Child> {
 
     @Override
     public List<Child> toBeSynced() throws JSONException {
+        writes.awaitWritten();
         @Cleanup Cursor cursor = session.rawQuery("SELECT child_json, synced FROM children WHERE synced = ?", new String[]{falseValue.getColumnValue()});
         return toChildren(cursor);
     }
 
+    @Override
+    public RecordStream<Child> streamToBeSynced() {
+        writes.awaitWritten();
+        return streamWhere("synced = ?", falseValue.getColumnValue());
+    }
+
     @Override
     public List<Child> currentUsersUnsyncedRecords() throws JSONException {
+        writes.awaitWritten();
         @Cleanup Cursor cursor = session.rawQuery("SELECT child_json, synced FROM children WHERE synced = ? AND child_owner = ?", new String[]{falseValue.getColumnValue(), userName});
         return toChildren(cursor);
     }
 
+    @Override
+    public RecordStream<Child> streamCurrentUsersUnsyncedRecords() {
+        writes.awaitWritten();
+        return streamWhere("synced = ? AND child_owner = ?", falseValue.getColumnValue(), userName);
+    }
+
+    private RecordStream<Child> streamWhere(String condition, String... conditionArgs) {
+        return new PagedRecordStream<Child>(session, Database.child.getTableName(), "child_json, synced",
+                condition, conditionArgs, rowReader);
+    }
+
+    // Archived children included, or sync would download them again
     @Override // TODO remove this method - we no longer want to work out what to updateWithoutHistory by comparing _revs
     public HashMap<String, String> getAllIdsAndRevs() throws JSONException {
+        writes.awaitWritten();
         HashMap<String, String> idRevs = new HashMap<String, String>();
-        @Cleanup Cursor cursor = session.rawQuery("SELECT "
-                + Database.ChildTableColumn.internal_id.getColumnName() + ", "
-                + Database.ChildTableColumn.internal_rev.getColumnName()
-                + " FROM " + Database.child.getTableName(), null);
+        String columns = "SELECT " + Database.ChildTableColumn.internal_id.getColumnName() + ", "
+                + Database.ChildTableColumn.internal_rev.getColumnName();
+        @Cleanup Cursor cursor = session.rawQuery(columns + " FROM " + Database.child.getTableName()
+                + " UNION ALL " + columns + " FROM " + Database.archived_child.getTableName(), null);
         while (cursor.moveToNext()) {
             idRevs.put(cursor.getString(0), cursor.getString(1));
         }
         return idRevs;
     }
 
+    @Override
+    public List<History> getHistories(String childId) throws JSONException {
+        return histories.load(childId);
+    }
+
+    @Override
+    public List<History> getUnsyncedHistories(String childId) throws JSONException {
+        return histories.loadUnsynced(childId);
+    }
+
+    @Override
+    public void markHistoriesSynced(String childId, int count) {
+        histories.markOldestSynced(childId, count);
+    }
+
     @Override
     public void close() {
         try {
@@ -173,7 +403,7 @@ public class ChildRepository implements Repository<Child> {
         int contentColumnIndex = cursor.getColumnIndex(content.getColumnName());
         int syncedColumnIndex = cursor.getColumnIndex(synced.getColumnName());
 
-        return new Child(cursor.getString(contentColumnIndex), BooleanColumn.from(cursor.getString(syncedColumnIndex)).toBoolean());
+        return new Child(RecordContent.readObject(cursor, contentColumnIndex), BooleanColumn.from(cursor.getString(syncedColumnIndex)).toBoolean());
     }
 
     protected String getTimeStamp() {
@@ -181,36 +411,96 @@ public class ChildRepository implements Repository<Child> {
     }
 
     public List<Child> getChildrenByIds(ArrayList<String> listOfIds) throws JSONException {
+        QueuedRecords<Child> queued = queued();
+        Map<String, Child> childrenById = lookupBy(id.getColumnName(), false).findByKey(listOfIds);
         ArrayList<Child> children = new ArrayList<Child>();
         for (String childId : listOfIds) {
-            children.add(get(childId));
+            Child child = queued.contains(childId) ? queued.get(childId) : childrenById.get(childId);
+            if (child == null) {
+                throw new NullPointerException(childId);
+            }
+            children.add(child);
         }
         return children;
     }
 
     public List<Child> getAllWithInternalIds(List<String> internalIds) throws JSONException {
-        List<Child> children = new ArrayList<Child>();
-        for (String internalId : internalIds) {
-            @Cleanup Cursor cursor = session.rawQuery("SELECT child_json, synced FROM children WHERE _id = ?", new String[]{internalId});
-            if (cursor.moveToNext())
-                children.add(childFrom(cursor));
+        writes.awaitWritten();
+        return lookupBy(internal_id.getColumnName(), true).findAll(internalIds);
+    }
+
+    private RecordLookup<Child> lookupBy(String keyColumn, boolean keyIsInternalId) {
+        RecordLookup<Child> archived = new RecordLookup<Child>(session, Database.archived_child.getTableName(),
+                "child_json, synced", keyColumn, rowReader).cachedIn(cache, keyIsInternalId, cacheReader);
+        return new RecordLookup<Child>(session, Database.child.getTableName(), "child_json, synced", keyColumn, rowReader)
+                .cachedIn(cache, keyIsInternalId, cacheReader)
+                .fallingBackTo(archived);
+    }
+
+    // The next page of the search after the position, which is moved to the end of the page
+    public List<Child> getChildrenMatchingString(final String searchKey, SearchPosition position) throws JSONException {
+        String matchExpression = RecordSearchIndex.matchExpression(searchKey);
+        if (matchExpression == null) {
+            position.moveToEnd();
+            return new ArrayList<Child>();
         }
-        return children;
+        String ownerFilter = applicationInstance.getCurrentUser().isVerified() ? null : userName;
+        QueuedRecords<Child> queued = queued();
+        boolean firstPage = !position.isStarted();
+        List<Child> stored = childrenAt(Database.child, searchIndex.search(matchExpression, ownerFilter, position));
+        return queued.overSearchPage(stored, ownerFilter, position, firstPage, new QueuedRecords.Match<Child>() {
+            @Override
+            public boolean matches(Child child) throws JSONException {
+                return searchIndex.matches(child, searchKey);
+            }
+        });
     }
 
-    public List<Child> getFirstPageOfChildrenMatchingString(String searchKey) throws JSONException {
-        paginatedSearchQueryBuilder = new PaginatedSearchQueryBuilder(
-                applicationInstance, searchKey);
-        @Cleanup Cursor cursor = session.rawQuery(paginatedSearchQueryBuilder.queryForMatchingChildrenFirstPage(), null);
-        return toChildren(cursor);
+    // Only searched when asked for, see ChildSearch. A queued child is on its way out of the archive.
+    public List<Child> getArchivedChildrenMatchingString(String searchKey, SearchPosition position) throws JSONException {
+        String matchExpression = RecordSearchIndex.matchExpression(searchKey);
+        if (matchExpression == null) {
+            position.moveToEnd();
+            return new ArrayList<Child>();
+        }
+        String ownerFilter = applicationInstance.getCurrentUser().isVerified() ? null : userName;
+        QueuedRecords<Child> queued = queued();
+        return queued.without(childrenAt(Database.archived_child, archivedSearchIndex.search(matchExpression, ownerFilter, position)));
     }
 
-    public List<Child> getChildrenMatchingStringBetween(
-            String searchKey, int fromPageNumber, int toPageNumber) throws JSONException {
-        paginatedSearchQueryBuilder = new PaginatedSearchQueryBuilder(applicationInstance, searchKey);
-        Log.d("QUERY LIMIT", paginatedSearchQueryBuilder.queryForMatchingChildrenBetweenPages(fromPageNumber, toPageNumber));
-        @Cleanup Cursor cursor = session.rawQuery(paginatedSearchQueryBuilder.queryForMatchingChildrenBetweenPages(
-                fromPageNumber, toPageNumber), null);
+    // Children with names sounding like every word of the search key, however they were spelt, see RecordNameIndex
+    public List<Child> getChildrenWithNamesLike(final String searchKey, SearchPosition position) throws JSONException {
+        String ownerFilter = applicationInstance.getCurrentUser().isVerified() ? null : userName;
+        QueuedRecords<Child> queued = queued();
+        boolean firstPage = !position.isStarted();
+        List<Child> stored = childrenAt(Database.child, nameIndex.search(searchKey, ownerFilter, position));
+        return queued.overSearchPage(stored, ownerFilter, position, firstPage, new QueuedRecords.Match<Child>() {
+            @Override
+            public boolean matches(Child child) {
+                return nameIndex.matches(child, searchKey);
+            }
+        });
+    }
+
+    public List<Child> getArchivedChildrenWithNamesLike(String searchKey, SearchPosition position) throws JSONException {
+        String ownerFilter = applicationInstance.getCurrentUser().isVerified() ? null : userName;
+        QueuedRecords<Child> queued = queued();
+        return queued.without(childrenAt(Database.archived_child, archivedNameIndex.search(searchKey, ownerFilter, position)));
+    }
+
+    // Indexes the children written before the search and name indexes existed, see BackfillSearchIndexesTask
+    public void backfillSearchIndexes() throws JSONException {
+        searchIndex.backfill();
+        archivedSearchIndex.backfill();
+        nameIndex.backfill();
+        archivedNameIndex.backfill();
+    }
+
+    private List<Child> childrenAt(Database table, List<Long> rowIds) throws JSONException {
+        if (rowIds.isEmpty()) {
+            return new ArrayList<Child>();
+        }
+        @Cleanup Cursor cursor = RecordSearchIndex.read(session, table, rowIds);
         return toChildren(cursor);
     }
 }
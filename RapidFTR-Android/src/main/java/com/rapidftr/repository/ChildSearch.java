@@ -1,66 +1,90 @@
 package com.rapidftr.repository;
 
-import com.rapidftr.forms.FormField;
 import com.rapidftr.model.Child;
 import org.json.JSONException;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
+
+import static com.rapidftr.adapter.pagination.ViewAllChildrenPaginatedScrollListener.DEFAULT_PAGE_SIZE;
 
 public class ChildSearch {
 
     private final String searchKey;
     private final ChildRepository repository;
-    private final List<FormField> highlightedFields;
-    private Pattern pattern;
+    private final boolean includeArchived;
+    private final boolean similarNames;
+    private SearchPosition position;
+    private SearchPosition archivedPosition;
+    private List<Child> archivedWaiting;
+    private boolean archiveRead;
+    private boolean searchingArchive;
+    private boolean exhausted;
+
+    public ChildSearch(String searchKey, ChildRepository repository) {
+        this(searchKey, repository, false);
+    }
+
+    public ChildSearch(String searchKey, ChildRepository repository, boolean includeArchived) {
+        this(searchKey, repository, includeArchived, false);
+    }
 
-    public ChildSearch(String searchKey, ChildRepository repository, List<FormField> highlightedFields) {
+    // With similar names the search key is taken as names to look up by how they sound rather than as words to find
+    public ChildSearch(String searchKey, ChildRepository repository, boolean includeArchived, boolean similarNames) {
         this.searchKey = searchKey;
         this.repository = repository;
-        this.highlightedFields = highlightedFields;
-        this.pattern = buildPatternFromSearchString(searchKey);
+        this.includeArchived = includeArchived;
+        this.similarNames = similarNames;
     }
 
     public List<Child> getRecordsForFirstPage() throws JSONException {
-        List<Child> children = repository.getFirstPageOfChildrenMatchingString(searchKey);
-        return filterChildrenWithRegularExpression(children, highlightedFields);
+        position = new SearchPosition();
+        archivedPosition = new SearchPosition();
+        archivedWaiting = new ArrayList<Child>();
+        archiveRead = false;
+        searchingArchive = false;
+        exhausted = false;
+        return getRecordsForNextPage();
     }
 
-    public List<Child> getRecordsForNextPage(int currentPageNumber, int nextPageNumber) throws JSONException {
-        List<Child> children = repository.getChildrenMatchingStringBetween(searchKey, currentPageNumber, nextPageNumber);
-        return filterChildrenWithRegularExpression(children, highlightedFields);
+    // Once the database has no full page left there is nothing more to ask it for
+    public boolean hasMoreRecords() {
+        return !exhausted;
     }
 
-    private List<Child> filterChildrenWithRegularExpression(List<Child> childRecords,
-                                                            List<FormField> highlightedFields) throws JSONException {
-        List<Child> children = new ArrayList<Child>();
-
-        for(Child child: childRecords){
-            if (pattern.matcher(child.getShortId()).matches()) {
-                children.add(child);
-            } else {
-                for (FormField formField : highlightedFields) {
-                    boolean formFieldMatchesPattern = pattern.matcher(child.optString(formField.getId())).matches();
-                    if (!children.contains(child) && formFieldMatchesPattern) {
-                        children.add(child);
-                        break;
-                    }
-                }
+    // Archived children, when asked for, follow the children in use and top up the page where those run out
+    public List<Child> getRecordsForNextPage() throws JSONException {
+        List<Child> page = new ArrayList<Child>();
+        if (exhausted) {
+            return page;
+        }
+        if (!searchingArchive) {
+            List<Child> children = similarNames
+                    ? repository.getChildrenWithNamesLike(searchKey, position)
+                    : repository.getChildrenMatchingString(searchKey, position);
+            page.addAll(children);
+            if (!position.isAtEnd()) {
+                return page;
+            }
+            if (!includeArchived) {
+                exhausted = true;
+                return page;
             }
+            searchingArchive = true;
         }
-        return children;
-    }
 
-    private Pattern buildPatternFromSearchString(String searchString) {
-        String[] splitQuery = searchString.split("\\s+");
-        StringBuilder regexBuilder = new StringBuilder();
-        for (int i = 0; i < splitQuery.length; i++) {
-            regexBuilder.append(String.format(".*(%s)+.*", splitQuery[i]));
-            if ((i < splitQuery.length - 1)) {
-                regexBuilder.append("|");
-            }
+        int needed = DEFAULT_PAGE_SIZE - page.size();
+        if (archivedWaiting.size() < needed && !archiveRead) {
+            List<Child> archived = similarNames
+                    ? repository.getArchivedChildrenWithNamesLike(searchKey, archivedPosition)
+                    : repository.getArchivedChildrenMatchingString(searchKey, archivedPosition);
+            archivedWaiting.addAll(archived);
+            archiveRead = archivedPosition.isAtEnd();
         }
-        return Pattern.compile(regexBuilder.toString(), Pattern.CASE_INSENSITIVE);
+        List<Child> shown = archivedWaiting.subList(0, Math.min(archivedWaiting.size(), needed));
+        page.addAll(shown);
+        shown.clear();
+        exhausted = archiveRead && archivedWaiting.isEmpty();
+        return page;
     }
 }
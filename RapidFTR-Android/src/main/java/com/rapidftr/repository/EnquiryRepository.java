@@ -2,16 +2,19 @@ package com.rapidftr.repository;
 
 import android.content.ContentValues;
 import android.database.Cursor;
-import android.util.Log;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 import com.rapidftr.RapidFtrApplication;
 import com.rapidftr.adapter.pagination.ViewAllChildrenPaginatedScrollListener;
 import com.rapidftr.database.Database;
 import com.rapidftr.database.DatabaseSession;
+import com.rapidftr.database.RecordCache;
+import com.rapidftr.database.RecordContent;
+import com.rapidftr.database.RecordWriteQueue;
 import com.rapidftr.model.Child;
 import com.rapidftr.model.Enquiry;
 import com.rapidftr.model.History;
+import com.rapidftr.model.RecordSummary;
 import com.rapidftr.model.User;
 import com.rapidftr.utils.RapidFtrDateTime;
 import lombok.Cleanup;
@@ -26,36 +29,136 @@ import java.util.List;
 import static com.rapidftr.database.Database.BooleanColumn.falseValue;
 import static com.rapidftr.database.Database.EnquiryTableColumn.*;
 import static com.rapidftr.database.Database.enquiry;
+import static com.rapidftr.database.DatabaseStatements.queryForLong;
+import static com.rapidftr.database.DatabaseStatements.replace;
 
 public class EnquiryRepository implements Closeable, Repository<Enquiry> {
 
     private final String userName;
     private final DatabaseSession session;
     private final RapidFtrApplication applicationInstance;
+    private final RecordSummaryStore summaries;
+    private final RecordSearchIndex searchIndex;
+    private final RecordNameIndex nameIndex;
+    private final HistoryStore histories;
+    private final PagedRecordStream.RowReader<Enquiry> rowReader = new PagedRecordStream.RowReader<Enquiry>() {
+        @Override
+        public Enquiry read(Cursor cursor) throws JSONException {
+            return buildEnquiry(cursor);
+        }
+    };
+    private final RecordLookup.CacheReader<Enquiry> cacheReader = new RecordLookup.CacheReader<Enquiry>() {
+        @Override
+        public Enquiry read(RecordCache.Entry entry) throws JSONException {
+            return new Enquiry(entry.getContent());
+        }
+    };
+    private final QueuedRecords.View<Enquiry, RecordSummary> summaryView = new QueuedRecords.View<Enquiry, RecordSummary>() {
+        @Override
+        public RecordSummary of(Enquiry enquiry) throws JSONException {
+            return summaries.summarise(enquiry);
+        }
+    };
+    private final RecordCache cache;
+    private final RecordStats stats;
+    private final RecordWriteQueue<Enquiry> writes;
+    private final RecordBatchWriter<Enquiry> batches;
 
     @Inject
     public EnquiryRepository(@Named("USER_NAME") String userName, DatabaseSession session, RapidFtrApplication rapidFtrApplication) {
         this.userName = userName;
         this.session = session;
         this.applicationInstance = rapidFtrApplication;
+        this.summaries = new RecordSummaryStore(session, rapidFtrApplication, Enquiry.ENQUIRY_FORM_NAME,
+                enquiry, content.getColumnName(), created_by.getColumnName(), Database.enquiry_summary);
+        this.searchIndex = new RecordSearchIndex(session, summaries,
+                enquiry, content.getColumnName(), created_by.getColumnName(), Database.enquiry_search);
+        this.nameIndex = new RecordNameIndex(session, enquiry, content.getColumnName(), created_by.getColumnName(),
+                Database.enquiry_name, RecordNameIndex.Encoding.DOUBLE_METAPHONE);
+        this.histories = new HistoryStore(session, enquiry, created_by.getColumnName());
+        this.cache = session.getRecordCache(enquiry);
+        this.batches = new RecordBatchWriter<Enquiry>(session, cache);
+        this.stats = new RecordStats(session);
+        this.writes = session.getWriteQueues().forTable(enquiry, writer(userName, rapidFtrApplication));
+    }
+
+    // Histories name the user logged in when the queue was made, like ChildRepository's
+    private static RecordWriteQueue.Writer<Enquiry> writer(final String userName, final RapidFtrApplication application) {
+        final User user = application.getCurrentUser();
+        return new RecordWriteQueue.Writer<Enquiry>() {
+            @Override
+            public Enquiry copy(Enquiry enquiry) throws JSONException {
+                return new Enquiry(enquiry);
+            }
+
+            @Override
+            public void write(DatabaseSession session, Enquiry enquiry) throws JSONException {
+                new EnquiryRepository(userName, session, application).createOrUpdate(enquiry, user);
+            }
+        };
+    }
+
+    // Returns as soon as the enquiry is queued, see RecordWriteQueue
+    public void createOrUpdateLater(Enquiry enquiry, RecordWriteQueue.FailureListener<Enquiry> listener) throws JSONException {
+        writes.save(enquiry, listener);
     }
 
     @Override
     public void createOrUpdate(Enquiry enquiry) throws JSONException {
-        if (exists(enquiry.getUniqueId())) {
-            Enquiry existingEnquiry = get(enquiry.getUniqueId());
-            enquiry.addHistory(History.buildHistoryBetween(applicationInstance, existingEnquiry, enquiry));
-        } else {
-            User currentUser = RapidFtrApplication.getApplicationInstance().getCurrentUser();
-            enquiry.addHistory(History.buildCreationHistory(enquiry, currentUser));
+        createOrUpdate(enquiry, RapidFtrApplication.getApplicationInstance().getCurrentUser());
+    }
+
+    // Reads the stored version once and writes the new one in the same transaction, like ChildRepository does
+    public void createOrUpdate(Enquiry enquiry, User user) throws JSONException {
+        writes.awaitWritten();
+        session.beginTransaction();
+        try {
+            Enquiry existingEnquiry = find(enquiry.getUniqueId());
+            History history;
+            if (existingEnquiry != null) {
+                history = History.buildHistoryBetween(user, existingEnquiry, enquiry);
+            } else {
+                history = History.buildCreationHistory(enquiry, user);
+            }
+            enquiry.setLastUpdatedAt(RapidFtrDateTime.now().defaultFormat());
+            createOrUpdateWithoutHistory(enquiry);
+            histories.add(enquiry.getUniqueId(), history);
+            session.setTransactionSuccessful();
+        } finally {
+            session.endTransaction();
+            cache.invalidate(enquiry.getUniqueId());
         }
-        enquiry.setLastUpdatedAt(RapidFtrDateTime.now().defaultFormat());
-        createOrUpdateWithoutHistory(enquiry);
     }
 
     @Override
     public void createOrUpdateWithoutHistory(Enquiry enquiry) throws JSONException {
-        session.replaceOrThrow(Database.enquiry.getTableName(), null, getContentValuesFrom(enquiry));
+        writes.awaitWritten();
+        cache.invalidate(enquiry.getUniqueId());
+        session.beginTransaction();
+        try {
+            histories.moveFrom(enquiry);
+            ContentValues values = getContentValuesFrom(enquiry);
+            searchIndex.remove(enquiry.getUniqueId());
+            nameIndex.remove(enquiry.getUniqueId());
+            long rowId = replace(session, Database.enquiry.getTableName(), values);
+            summaries.save(enquiry);
+            searchIndex.add(enquiry, rowId);
+            nameIndex.add(enquiry, rowId);
+            session.setTransactionSuccessful();
+        } finally {
+            session.endTransaction();
+            cache.invalidate(enquiry.getUniqueId());
+        }
+    }
+
+    @Override
+    public void createOrUpdateAllWithoutHistory(Iterable<Enquiry> enquiries) throws JSONException {
+        writes.awaitWritten();
+        batches.writeAll(enquiries, this);
+    }
+
+    public void setBatchSize(int batchSize) {
+        batches.setBatchSize(batchSize);
     }
 
     protected ContentValues getContentValuesFrom(Enquiry enquiry) throws JSONException {
@@ -63,7 +166,7 @@ public class EnquiryRepository implements Closeable, Repository<Enquiry> {
 
         enquiryValues.put(id.getColumnName(), enquiry.getUniqueId());
         enquiryValues.put(created_by.getColumnName(), enquiry.getCreatedBy());
-        enquiryValues.put(content.getColumnName(), enquiry.getJsonString());
+        RecordContent.put(enquiryValues, content.getColumnName(), enquiry, session.getContentFormat());
         enquiryValues.put(created_at.getColumnName(), enquiry.getCreatedAt());
         enquiryValues.put(unique_identifier.getColumnName(), enquiry.getUniqueId());
         enquiryValues.put(synced.getColumnName(), enquiry.isSynced());
@@ -75,6 +178,7 @@ public class EnquiryRepository implements Closeable, Repository<Enquiry> {
 
     @Override
     public HashMap<String, String> getAllIdsAndRevs() throws JSONException {
+        writes.awaitWritten();
         HashMap<String, String> idRevs = new HashMap<String, String>();
         @Cleanup Cursor cursor = session.rawQuery("SELECT "
                 + internal_id.getColumnName() + ", "
@@ -87,15 +191,28 @@ public class EnquiryRepository implements Closeable, Repository<Enquiry> {
     }
 
     public List<Enquiry> allCreatedByCurrentUser() throws JSONException {
+        writes.awaitWritten();
         @Cleanup Cursor cursor = session.rawQuery("SELECT enquiry_json FROM enquiry WHERE created_by = ? ORDER BY id", new String[]{userName});
         return toEnquiries(cursor);
     }
 
+    @Override
+    public RecordStream<Enquiry> streamAllCreatedByCurrentUser() {
+        writes.awaitWritten();
+        return streamWhere("created_by = ?", userName);
+    }
+
     @Override
     public List<Enquiry> currentUsersUnsyncedRecords() throws JSONException {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public RecordStream<Enquiry> streamCurrentUsersUnsyncedRecords() {
+        writes.awaitWritten();
+        return streamWhere("synced = ? AND created_by = ?", falseValue.getColumnValue(), userName);
+    }
+
     @Override
     public List<String> getRecordIdsByOwner() throws JSONException {
         throw new UnsupportedOperationException();
@@ -103,21 +220,63 @@ public class EnquiryRepository implements Closeable, Repository<Enquiry> {
 
     @Override
     public List<Enquiry> toBeSynced() throws JSONException {
+        writes.awaitWritten();
         @Cleanup Cursor cursor = session.rawQuery("SELECT * FROM enquiry WHERE synced" +
                 " = ?", new String[]{falseValue.getColumnValue()});
         return toEnquiries(cursor);
     }
 
+    @Override
+    public RecordStream<Enquiry> streamToBeSynced() {
+        writes.awaitWritten();
+        return streamWhere("synced = ?", falseValue.getColumnValue());
+    }
+
+    private RecordStream<Enquiry> streamWhere(String condition, String... conditionArgs) {
+        return new PagedRecordStream<Enquiry>(session, enquiry.getTableName(), "*",
+                condition, conditionArgs, rowReader);
+    }
+
     @Override
     public boolean exists(String id) {
-        @Cleanup Cursor cursor = session.rawQuery("SELECT * FROM enquiry WHERE id = ?", new String[]{id == null ? "" : id});
-        return cursor.moveToNext() && cursor.getCount() > 0;
+        return writes.isPending(id)
+                || queryForLong(session, "SELECT COUNT(1) FROM enquiry WHERE id = ?", id == null ? "" : id) > 0;
     }
 
     @Override
     public int size() {
-        @Cleanup Cursor cursor = session.rawQuery("SELECT COUNT(1) FROM enquiry", new String[]{});
-        return cursor.moveToNext() ? cursor.getInt(0) : 0;
+        try {
+            QueuedRecords<Enquiry> queued = queued();
+            int size = stats.count(enquiry);
+            for (Enquiry queuedEnquiry : queued.ownedBy(null)) {
+                if (queryForLong(session, "SELECT COUNT(1) FROM enquiry WHERE id = ?", queuedEnquiry.getUniqueId()) == 0) {
+                    size++;
+                }
+            }
+            return size;
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Taken before the query it is laid over, see QueuedRecords
+    private QueuedRecords<Enquiry> queued() throws JSONException {
+        return new QueuedRecords<Enquiry>(writes.getPending());
+    }
+
+    @Override
+    public List<History> getHistories(String enquiryId) throws JSONException {
+        return histories.load(enquiryId);
+    }
+
+    @Override
+    public List<History> getUnsyncedHistories(String enquiryId) throws JSONException {
+        return histories.loadUnsynced(enquiryId);
+    }
+
+    @Override
+    public void markHistoriesSynced(String enquiryId, int count) {
+        histories.markOldestSynced(enquiryId, count);
     }
 
     @Override
@@ -130,6 +289,7 @@ public class EnquiryRepository implements Closeable, Repository<Enquiry> {
     }
 
     public List<Enquiry> all() throws JSONException {
+        writes.awaitWritten();
         @Cleanup Cursor cursor = session.rawQuery("SELECT * FROM enquiry", new String[]{});
         return toEnquiries(cursor);
     }
@@ -145,7 +305,7 @@ public class EnquiryRepository implements Closeable, Repository<Enquiry> {
     //TODO move this to the enquiry class
     private Enquiry buildEnquiry(Cursor cursor) throws JSONException {
         int contentColumnIndex = cursor.getColumnIndex(content.getColumnName());
-        Enquiry enquiry = new Enquiry(cursor.getString(contentColumnIndex));
+        Enquiry enquiry = new Enquiry(RecordContent.readObject(cursor, contentColumnIndex));
         for (Database.EnquiryTableColumn column : Database.EnquiryTableColumn.values()) {
             final int columnIndex = cursor.getColumnIndex(column.getColumnName());
 
@@ -162,18 +322,37 @@ public class EnquiryRepository implements Closeable, Repository<Enquiry> {
     }
 
     public Enquiry get(String enquiryId) throws JSONException {
-        @Cleanup Cursor cursor = session.rawQuery("SELECT * from enquiry where id = ?", new String[]{enquiryId});
-        if (cursor.moveToNext()) {
-            return new Enquiry(cursor);
-        } else {
+        Enquiry enquiry = writes.get(enquiryId);
+        if (enquiry == null) {
+            enquiry = find(enquiryId);
+        }
+        if (enquiry == null) {
             throw new NullPointerException(enquiryId);  //  I don't think it's cool to throw NullPointerExceptions - love John
         }
+        return enquiry;
+    }
+
+    private Enquiry find(String enquiryId) throws JSONException {
+        RecordCache.Entry cached = cache.getByUniqueId(enquiryId);
+        if (cached != null) {
+            return cacheReader.read(cached);
+        }
+        long generation = cache.getGeneration();
+        @Cleanup Cursor cursor = session.rawQuery("SELECT * from enquiry where id = ?", new String[]{enquiryId == null ? "" : enquiryId});
+        if (!cursor.moveToNext()) {
+            return null;
+        }
+        Enquiry enquiry = new Enquiry(cursor);
+        cache.put(generation, RecordLookup.cacheEntry(enquiry));
+        return enquiry;
     }
 
     public List<Enquiry> getAllWithInternalIds(List<String> ids) {
-        @Cleanup Cursor cursor = session.rawQuery(buildSelectAllQuery(ids), null);
+        writes.awaitWritten();
         try {
-            return toEnquiries(cursor);
+            return new RecordLookup<Enquiry>(session, enquiry.getTableName(), "*", internal_id.getColumnName(), rowReader)
+                    .cachedIn(cache, true, cacheReader)
+                    .findAll(ids);
         } catch (JSONException e) {
             return new ArrayList<Enquiry>();
         }
@@ -181,33 +360,81 @@ public class EnquiryRepository implements Closeable, Repository<Enquiry> {
 
     @Override
     public List<Enquiry> getRecordsForFirstPage() throws JSONException {
-        String sql = String.format(
-                "SELECT enquiry_json, synced FROM enquiry WHERE created_by ='%s' ORDER BY id LIMIT %d",
-                userName, ViewAllChildrenPaginatedScrollListener.FIRST_PAGE);
-        @Cleanup Cursor cursor = session.rawQuery(sql, null);
-        return toEnquiries(cursor);
+        QueuedRecords<Enquiry> queued = queued();
+        String sql = "SELECT enquiry_json, synced FROM enquiry WHERE created_by = ? ORDER BY id LIMIT "
+                + ViewAllChildrenPaginatedScrollListener.FIRST_PAGE;
+        @Cleanup Cursor cursor = session.rawQuery(sql, new String[]{userName});
+        return queued.overPage(toEnquiries(cursor), userName, null,
+                ViewAllChildrenPaginatedScrollListener.FIRST_PAGE, QueuedRecords.<Enquiry>asQueued());
     }
 
     @Override
-    public List<Enquiry> getRecordsBetween(int fromPageNumber, int pageNumber) throws JSONException {
-        String sql = String.format(
-                "SELECT enquiry_json, synced FROM enquiry WHERE created_by='%s' ORDER BY id LIMIT %d OFFSET %d",
-                userName, pageNumber - fromPageNumber, pageNumber);
-        Log.d("QUERY LIMIT", sql);
-        @Cleanup Cursor cursor = session.rawQuery(sql, null);
-        return toEnquiries(cursor);
+    public List<Enquiry> getRecordsAfter(String lastRecordId) throws JSONException {
+        if (lastRecordId == null) {
+            return getRecordsForFirstPage();
+        }
+        QueuedRecords<Enquiry> queued = queued();
+        String sql = "SELECT enquiry_json, synced FROM enquiry WHERE created_by = ? AND id > ? ORDER BY id LIMIT "
+                + ViewAllChildrenPaginatedScrollListener.DEFAULT_PAGE_SIZE;
+        @Cleanup Cursor cursor = session.rawQuery(sql, new String[]{userName, lastRecordId});
+        return queued.overPage(toEnquiries(cursor), userName, lastRecordId,
+                ViewAllChildrenPaginatedScrollListener.DEFAULT_PAGE_SIZE, QueuedRecords.<Enquiry>asQueued());
+    }
+
+    public List<RecordSummary> getSummariesForFirstPage() throws JSONException {
+        return getSummariesAfter(null);
+    }
+
+    public List<RecordSummary> getSummariesAfter(String lastRecordId) throws JSONException {
+        QueuedRecords<Enquiry> queued = queued();
+        return queued.overPage(summaries.getSummariesAfter(userName, lastRecordId), userName, lastRecordId,
+                ViewAllChildrenPaginatedScrollListener.DEFAULT_PAGE_SIZE, summaryView);
+    }
+
+    // The next page of the search after the position, which is moved to the end of the page
+    public List<Enquiry> getEnquiriesMatchingString(final String searchKey, SearchPosition position) throws JSONException {
+        String matchExpression = RecordSearchIndex.matchExpression(searchKey);
+        if (matchExpression == null) {
+            position.moveToEnd();
+            return new ArrayList<Enquiry>();
+        }
+        String ownerFilter = applicationInstance.getCurrentUser().isVerified() ? null : userName;
+        QueuedRecords<Enquiry> queued = queued();
+        boolean firstPage = !position.isStarted();
+        List<Enquiry> stored = enquiriesAt(searchIndex.search(matchExpression, ownerFilter, position));
+        return queued.overSearchPage(stored, ownerFilter, position, firstPage, new QueuedRecords.Match<Enquiry>() {
+            @Override
+            public boolean matches(Enquiry enquiry) throws JSONException {
+                return searchIndex.matches(enquiry, searchKey);
+            }
+        });
     }
 
-    private String buildSelectAllQuery(List<String> ids) {
-        StringBuilder queryBuilder = new StringBuilder();
-        queryBuilder.append("SELECT * from enquiry where _id in (");
-        for(int i = 0; i < ids.size(); i++) {
-            queryBuilder.append("'" + ids.get(i) + "'");
-            if(i < ids.size() - 1) {
-                queryBuilder.append(",");
+    // Enquiries with names sounding like every word of the search key, however they were spelt, see RecordNameIndex
+    public List<Enquiry> getEnquiriesWithNamesLike(final String searchKey, SearchPosition position) throws JSONException {
+        String ownerFilter = applicationInstance.getCurrentUser().isVerified() ? null : userName;
+        QueuedRecords<Enquiry> queued = queued();
+        boolean firstPage = !position.isStarted();
+        List<Enquiry> stored = enquiriesAt(nameIndex.search(searchKey, ownerFilter, position));
+        return queued.overSearchPage(stored, ownerFilter, position, firstPage, new QueuedRecords.Match<Enquiry>() {
+            @Override
+            public boolean matches(Enquiry enquiry) {
+                return nameIndex.matches(enquiry, searchKey);
             }
+        });
+    }
+
+    // Indexes the enquiries written before the search and name indexes existed, see BackfillSearchIndexesTask
+    public void backfillSearchIndexes() throws JSONException {
+        searchIndex.backfill();
+        nameIndex.backfill();
+    }
+
+    private List<Enquiry> enquiriesAt(List<Long> rowIds) throws JSONException {
+        if (rowIds.isEmpty()) {
+            return new ArrayList<Enquiry>();
         }
-        queryBuilder.append(")");
-        return queryBuilder.toString();
+        @Cleanup Cursor cursor = RecordSearchIndex.read(session, enquiry, rowIds);
+        return toEnquiries(cursor);
     }
 }
@@ -0,0 +1,104 @@
+package com.rapidftr.repository;
+
+import android.database.Cursor;
+import com.rapidftr.database.Database;
+import com.rapidftr.database.DatabaseSession;
+import com.rapidftr.model.BaseModel;
+import com.rapidftr.model.History;
+import lombok.Cleanup;
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.rapidftr.database.Database.HistoryTableColumn;
+import static com.rapidftr.database.DatabaseStatements.execute;
+
+/*
+ * Keeps the histories of a record table in the append-only history table, so saving a record never rewrites them.
+ * Only the sync reads them back, and it still sends them inside the record; no screen of the app shows a record's
+ * history.
+ * Rows are never removed for being sent: the sync marks the ones it sent as synced, and only those still unsynced are
+ * sent again.
+ */
+class HistoryStore {
+
+    private static final String TABLE = Database.history.getTableName();
+    private static final String ID = HistoryTableColumn.id.getColumnName();
+    private static final String RECORD_ID = HistoryTableColumn.record_id.getColumnName();
+    private static final String CONTENT = HistoryTableColumn.content.getColumnName();
+    private static final String SYNCED = HistoryTableColumn.synced.getColumnName();
+
+    private final DatabaseSession session;
+    private final Database recordTable;
+    private final String ownerColumn;
+
+    HistoryStore(DatabaseSession session, Database recordTable, String ownerColumn) {
+        this.session = session;
+        this.recordTable = recordTable;
+        this.ownerColumn = ownerColumn;
+    }
+
+    void add(String recordId, History history) throws JSONException {
+        if (history.has(History.CHANGES) && history.get(History.CHANGES) != null) {
+            insert(recordId, history.toString(), false);
+        }
+    }
+
+    // Takes the histories out of the record, so its stored content never carries them. Those of a synced record came
+    // from the server, which has every history sent to it, so they take the place of the ones already synced.
+    void moveFrom(BaseModel record) throws JSONException {
+        JSONArray histories = record.optJSONArray(History.HISTORIES);
+        record.remove(History.HISTORIES);
+        if (histories == null) {
+            return;
+        }
+        if (record.isSynced()) {
+            execute(session, "DELETE FROM " + TABLE + " WHERE " + RECORD_ID + " = ? AND " + SYNCED + " = 1",
+                    record.getUniqueId());
+        }
+        for (int i = 0; i < histories.length(); i++) {
+            insert(record.getUniqueId(), histories.get(i).toString(), record.isSynced());
+        }
+    }
+
+    private void insert(String recordId, String history, boolean synced) {
+        execute(session, "INSERT INTO " + TABLE + "(" + RECORD_ID + ", " + CONTENT + ", " + SYNCED + ") VALUES (?, ?, ?)",
+                recordId, history, synced);
+    }
+
+    // Oldest first, in the order they were added
+    List<History> load(String recordId) throws JSONException {
+        return load(recordId, "");
+    }
+
+    // The ones the server does not have yet, oldest first
+    List<History> loadUnsynced(String recordId) throws JSONException {
+        return load(recordId, " AND " + SYNCED + " = 0");
+    }
+
+    private List<History> load(String recordId, String condition) throws JSONException {
+        @Cleanup Cursor cursor = session.rawQuery("SELECT " + CONTENT + " FROM " + TABLE + " WHERE " + RECORD_ID
+                + " = ?" + condition + " ORDER BY " + ID, new String[]{recordId == null ? "" : recordId});
+        List<History> histories = new ArrayList<History>();
+        while (cursor.moveToNext()) {
+            histories.add(new History(cursor.getString(0)));
+        }
+        return histories;
+    }
+
+    // Histories added after the ones being marked, while a sync was running, are newer and so stay unsynced
+    void markOldestSynced(String recordId, int count) {
+        if (count > 0) {
+            execute(session, "UPDATE " + TABLE + " SET " + SYNCED + " = 1 WHERE " + ID + " IN (SELECT " + ID + " FROM "
+                    + TABLE + " WHERE " + RECORD_ID + " = ? AND " + SYNCED + " = 0 ORDER BY " + ID + " LIMIT ?)",
+                    recordId, count);
+        }
+    }
+
+    void deleteByOwner(String owner) {
+        execute(session, "DELETE FROM " + TABLE + " WHERE " + RECORD_ID + " IN (SELECT id FROM "
+                + recordTable.getTableName() + " WHERE " + ownerColumn + " = ?)", owner);
+    }
+}
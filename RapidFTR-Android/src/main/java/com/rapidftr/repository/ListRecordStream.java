@@ -0,0 +1,29 @@
+package com.rapidftr.repository;
+
+import com.rapidftr.model.BaseModel;
+
+import java.util.Iterator;
+import java.util.List;
+
+public class ListRecordStream<T extends BaseModel> implements RecordStream<T> {
+
+    private final List<T> records;
+
+    public ListRecordStream(List<T> records) {
+        this.records = records;
+    }
+
+    @Override
+    public int size() {
+        return records.size();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return records.iterator();
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,141 @@
+package com.rapidftr.repository;
+
+import android.database.Cursor;
+import com.rapidftr.database.DatabaseSession;
+import com.rapidftr.model.BaseModel;
+import lombok.Cleanup;
+import org.json.JSONException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/*
+ * Streams the rows of a table matching a condition in id order, one keyset page at a time, parsing each row only when
+ * the iterator reaches it. A page is small enough to fit in a single cursor window and every page is a fresh query,
+ * so rows the caller updates while iterating (e.g. marking them as synced) are neither skipped nor read twice.
+ */
+class PagedRecordStream<T extends BaseModel> implements RecordStream<T> {
+
+    static final int PAGE_SIZE = 50;
+
+    interface RowReader<T> {
+        T read(Cursor cursor) throws JSONException;
+    }
+
+    private final DatabaseSession session;
+    private final String table;
+    private final String columns;
+    private final String condition;
+    private final String[] conditionArgs;
+    private final RowReader<T> reader;
+
+    private Cursor page;
+    private int rowsReadFromPage;
+    private String lastRecordId = "";
+    private boolean exhausted;
+    private boolean iterated;
+    private Integer size;
+
+    PagedRecordStream(DatabaseSession session, String table, String columns, String condition,
+                      String[] conditionArgs, RowReader<T> reader) {
+        this.session = session;
+        this.table = table;
+        this.columns = columns;
+        this.condition = condition;
+        this.conditionArgs = conditionArgs;
+        this.reader = reader;
+    }
+
+    @Override
+    public int size() {
+        if (size == null) {
+            @Cleanup Cursor cursor = session.rawQuery("SELECT COUNT(1) FROM " + table + " WHERE (" + condition + ")", conditionArgs);
+            size = cursor.moveToNext() ? cursor.getInt(0) : 0;
+        }
+        return size;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        if (iterated) {
+            throw new IllegalStateException("A record stream can only be iterated once");
+        }
+        iterated = true;
+
+        return new Iterator<T>() {
+            private T next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    next = readNext();
+                }
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T record = next;
+                next = null;
+                return record;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        exhausted = true;
+        closePage();
+    }
+
+    private T readNext() {
+        while (!exhausted) {
+            if (page == null) {
+                openPageAfter(lastRecordId);
+            }
+            if (page.moveToNext()) {
+                rowsReadFromPage++;
+                return readCurrentRow();
+            }
+            exhausted = rowsReadFromPage < PAGE_SIZE;
+            closePage();
+        }
+        return null;
+    }
+
+    private T readCurrentRow() {
+        try {
+            T record = reader.read(page);
+            lastRecordId = record.getUniqueId();
+            return record;
+        } catch (JSONException e) {
+            close();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void openPageAfter(String recordId) {
+        String[] arguments = new String[conditionArgs.length + 1];
+        System.arraycopy(conditionArgs, 0, arguments, 0, conditionArgs.length);
+        arguments[conditionArgs.length] = recordId;
+
+        page = session.rawQuery("SELECT " + columns + " FROM " + table + " WHERE (" + condition
+                + ") AND id > ? ORDER BY id LIMIT " + PAGE_SIZE, arguments);
+        rowsReadFromPage = 0;
+    }
+
+    private void closePage() {
+        if (page != null) {
+            page.close();
+            page = null;
+        }
+    }
+}
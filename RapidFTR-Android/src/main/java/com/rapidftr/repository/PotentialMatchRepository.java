@@ -6,8 +6,10 @@ import com.google.inject.Inject;
 import com.google.inject.name.Named;
 import com.rapidftr.database.Database;
 import com.rapidftr.database.DatabaseSession;
+import com.rapidftr.database.RecordContent;
 import com.rapidftr.model.Child;
 import com.rapidftr.model.Enquiry;
+import com.rapidftr.model.History;
 import com.rapidftr.model.PotentialMatch;
 import lombok.Cleanup;
 import org.json.JSONException;
@@ -20,16 +22,22 @@ import java.util.HashMap;
 import java.util.List;
 
 import static com.rapidftr.database.Database.PotentialMatchTableColumn.*;
+import static com.rapidftr.database.DatabaseStatements.execute;
+import static com.rapidftr.database.DatabaseStatements.replace;
 
 public class PotentialMatchRepository implements Closeable, Repository<PotentialMatch> {
 
+    public static final int NO_LIMIT = -1;
+
     private final String userName;
     private final DatabaseSession session;
+    private final RecordBatchWriter<PotentialMatch> batches;
 
     @Inject
     public PotentialMatchRepository(@Named("USER_NAME") String userName, DatabaseSession session) {
         this.userName = userName;
         this.session = session;
+        this.batches = new RecordBatchWriter<PotentialMatch>(session, null);
     }
 
     @Override
@@ -46,6 +54,11 @@ public class PotentialMatchRepository implements Closeable, Repository<Potential
         return new ArrayList<PotentialMatch>();
     }
 
+    @Override
+    public RecordStream<PotentialMatch> streamToBeSynced() {
+        return new ListRecordStream<PotentialMatch>(new ArrayList<PotentialMatch>());
+    }
+
     @Override
     public boolean exists(String id) {
         String dbId = (id == null ? "" : id);
@@ -89,14 +102,23 @@ public class PotentialMatchRepository implements Closeable, Repository<Potential
             values.put(created_at.getColumnName(), potentialMatch.getCreatedAt());
             values.put(id.getColumnName(), potentialMatch.getUniqueId());
             values.put(revision.getColumnName(), potentialMatch.getRevision());
-            values.put(confirmed.getColumnName(), potentialMatch.isConfirmed().toString());
+            values.put(status.getColumnName(), potentialMatch.getStatus().name());
 
-            session.replaceOrThrow(Database.potential_match.getTableName(), null, values);
+            replace(session, Database.potential_match.getTableName(), values);
         }
     }
 
+    @Override
+    public void createOrUpdateAllWithoutHistory(Iterable<PotentialMatch> potentialMatches) throws JSONException {
+        batches.writeAll(potentialMatches, this);
+    }
+
+    public void setBatchSize(int batchSize) {
+        batches.setBatchSize(batchSize);
+    }
+
     public void delete(PotentialMatch potentialMatch) {
-        session.execSQL(String.format("DELETE FROM potential_match WHERE id ='%s'", potentialMatch.getUniqueId()));
+        execute(session, "DELETE FROM potential_match WHERE id = ?", potentialMatch.getUniqueId());
     }
 
     @Override
@@ -104,6 +126,11 @@ public class PotentialMatchRepository implements Closeable, Repository<Potential
         return new ArrayList<PotentialMatch>();
     }
 
+    @Override
+    public RecordStream<PotentialMatch> streamCurrentUsersUnsyncedRecords() {
+        return new ListRecordStream<PotentialMatch>(new ArrayList<PotentialMatch>());
+    }
+
     @Override
     public List<String> getRecordIdsByOwner() throws JSONException {
         return new ArrayList<String>();
@@ -115,7 +142,12 @@ public class PotentialMatchRepository implements Closeable, Repository<Potential
     }
 
     @Override
-    public List<PotentialMatch> getRecordsBetween(int previousPageNumber, int pageNumber) {
+    public RecordStream<PotentialMatch> streamAllCreatedByCurrentUser() {
+        return new ListRecordStream<PotentialMatch>(new ArrayList<PotentialMatch>());
+    }
+
+    @Override
+    public List<PotentialMatch> getRecordsAfter(String lastRecordId) {
         return null;
     }
 
@@ -124,6 +156,20 @@ public class PotentialMatchRepository implements Closeable, Repository<Potential
         return null;
     }
 
+    @Override
+    public List<History> getHistories(String id) throws JSONException {
+        return new ArrayList<History>();
+    }
+
+    @Override
+    public List<History> getUnsyncedHistories(String id) throws JSONException {
+        return new ArrayList<History>();
+    }
+
+    @Override
+    public void markHistoriesSynced(String id, int count) {
+    }
+
     public List<PotentialMatch> getPotentialMatchesFor(Enquiry enquiry) throws JSONException {
         if (enquiry.getInternalId() == null) {
             return new ArrayList<PotentialMatch>();
@@ -140,6 +186,54 @@ public class PotentialMatchRepository implements Closeable, Repository<Potential
         return buildPotentialMatches(cursor);
     }
 
+    // The enquiries matched to a child, a page at a time in the order of the matches. Every status but confirmed
+    // counts as a potential match.
+    public List<Enquiry> getMatchedEnquiries(Child child, boolean confirmed, int offset, int limit) throws JSONException {
+        List<Enquiry> enquiries = new ArrayList<Enquiry>();
+        if (child.getInternalId() == null) {
+            return enquiries;
+        }
+        String joins = " JOIN " + Database.enquiry.getTableName() + " e ON e."
+                + Database.EnquiryTableColumn.internal_id.getColumnName() + " = m." + enquiry_id.getColumnName();
+        @Cleanup Cursor cursor = queryMatched("e.*", joins, "", child_id, child.getInternalId(), confirmed, offset, limit);
+        while (cursor.moveToNext()) {
+            enquiries.add(new Enquiry(cursor));
+        }
+        return enquiries;
+    }
+
+    public List<Child> getMatchedChildren(Enquiry enquiry, boolean confirmed, int offset, int limit) throws JSONException {
+        List<Child> children = new ArrayList<Child>();
+        if (enquiry.getInternalId() == null) {
+            return children;
+        }
+        // A matched child is either in the children table or in the archive
+        String internalId = Database.ChildTableColumn.internal_id.getColumnName();
+        String joins = " LEFT JOIN " + Database.child.getTableName() + " c ON c." + internalId + " = m." + child_id.getColumnName()
+                + " LEFT JOIN " + Database.archived_child.getTableName() + " a ON c." + internalId + " IS NULL"
+                + " AND a." + internalId + " = m." + child_id.getColumnName();
+        @Cleanup Cursor cursor = queryMatched("coalesce(c.child_json, a.child_json), coalesce(c.synced, a.synced)", joins,
+                " AND (c." + internalId + " IS NOT NULL OR a." + internalId + " IS NOT NULL)",
+                enquiry_id, enquiry.getInternalId(), confirmed, offset, limit);
+        while (cursor.moveToNext()) {
+            children.add(new Child(RecordContent.readObject(cursor, 0),
+                    Database.BooleanColumn.from(cursor.getString(1)).toBoolean()));
+        }
+        return children;
+    }
+
+    // One join instead of reading every match of the record and looking the matched records up by id afterwards.
+    // Both ends are indexed: the matches by record id and status, the records by internal id.
+    private Cursor queryMatched(String columns, String joins, String matchedCondition,
+                                Database.PotentialMatchTableColumn recordIdColumn, String recordId,
+                                boolean confirmed, int offset, int limit) {
+        String sql = "SELECT " + columns + " FROM " + Database.potential_match.getTableName() + " m" + joins
+                + " WHERE m." + recordIdColumn.getColumnName() + " = ?"
+                + " AND m." + status.getColumnName() + (confirmed ? " = ?" : " != ?") + matchedCondition
+                + " ORDER BY m." + id.getColumnName() + " LIMIT " + limit + " OFFSET " + offset;
+        return session.rawQuery(sql, new String[]{recordId, PotentialMatch.PotentialMatchStatus.CONFIRMED.name()});
+    }
+
     private ArrayList<PotentialMatch> buildPotentialMatches(Cursor cursor) {
         ArrayList<PotentialMatch> potentialMatches = new ArrayList<PotentialMatch>();
         while (cursor.moveToNext()) {
@@ -152,8 +246,8 @@ public class PotentialMatchRepository implements Closeable, Repository<Potential
         int enquiryIdIndex = cursor.getColumnIndex(enquiry_id.getColumnName());
         int childIdIndex = cursor.getColumnIndex(child_id.getColumnName());
         int idIndex = cursor.getColumnIndex(id.getColumnName());
-        int confirmedIndex = cursor.getColumnIndex(confirmed.getColumnName());
+        int statusIndex = cursor.getColumnIndex(status.getColumnName());
         return new PotentialMatch(cursor.getString(enquiryIdIndex), cursor.getString(childIdIndex), cursor.getString(idIndex),
-                Boolean.valueOf(cursor.getString(confirmedIndex)));
+                PotentialMatch.PotentialMatchStatus.valueOf(cursor.getString(statusIndex)));
     }
 }
@@ -0,0 +1,118 @@
+package com.rapidftr.repository;
+
+import com.rapidftr.model.BaseModel;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.rapidftr.database.Database.ChildTableColumn.unique_identifier;
+
+/*
+ * The records still waiting in a write queue when a read started, laid over what the read found in the database so
+ * a screen sees what it saved without waiting for the write. Taken before the query, so a record written in between
+ * is read from here in the version the database has by then.
+ */
+class QueuedRecords<T extends BaseModel> {
+
+    interface View<T extends BaseModel, R extends BaseModel> {
+        R of(T record) throws JSONException;
+    }
+
+    interface Match<T extends BaseModel> {
+        boolean matches(T record) throws JSONException;
+    }
+
+    private final Map<String, T> records = new LinkedHashMap<String, T>();
+
+    QueuedRecords(List<T> queued) throws JSONException {
+        for (T record : queued) {
+            records.put(record.getUniqueId(), record);
+        }
+    }
+
+    static <T extends BaseModel> View<T, T> asQueued() {
+        return new View<T, T>() {
+            @Override
+            public T of(T record) {
+                return record;
+            }
+        };
+    }
+
+    boolean contains(String id) {
+        return records.containsKey(id);
+    }
+
+    T get(String id) {
+        return records.get(id);
+    }
+
+    // Those of the owner, or all of them for a null owner, in the order they were saved
+    List<T> ownedBy(String owner) throws JSONException {
+        List<T> owned = new ArrayList<T>();
+        for (T record : records.values()) {
+            if (owner == null || owner.equals(record.getCreatedBy())) {
+                owned.add(record);
+            }
+        }
+        return owned;
+    }
+
+    // The stored records that have no queued version
+    <R extends BaseModel> List<R> without(List<R> stored) throws JSONException {
+        List<R> left = new ArrayList<R>();
+        for (R record : stored) {
+            if (!contains(record.getUniqueId())) {
+                left.add(record);
+            }
+        }
+        return left;
+    }
+
+    // A page of the owner's records ordered by id after the given one: the queued records take the place of their stored
+    // version and join the page where their id sorts, up to the last id of a full page
+    <R extends BaseModel> List<R> overPage(List<R> stored, String owner, String afterId, int pageSize, View<T, R> view)
+            throws JSONException {
+        String lastId = stored.size() < pageSize ? null : stored.get(stored.size() - 1).getUniqueId();
+        List<R> page = without(stored);
+        for (T record : ownedBy(owner)) {
+            String id = record.getUniqueId();
+            if ((afterId == null || id.compareTo(afterId) > 0) && (lastId == null || id.compareTo(lastId) <= 0)) {
+                page.add(view.of(record));
+            }
+        }
+        Collections.sort(page, new Comparator<R>() {
+            @Override
+            public int compare(R first, R second) {
+                return first.optString(unique_identifier.getColumnName()).compareTo(second.optString(unique_identifier.getColumnName()));
+            }
+        });
+        return page.size() > pageSize ? new ArrayList<R>(page.subList(0, pageSize)) : page;
+    }
+
+    // A page of a ranked search. The queued records it would find lead its first page, and the records shown from the
+    // queue or with a queued version are left out of what the database found on every page.
+    List<T> overSearchPage(List<T> stored, String owner, SearchPosition position, boolean firstPage, Match<T> match)
+            throws JSONException {
+        List<T> page = new ArrayList<T>();
+        if (firstPage) {
+            for (T record : ownedBy(owner)) {
+                if (match.matches(record)) {
+                    page.add(record);
+                    position.shownQueued(record.getUniqueId());
+                }
+            }
+        }
+        for (T record : without(stored)) {
+            if (!position.wasShownQueued(record.getUniqueId())) {
+                page.add(record);
+            }
+        }
+        return page;
+    }
+}
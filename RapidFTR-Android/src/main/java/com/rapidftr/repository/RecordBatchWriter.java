@@ -0,0 +1,50 @@
+package com.rapidftr.repository;
+
+import com.google.common.collect.Iterables;
+import com.rapidftr.database.DatabaseSession;
+import com.rapidftr.database.RecordCache;
+import com.rapidftr.model.BaseModel;
+import lombok.Setter;
+import org.json.JSONException;
+
+import java.util.List;
+
+/*
+ * Saves many records through a repository a batch per transaction, so a sync neither commits every record on its own
+ * nor holds the database for the whole download.
+ */
+class RecordBatchWriter<T extends BaseModel> {
+
+    static final int DEFAULT_BATCH_SIZE = 250;
+
+    private final DatabaseSession session;
+    private final RecordCache cache;
+    @Setter
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    // The cache is null for a table without one
+    RecordBatchWriter(DatabaseSession session, RecordCache cache) {
+        this.session = session;
+        this.cache = cache;
+    }
+
+    // A batch is dropped from the cache only once it is committed, so no read caches a version it rolled back
+    void writeAll(Iterable<T> records, Repository<T> repository) throws JSONException {
+        for (List<T> batch : Iterables.partition(records, batchSize)) {
+            session.beginTransaction();
+            try {
+                for (T record : batch) {
+                    repository.createOrUpdateWithoutHistory(record);
+                }
+                session.setTransactionSuccessful();
+            } finally {
+                session.endTransaction();
+                if (cache != null) {
+                    for (T record : batch) {
+                        cache.invalidate(record.getUniqueId());
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.rapidftr.repository;
+
+import android.database.Cursor;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.rapidftr.database.DatabaseSession;
+import com.rapidftr.database.RecordCache;
+import com.rapidftr.model.BaseModel;
+import lombok.Cleanup;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Reads the records with any of a list of keys, one IN query per chunk of keys, in the order of the keys. Cached
+ * records are not queried, and keys the table has no record for are looked up in the fallback table if there is one.
+ */
+class RecordLookup<T extends BaseModel> {
+
+    // SQLite refuses statements with more than 999 bound parameters unless it was built with a higher limit
+    static final int MAX_KEYS_PER_QUERY = 512;
+
+    private final DatabaseSession session;
+    private final String table;
+    private final String columns;
+    private final String keyColumn;
+    private final PagedRecordStream.RowReader<T> reader;
+    private RecordCache cache;
+    private boolean keyIsInternalId;
+    private CacheReader<T> cacheReader;
+    private RecordLookup<T> fallback;
+
+    interface CacheReader<T> {
+        T read(RecordCache.Entry entry) throws JSONException;
+    }
+
+    RecordLookup(DatabaseSession session, String table, String columns, String keyColumn,
+                 PagedRecordStream.RowReader<T> reader) {
+        this.session = session;
+        this.table = table;
+        this.columns = columns;
+        this.keyColumn = keyColumn;
+        this.reader = reader;
+    }
+
+    RecordLookup<T> cachedIn(RecordCache cache, boolean keyIsInternalId, CacheReader<T> cacheReader) {
+        this.cache = cache;
+        this.keyIsInternalId = keyIsInternalId;
+        this.cacheReader = cacheReader;
+        return this;
+    }
+
+    RecordLookup<T> fallingBackTo(RecordLookup<T> fallback) {
+        this.fallback = fallback;
+        return this;
+    }
+
+    static RecordCache.Entry cacheEntry(BaseModel record) throws JSONException {
+        return new RecordCache.Entry(record.getUniqueId(), Strings.emptyToNull(record.getInternalId()),
+                record.getJsonString(), record.isSynced());
+    }
+
+    // Keys without a record are skipped, keys given more than once get their record more than once
+    List<T> findAll(List<String> keys) throws JSONException {
+        Map<String, T> records = findByKey(keys);
+        List<T> found = new ArrayList<T>();
+        for (String key : keys) {
+            T record = records.get(key);
+            if (record != null) {
+                found.add(record);
+            }
+        }
+        return found;
+    }
+
+    Map<String, T> findByKey(List<String> keys) throws JSONException {
+        Map<String, T> records = new HashMap<String, T>();
+        List<String> uncachedKeys = new ArrayList<String>();
+        for (String key : new LinkedHashSet<String>(keys)) {
+            RecordCache.Entry cached = cache == null || key == null ? null
+                    : keyIsInternalId ? cache.getByInternalId(key) : cache.getByUniqueId(key);
+            if (cached != null) {
+                records.put(key, cacheReader.read(cached));
+            } else if (key != null) {
+                uncachedKeys.add(key);
+            }
+        }
+
+        long generation = cache == null ? 0 : cache.getGeneration();
+        for (List<String> chunk : Lists.partition(uncachedKeys, MAX_KEYS_PER_QUERY)) {
+            String[] arguments = padded(chunk);
+            @Cleanup Cursor cursor = session.rawQuery("SELECT " + keyColumn + ", " + columns + " FROM " + table
+                    + " WHERE " + keyColumn + " IN (" + placeholders(arguments.length) + ")", arguments);
+            while (cursor.moveToNext()) {
+                T record = reader.read(cursor);
+                records.put(cursor.getString(0), record);
+                if (cache != null) {
+                    cache.put(generation, cacheEntry(record));
+                }
+            }
+        }
+
+        if (fallback != null) {
+            List<String> missingKeys = new ArrayList<String>();
+            for (String key : uncachedKeys) {
+                if (!records.containsKey(key)) {
+                    missingKeys.add(key);
+                }
+            }
+            if (!missingKeys.isEmpty()) {
+                records.putAll(fallback.findByKey(missingKeys));
+            }
+        }
+        return records;
+    }
+
+    private static String[] padded(List<String> chunk) {
+        int size = 1;
+        while (size < chunk.size()) {
+            size *= 2;
+        }
+        String[] arguments = new String[size];
+        for (int i = 0; i < size; i++) {
+            arguments[i] = chunk.get(Math.min(i, chunk.size() - 1));
+        }
+        return arguments;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder("?");
+        for (int i = 1; i < count; i++) {
+            placeholders.append(", ?");
+        }
+        return placeholders.toString();
+    }
+}
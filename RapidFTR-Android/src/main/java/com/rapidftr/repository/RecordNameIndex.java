@@ -0,0 +1,325 @@
+package com.rapidftr.repository;
+
+import android.database.Cursor;
+import com.rapidftr.database.Database;
+import com.rapidftr.database.DatabaseSession;
+import com.rapidftr.database.RecordContent;
+import com.rapidftr.model.BaseModel;
+import lombok.Cleanup;
+import org.apache.commons.codec.language.DoubleMetaphone;
+import org.apache.commons.codec.language.Metaphone;
+import org.apache.commons.codec.language.Soundex;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.rapidftr.adapter.pagination.ViewAllChildrenPaginatedScrollListener.DEFAULT_PAGE_SIZE;
+import static com.rapidftr.database.Database.NameTableColumn;
+import static com.rapidftr.database.DatabaseStatements.execute;
+import static com.rapidftr.database.DatabaseStatements.queryForLong;
+
+/*
+ * Keeps the phonetic keys of the words in a record table's name fields in step with its writes, one row per word and
+ * key under the record's rowid, so a name is found however it was transliterated.
+ */
+class RecordNameIndex {
+
+    // name, nick_name, 2_first_name, fathers_name, wishes_name_1... but not names_origin
+    private static final Pattern NAME_FIELD = Pattern.compile("(^|_)names?(_\\d+)?$");
+    private static final Pattern NAME_WORD = Pattern.compile("\\p{L}{2,}");
+    private static final String[] SYSTEM_FIELD_PREFIXES = {"created_by", "last_updated_by"};
+    private static final int BACKFILL_BATCH_SIZE = 100;
+
+    enum Encoding {
+        DOUBLE_METAPHONE {
+            private final DoubleMetaphone encoder = new DoubleMetaphone();
+
+            @Override
+            void addKeys(String word, Set<String> keys) {
+                keys.add(encoder.doubleMetaphone(word, false));
+                keys.add(encoder.doubleMetaphone(word, true));
+            }
+        },
+        METAPHONE {
+            private final Metaphone encoder = new Metaphone();
+
+            @Override
+            void addKeys(String word, Set<String> keys) {
+                keys.add(encoder.metaphone(word));
+            }
+        },
+        SOUNDEX {
+            private final Soundex encoder = new Soundex();
+
+            @Override
+            void addKeys(String word, Set<String> keys) {
+                keys.add(encoder.soundex(word));
+            }
+        };
+
+        abstract void addKeys(String word, Set<String> keys);
+
+        // Words the encoder cannot spell out, in a script other than Latin for one, are keyed by the word itself
+        Set<String> keys(String word) {
+            Set<String> keys = new LinkedHashSet<String>();
+            try {
+                addKeys(word, keys);
+            } catch (IllegalArgumentException e) {
+                keys.clear();
+            }
+            keys.remove(null);
+            keys.remove("");
+            if (keys.isEmpty()) {
+                keys.add(word);
+            }
+            return keys;
+        }
+    }
+
+    private final DatabaseSession session;
+    private final Database recordTable;
+    private final String contentColumn;
+    private final String ownerColumn;
+    private final Database nameTable;
+    private final Encoding encoding;
+
+    RecordNameIndex(DatabaseSession session, Database recordTable, String contentColumn, String ownerColumn,
+                    Database nameTable, Encoding encoding) {
+        this.session = session;
+        this.recordTable = recordTable;
+        this.contentColumn = contentColumn;
+        this.ownerColumn = ownerColumn;
+        this.nameTable = nameTable;
+        this.encoding = encoding;
+    }
+
+    void remove(String recordId) {
+        execute(session, "DELETE FROM " + nameTable.getTableName() + " WHERE " + docid() + " IN (SELECT rowid FROM "
+                + recordTable.getTableName() + " WHERE id = ?)", recordId);
+    }
+
+    void add(BaseModel record, long rowId) {
+        for (String word : nameWords(record)) {
+            for (String key : encoding.keys(word)) {
+                execute(session, "INSERT INTO " + nameTable.getTableName() + "(" + docid() + ", "
+                        + NameTableColumn.name.getColumnName() + ", " + NameTableColumn.key.getColumnName()
+                        + ") VALUES (?, ?, ?)", rowId, word, key);
+            }
+        }
+    }
+
+    void deleteByOwner(String owner) {
+        execute(session, "DELETE FROM " + nameTable.getTableName() + " WHERE " + docid() + " IN (SELECT rowid FROM "
+                + recordTable.getTableName() + " WHERE " + ownerColumn + " = ?)", owner);
+    }
+
+    /*
+     * The rowids of the next page of records whose names sound like every word of the search key, closest spelling
+     * first, after the position. A null owner searches every record.
+     */
+    List<Long> search(String searchKey, String owner, SearchPosition position) {
+        List<String> words = new ArrayList<String>(words(searchKey));
+        if (words.isEmpty()) {
+            position.moveToEnd();
+            return new ArrayList<Long>();
+        }
+
+        List<String> arguments = new ArrayList<String>();
+        StringBuilder soundingAlike = new StringBuilder();
+        for (String word : words) {
+            Set<String> keys = encoding.keys(word);
+            soundingAlike.append(arguments.isEmpty() ? "" : " INTERSECT ").append("SELECT ").append(docid())
+                    .append(" FROM ").append(nameTable.getTableName()).append(" WHERE ")
+                    .append(NameTableColumn.key.getColumnName()).append(" IN (").append(placeholders(keys.size())).append(")");
+            arguments.addAll(keys);
+        }
+        String sql = "SELECT " + docid() + ", " + NameTableColumn.name.getColumnName() + " FROM " + nameTable.getTableName()
+                + " WHERE " + docid() + " IN (" + soundingAlike + ")"
+                + (owner == null ? "" : " AND " + docid() + " IN (SELECT rowid FROM " + recordTable.getTableName()
+                + " WHERE " + ownerColumn + " = ?)");
+        if (owner != null) {
+            arguments.add(owner);
+        }
+
+        Map<Long, Set<String>> names = new HashMap<Long, Set<String>>();
+        @Cleanup Cursor cursor = session.rawQuery(sql, arguments.toArray(new String[arguments.size()]));
+        while (cursor.moveToNext()) {
+            Set<String> recordNames = names.get(cursor.getLong(0));
+            if (recordNames == null) {
+                names.put(cursor.getLong(0), recordNames = new HashSet<String>());
+            }
+            recordNames.add(cursor.getString(1));
+        }
+
+        final Map<Long, Double> scores = new HashMap<Long, Double>();
+        for (Map.Entry<Long, Set<String>> record : names.entrySet()) {
+            scores.put(record.getKey(), score(words, record.getValue()));
+        }
+        List<Long> ranked = new ArrayList<Long>(scores.keySet());
+        Collections.sort(ranked, new Comparator<Long>() {
+            @Override
+            public int compare(Long first, Long second) {
+                int byScore = scores.get(second).compareTo(scores.get(first));
+                return byScore != 0 ? byScore : first.compareTo(second);
+            }
+        });
+        List<Long> page = new ArrayList<Long>();
+        for (Long rowId : ranked) {
+            if (page.size() == DEFAULT_PAGE_SIZE) {
+                break;
+            }
+            if (position.isBefore(scores.get(rowId), rowId)) {
+                page.add(rowId);
+            }
+        }
+        if (!page.isEmpty()) {
+            Long last = page.get(page.size() - 1);
+            position.moveTo(scores.get(last), last);
+        }
+        if (page.size() < DEFAULT_PAGE_SIZE) {
+            position.moveToEnd();
+        }
+        return page;
+    }
+
+    // Whether the search would find the record once it is indexed, for records still in the write queue
+    boolean matches(BaseModel record, String searchKey) {
+        Set<String> words = words(searchKey);
+        Set<String> recordKeys = new HashSet<String>();
+        for (String name : nameWords(record)) {
+            recordKeys.addAll(encoding.keys(name));
+        }
+        for (String word : words) {
+            if (Collections.disjoint(encoding.keys(word), recordKeys)) {
+                return false;
+            }
+        }
+        return !words.isEmpty();
+    }
+
+    private static Set<String> nameWords(BaseModel record) {
+        Set<String> words = new HashSet<String>();
+        Iterator<?> fields = record.keys();
+        while (fields.hasNext()) {
+            String field = String.valueOf(fields.next());
+            if (isNameField(field)) {
+                words.addAll(words(record.optString(field)));
+            }
+        }
+        return words;
+    }
+
+    static boolean isNameField(String field) {
+        for (String prefix : SYSTEM_FIELD_PREFIXES) {
+            if (field.startsWith(prefix)) {
+                return false;
+            }
+        }
+        return NAME_FIELD.matcher(field).find();
+    }
+
+    static Set<String> words(String value) {
+        Set<String> words = new LinkedHashSet<String>();
+        Matcher matcher = NAME_WORD.matcher(value == null ? "" : value);
+        while (matcher.find()) {
+            words.add(matcher.group().toLowerCase(Locale.ENGLISH));
+        }
+        return words;
+    }
+
+    // For each word of the search key the closest of the record's names, added up
+    static double score(List<String> words, Set<String> names) {
+        double score = 0;
+        for (String word : words) {
+            double closest = 0;
+            for (String name : names) {
+                closest = Math.max(closest, similarity(word, name));
+            }
+            score += closest;
+        }
+        return score;
+    }
+
+    // Dice coefficient of the trigrams of the two words, padded so the first and last letters weigh in too
+    static double similarity(String first, String second) {
+        Set<String> firstTrigrams = trigrams(first);
+        Set<String> secondTrigrams = trigrams(second);
+        int total = firstTrigrams.size() + secondTrigrams.size();
+        firstTrigrams.retainAll(secondTrigrams);
+        return total == 0 ? 0 : 2.0 * firstTrigrams.size() / total;
+    }
+
+    private static Set<String> trigrams(String word) {
+        String padded = "  " + word + " ";
+        Set<String> trigrams = new HashSet<String>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder("?");
+        for (int i = 1; i < count; i++) {
+            placeholders.append(", ?");
+        }
+        return placeholders.toString();
+    }
+
+    private static String docid() {
+        return NameTableColumn.id.getColumnName();
+    }
+
+    // In the background after log in like the search index backfill, a batch of records per transaction
+    void backfill() throws JSONException {
+        if (queryForLong(session, "SELECT COUNT(1) FROM " + Database.search_index_backfill.getTableName()
+                + " WHERE table_name = ?", nameTable.getTableName()) == 0) {
+            return;
+        }
+
+        long lastRowId = 0;
+        boolean done = false;
+        while (!done) {
+            session.beginTransaction();
+            try {
+                Map<Long, String> records = recordsAfter(lastRowId);
+                for (Map.Entry<Long, String> record : records.entrySet()) {
+                    execute(session, "DELETE FROM " + nameTable.getTableName() + " WHERE " + docid() + " = ?", record.getKey());
+                    add(new BaseModel(record.getValue()), record.getKey());
+                    lastRowId = record.getKey();
+                }
+                if (records.isEmpty()) {
+                    execute(session, "DELETE FROM " + Database.search_index_backfill.getTableName() + " WHERE table_name = ?",
+                            nameTable.getTableName());
+                    done = true;
+                }
+                session.setTransactionSuccessful();
+            } finally {
+                session.endTransaction();
+            }
+        }
+    }
+
+    private Map<Long, String> recordsAfter(long rowId) throws JSONException {
+        @Cleanup Cursor cursor = session.rawQuery("SELECT rowid, " + contentColumn + " FROM " + recordTable.getTableName()
+                + " WHERE rowid > ? ORDER BY rowid LIMIT " + BACKFILL_BATCH_SIZE, new String[]{String.valueOf(rowId)});
+        Map<Long, String> records = new LinkedHashMap<Long, String>();
+        while (cursor.moveToNext()) {
+            records.put(cursor.getLong(0), RecordContent.read(cursor, 1));
+        }
+        return records;
+    }
+}
@@ -0,0 +1,222 @@
+package com.rapidftr.repository;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import com.rapidftr.database.Database;
+import com.rapidftr.database.DatabaseSession;
+import com.rapidftr.database.RecordContent;
+import com.rapidftr.forms.FormField;
+import com.rapidftr.model.BaseModel;
+import lombok.Cleanup;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.rapidftr.adapter.pagination.ViewAllChildrenPaginatedScrollListener.DEFAULT_PAGE_SIZE;
+import static com.rapidftr.database.Database.SearchTableColumn;
+import static com.rapidftr.database.DatabaseStatements.execute;
+import static com.rapidftr.database.DatabaseStatements.queryForLong;
+import static com.rapidftr.database.DatabaseStatements.replace;
+
+/*
+ * Keeps the full-text search table of a record table in step with its writes, one row per record under its rowid.
+ * The record has to be removed from the index before it is replaced.
+ */
+class RecordSearchIndex {
+
+    private static final Pattern SEARCH_TERM = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final int BACKFILL_BATCH_SIZE = 100;
+    // Above any number of hits in the fields, so a short id hit always ranks first
+    private static final long SHORT_ID_HIT_RANK = 1000000000L;
+
+    private final DatabaseSession session;
+    private final RecordSummaryStore summaries;
+    private final Database recordTable;
+    private final String contentColumn;
+    private final String ownerColumn;
+    private final Database searchTable;
+
+    RecordSearchIndex(DatabaseSession session, RecordSummaryStore summaries, Database recordTable,
+                      String contentColumn, String ownerColumn, Database searchTable) {
+        this.session = session;
+        this.summaries = summaries;
+        this.recordTable = recordTable;
+        this.contentColumn = contentColumn;
+        this.ownerColumn = ownerColumn;
+        this.searchTable = searchTable;
+    }
+
+    void remove(String recordId) {
+        execute(session, "DELETE FROM " + searchTable.getTableName() + " WHERE docid IN (SELECT rowid FROM "
+                + recordTable.getTableName() + " WHERE id = ?)", recordId);
+    }
+
+    void add(BaseModel record, long rowId) throws JSONException {
+        ContentValues values = new ContentValues();
+        values.put(SearchTableColumn.id.getColumnName(), rowId);
+        values.put(SearchTableColumn.short_id.getColumnName(), record.getShortId());
+        values.put(SearchTableColumn.content.getColumnName(), searchableContent(record));
+        replace(session, searchTable.getTableName(), values);
+    }
+
+    void deleteByOwner(String owner) {
+        execute(session, "DELETE FROM " + searchTable.getTableName() + " WHERE docid IN (SELECT rowid FROM "
+                + recordTable.getTableName() + " WHERE " + ownerColumn + " = ?)", owner);
+    }
+
+    // The rowids of the next page of records matching every term, after the position. A null owner searches every record.
+    List<Long> search(String matchExpression, String owner, SearchPosition position) {
+        List<String> arguments = new ArrayList<String>();
+        arguments.add(matchExpression);
+        String sql = "SELECT r.rowid, m.rank FROM " + recordTable.getTableName() + " r JOIN (SELECT docid, " + rank("hits")
+                + " AS rank FROM (SELECT docid, offsets(" + searchTable.getTableName() + ") AS hits FROM "
+                + searchTable.getTableName() + " WHERE " + searchTable.getTableName() + " MATCH ?)) m ON r.rowid = m.docid WHERE 1";
+        if (owner != null) {
+            sql += " AND r." + ownerColumn + " = ?";
+            arguments.add(owner);
+        }
+        if (position.isStarted()) {
+            sql += " AND (m.rank < CAST(? AS REAL) OR (m.rank = CAST(? AS REAL) AND r.rowid > ?))";
+            arguments.add(String.valueOf(position.getRank()));
+            arguments.add(String.valueOf(position.getRank()));
+            arguments.add(String.valueOf(position.getRowId()));
+        }
+        sql += " ORDER BY m.rank DESC, r.rowid LIMIT " + DEFAULT_PAGE_SIZE;
+
+        List<Long> rowIds = new ArrayList<Long>();
+        @Cleanup Cursor cursor = session.rawQuery(sql, arguments.toArray(new String[arguments.size()]));
+        while (cursor.moveToNext()) {
+            rowIds.add(cursor.getLong(0));
+            position.moveTo(cursor.getDouble(1), cursor.getLong(0));
+        }
+        if (rowIds.size() < DEFAULT_PAGE_SIZE) {
+            position.moveToEnd();
+        }
+        return rowIds;
+    }
+
+    // A short id hit first, then the most hits in the fields. Ranked from offsets(), which lists four numbers per hit
+    // with the short id column first: matchinfo() returns a blob of integers that SQL cannot read without a ranking
+    // function registered on the connection, and the rank has to be computed in SQL for the page to seek on it.
+    private static String rank(String hits) {
+        return "(" + hits + " LIKE '0 %') * " + SHORT_ID_HIT_RANK + " + length(" + hits + ") - length(replace(" + hits + ", ' ', ''))";
+    }
+
+    // Whether the search key would find the record once it is indexed, for records still in the write queue
+    boolean matches(BaseModel record, String searchKey) throws JSONException {
+        Set<String> words = new HashSet<String>();
+        Matcher indexed = SEARCH_TERM.matcher(record.getShortId() + " " + searchableContent(record));
+        while (indexed.find()) {
+            words.add(indexed.group().toLowerCase(Locale.ENGLISH));
+        }
+        Matcher terms = SEARCH_TERM.matcher(searchKey == null ? "" : searchKey);
+        boolean any = false;
+        while (terms.find()) {
+            any = true;
+            if (!hasPrefix(words, terms.group().toLowerCase(Locale.ENGLISH))) {
+                return false;
+            }
+        }
+        return any;
+    }
+
+    private static boolean hasPrefix(Set<String> words, String prefix) {
+        for (String word : words) {
+            if (word.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The records in the order of the rowids, one query for a page of either index
+    static Cursor read(DatabaseSession session, Database recordTable, List<Long> rowIds) {
+        StringBuilder order = new StringBuilder();
+        String[] arguments = new String[rowIds.size()];
+        for (int i = 0; i < rowIds.size(); i++) {
+            order.append(i == 0 ? "SELECT CAST(? AS INTEGER) AS row_id, " : " UNION ALL SELECT CAST(? AS INTEGER), ").append(i).append(i == 0 ? " AS position" : "");
+            arguments[i] = String.valueOf(rowIds.get(i));
+        }
+        return session.rawQuery("SELECT r.* FROM " + recordTable.getTableName() + " r JOIN (" + order + ") p"
+                + " ON r.rowid = p.row_id ORDER BY p.position", arguments);
+    }
+
+    // Every word of the search key becomes a quoted prefix term, so user input can never be read as query syntax.
+    // The terms are separated by spaces only, which the full-text query reads as AND.
+    static String matchExpression(String searchKey) {
+        List<String> terms = new ArrayList<String>();
+        Matcher matcher = SEARCH_TERM.matcher(searchKey == null ? "" : searchKey);
+        while (matcher.find()) {
+            terms.add("\"" + matcher.group() + "*\"");
+        }
+        if (terms.isEmpty()) {
+            return null;
+        }
+
+        StringBuilder expression = new StringBuilder(terms.get(0));
+        for (int i = 1; i < terms.size(); i++) {
+            expression.append(' ').append(terms.get(i));
+        }
+        return expression.toString();
+    }
+
+    private String searchableContent(BaseModel record) {
+        StringBuilder content = new StringBuilder();
+        for (FormField field : summaries.getSummaryFields()) {
+            content.append(record.optString(field.getId())).append(' ');
+        }
+        return content.toString().trim();
+    }
+
+    /*
+     * Indexes the records written before the index existed, in the background after log in (see
+     * BackfillSearchIndexesTask), a batch per transaction so a save never waits for more than one batch. A backfill
+     * stopped half way starts over next time, skipping the records indexed already.
+     */
+    void backfill() throws JSONException {
+        if (queryForLong(session, "SELECT COUNT(1) FROM " + Database.search_index_backfill.getTableName()
+                + " WHERE table_name = ?", recordTable.getTableName()) == 0) {
+            return;
+        }
+
+        long lastRowId = 0;
+        boolean done = false;
+        while (!done) {
+            session.beginTransaction();
+            try {
+                Map<Long, String> unindexed = unindexedRecordsAfter(lastRowId);
+                for (Map.Entry<Long, String> record : unindexed.entrySet()) {
+                    add(new BaseModel(record.getValue()), record.getKey());
+                    lastRowId = record.getKey();
+                }
+                if (unindexed.isEmpty()) {
+                    execute(session, "DELETE FROM " + Database.search_index_backfill.getTableName() + " WHERE table_name = ?",
+                            recordTable.getTableName());
+                    done = true;
+                }
+                session.setTransactionSuccessful();
+            } finally {
+                session.endTransaction();
+            }
+        }
+    }
+
+    private Map<Long, String> unindexedRecordsAfter(long rowId) throws JSONException {
+        @Cleanup Cursor cursor = session.rawQuery("SELECT r.rowid, r." + contentColumn + " FROM "
+                + recordTable.getTableName() + " r WHERE r.rowid > ? AND NOT EXISTS (SELECT 1 FROM " + searchTable.getTableName()
+                + " s WHERE s.docid = r.rowid) ORDER BY r.rowid LIMIT " + BACKFILL_BATCH_SIZE, new String[]{String.valueOf(rowId)});
+        Map<Long, String> records = new LinkedHashMap<Long, String>();
+        while (cursor.moveToNext()) {
+            records.put(cursor.getLong(0), RecordContent.read(cursor, 1));
+        }
+        return records;
+    }
+}
@@ -0,0 +1,47 @@
+package com.rapidftr.repository;
+
+import com.google.inject.Inject;
+import com.rapidftr.database.Database;
+import com.rapidftr.database.DatabaseSession;
+
+import static com.rapidftr.database.Database.BooleanColumn.falseValue;
+import static com.rapidftr.database.DatabaseStatements.queryForLong;
+
+/*
+ * Record counts read from the record_counts table, which triggers on the children and enquiry tables keep up to date.
+ * A count adds up at most one row per owner and synced state, however many records the table holds.
+ */
+public class RecordStats {
+
+    private static final String OWNER = Database.RecordCountColumn.owner.getColumnName();
+    private static final String SYNCED = Database.RecordCountColumn.synced.getColumnName();
+
+    private final DatabaseSession session;
+
+    @Inject
+    public RecordStats(DatabaseSession session) {
+        this.session = session;
+    }
+
+    public int count(Database table) {
+        return sum("", table.getTableName());
+    }
+
+    public int countByOwner(Database table, String owner) {
+        return sum(" AND " + OWNER + " = ?", table.getTableName(), owner);
+    }
+
+    public int countUnsynced(Database table) {
+        return sum(" AND " + SYNCED + " = ?", table.getTableName(), falseValue.getColumnValue());
+    }
+
+    public int countUnsyncedByOwner(Database table, String owner) {
+        return sum(" AND " + OWNER + " = ? AND " + SYNCED + " = ?", table.getTableName(), owner, falseValue.getColumnValue());
+    }
+
+    private int sum(String condition, Object... args) {
+        return (int) queryForLong(session, "SELECT COALESCE(SUM(" + Database.RecordCountColumn.count.getColumnName()
+                + "), 0) FROM " + Database.record_counts.getTableName()
+                + " WHERE " + Database.RecordCountColumn.entity.getColumnName() + " = ?" + condition, args);
+    }
+}
@@ -0,0 +1,16 @@
+package com.rapidftr.repository;
+
+import com.rapidftr.model.BaseModel;
+
+import java.io.Closeable;
+
+/*
+ * A single pass over records that are read from the database only as they are iterated,
+ * so callers walking thousands of records never hold more than a page of them in memory.
+ */
+public interface RecordStream<T extends BaseModel> extends Iterable<T>, Closeable {
+
+    public int size();
+
+    public void close();
+}
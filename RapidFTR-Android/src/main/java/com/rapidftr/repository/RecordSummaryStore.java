@@ -0,0 +1,92 @@
+package com.rapidftr.repository;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import com.rapidftr.RapidFtrApplication;
+import com.rapidftr.database.Database;
+import com.rapidftr.database.DatabaseSession;
+import com.rapidftr.database.RecordContent;
+import com.rapidftr.forms.FormField;
+import com.rapidftr.model.BaseModel;
+import com.rapidftr.model.RecordSummary;
+import com.rapidftr.service.FormService;
+import lombok.Cleanup;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.rapidftr.adapter.pagination.ViewAllChildrenPaginatedScrollListener.DEFAULT_PAGE_SIZE;
+import static com.rapidftr.database.Database.SummaryTableColumn;
+import static com.rapidftr.database.DatabaseStatements.execute;
+import static com.rapidftr.database.DatabaseStatements.replace;
+
+/*
+ * Keeps the summary side table of a record table in step with its writes and pages through it for list screens.
+ * Records written before the summary table existed have no summary row, so their full content is read instead.
+ */
+class RecordSummaryStore {
+
+    private static final String FALLBACK_CONTENT = "fallback_content";
+
+    private final DatabaseSession session;
+    private final RapidFtrApplication applicationInstance;
+    private final String formName;
+    private final Database recordTable;
+    private final Database summaryTable;
+    private final String contentColumn;
+    private final String ownerColumn;
+    private List<FormField> summaryFields;
+
+    RecordSummaryStore(DatabaseSession session, RapidFtrApplication applicationInstance, String formName,
+                       Database recordTable, String contentColumn, String ownerColumn, Database summaryTable) {
+        this.session = session;
+        this.applicationInstance = applicationInstance;
+        this.formName = formName;
+        this.recordTable = recordTable;
+        this.contentColumn = contentColumn;
+        this.ownerColumn = ownerColumn;
+        this.summaryTable = summaryTable;
+    }
+
+    void save(BaseModel record) throws JSONException {
+        ContentValues values = new ContentValues();
+        values.put(SummaryTableColumn.id.getColumnName(), record.getUniqueId());
+        values.put(SummaryTableColumn.content.getColumnName(), summarise(record).getJsonString());
+        replace(session, summaryTable.getTableName(), values);
+    }
+
+    void deleteByOwner(String owner) {
+        execute(session, "DELETE FROM " + summaryTable.getTableName() + " WHERE id IN (SELECT id FROM "
+                + recordTable.getTableName() + " WHERE " + ownerColumn + " = ?)", owner);
+    }
+
+    List<RecordSummary> getSummariesAfter(String owner, String lastRecordId) throws JSONException {
+        String sql = "SELECT s.summary_json, CASE WHEN s.summary_json IS NULL THEN r." + contentColumn + " END AS "
+                + FALLBACK_CONTENT + " FROM " + recordTable.getTableName() + " r LEFT JOIN "
+                + summaryTable.getTableName() + " s ON s.id = r.id WHERE r." + ownerColumn + " = ?"
+                + (lastRecordId == null ? "" : " AND r.id > ?")
+                + " ORDER BY r.id LIMIT " + DEFAULT_PAGE_SIZE;
+        String[] arguments = lastRecordId == null ? new String[]{owner} : new String[]{owner, lastRecordId};
+
+        @Cleanup Cursor cursor = session.rawQuery(sql, arguments);
+        List<RecordSummary> summaries = new ArrayList<RecordSummary>();
+        while (cursor.moveToNext()) {
+            summaries.add(cursor.isNull(0) ? summarise(new BaseModel(RecordContent.read(cursor, 1))) : new RecordSummary(cursor.getString(0)));
+        }
+        return summaries;
+    }
+
+    RecordSummary summarise(BaseModel record) throws JSONException {
+        return RecordSummary.summarise(record, getSummaryFields());
+    }
+
+    List<FormField> getSummaryFields() {
+        if (summaryFields == null) {
+            FormService formService = applicationInstance.getBean(FormService.class);
+            summaryFields = new ArrayList<FormField>(formService.getHighlightedFields(formName));
+            summaryFields.addAll(formService.getTitleFields(formName));
+        }
+        return summaryFields;
+    }
+}
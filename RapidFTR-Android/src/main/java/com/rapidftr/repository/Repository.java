@@ -2,6 +2,7 @@ package com.rapidftr.repository;
 
 import com.rapidftr.model.BaseModel;
 import com.rapidftr.model.Child;
+import com.rapidftr.model.History;
 import org.json.JSONException;
 
 import java.io.Closeable;
@@ -13,6 +14,8 @@ public interface Repository<T extends BaseModel> extends Closeable {
 
     public List<T> toBeSynced() throws JSONException;
 
+    public RecordStream<T> streamToBeSynced();
+
     public boolean exists(String id);
 
     public T get(String id) throws JSONException;
@@ -25,13 +28,26 @@ public interface Repository<T extends BaseModel> extends Closeable {
 
     public void createOrUpdateWithoutHistory(T t) throws JSONException;
 
+    public void createOrUpdateAllWithoutHistory(Iterable<T> records) throws JSONException;
+
     public List<T> currentUsersUnsyncedRecords() throws JSONException;
 
+    public RecordStream<T> streamCurrentUsersUnsyncedRecords();
+
     public List<String> getRecordIdsByOwner() throws JSONException;
 
     public List<T> allCreatedByCurrentUser() throws JSONException;
 
-    public List<T> getRecordsBetween(int previousPageNumber, int pageNumber) throws JSONException;
+    public RecordStream<T> streamAllCreatedByCurrentUser();
+
+    public List<T> getRecordsAfter(String lastRecordId) throws JSONException;
 
     public List<T> getRecordsForFirstPage() throws JSONException;
+
+    // Every history of the record, synced or not. No screen shows them yet; the sync reads only the unsynced ones.
+    public List<History> getHistories(String id) throws JSONException;
+
+    public List<History> getUnsyncedHistories(String id) throws JSONException;
+
+    public void markHistoriesSynced(String id, int count);
 }
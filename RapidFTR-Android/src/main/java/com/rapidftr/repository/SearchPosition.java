@@ -0,0 +1,58 @@
+package com.rapidftr.repository;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+ * Where the last page of a ranked search ended: the rank and rowid of its last record, highest rank first and then by
+ * rowid, so the next page seeks past the records already shown instead of counting them.
+ */
+public class SearchPosition {
+
+    private boolean started;
+    private boolean atEnd;
+    private double rank;
+    private long rowId;
+    // Shown from the write queue on the first page, left out of the later ones once they are written
+    private final Set<String> queuedShown = new HashSet<String>();
+
+    boolean isStarted() {
+        return started;
+    }
+
+    // Once the database had no full page left, whatever the page came to after the queued records were laid over it
+    public boolean isAtEnd() {
+        return atEnd;
+    }
+
+    double getRank() {
+        return rank;
+    }
+
+    long getRowId() {
+        return rowId;
+    }
+
+    // Whether a record ranked so comes after this position
+    boolean isBefore(double otherRank, long otherRowId) {
+        return !started || otherRank < rank || (otherRank == rank && otherRowId > rowId);
+    }
+
+    void moveTo(double rank, long rowId) {
+        this.started = true;
+        this.rank = rank;
+        this.rowId = rowId;
+    }
+
+    void moveToEnd() {
+        this.atEnd = true;
+    }
+
+    void shownQueued(String id) {
+        queuedShown.add(id);
+    }
+
+    boolean wasShownQueued(String id) {
+        return queuedShown.contains(id);
+    }
+}
@@ -10,6 +10,7 @@ import org.json.JSONException;
 import java.io.IOException;
 import java.io.SyncFailedException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class GenericSyncService<T extends BaseModel> {
@@ -28,22 +29,28 @@ public class GenericSyncService<T extends BaseModel> {
     }
 
     public T sync(T model, String syncPath) throws IOException, JSONException {
+        String uniqueId = model.getUniqueId();
+        Object storedHistories = model.opt(History.HISTORIES);
         try {
             Map<String, String> requestParameters = new HashMap<String, String>();
             mediaSyncHelper.addMultiMediaFilesToTheRequestParameters(model, requestParameters);
             removeUnusedParametersBeforeSync(model);
+            int pendingHistories = addPendingHistories(model, uniqueId);
 
             model = model.isNew() ? entityHttpDao.create(model, syncPath, requestParameters)
                     : entityHttpDao.update(model, syncPath, requestParameters);
             setAttributes(model);
             model.remove(History.HISTORIES);
             repository.createOrUpdateWithoutHistory(model);
+            repository.markHistoriesSynced(uniqueId, pendingHistories);
             setMedia(model);
         } catch (Exception e) {
             model.setSynced(false);
             model.setSyncLog(e.getMessage());
             model.put("photo_keys", photoKeys);
             model.put("audio_attachments", audioAttachments);
+            // The pending histories are still unsynced in the history table, only the ones the record came with are saved again
+            model.put(History.HISTORIES, storedHistories);
             repository.createOrUpdateWithoutHistory(model);
             repository.close();
             throw new SyncFailedException(e.getMessage());
@@ -52,6 +59,24 @@ public class GenericSyncService<T extends BaseModel> {
         return model;
     }
 
+    // The API takes the histories inside the record, so the ones not yet synced are added back here
+    private int addPendingHistories(T model, String uniqueId) throws JSONException {
+        List<History> pending = repository.getUnsyncedHistories(uniqueId);
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        JSONArray histories = new JSONArray();
+        JSONArray storedHistories = model.optJSONArray(History.HISTORIES);
+        for (int i = 0; storedHistories != null && i < storedHistories.length(); i++) {
+            histories.put(storedHistories.get(i));
+        }
+        for (History history : pending) {
+            histories.put(history);
+        }
+        model.put(History.HISTORIES, histories);
+        return pending.size();
+    }
+
     private void removeUnusedParametersBeforeSync(T model) {
         photoKeys = (JSONArray) model.remove("photo_keys");
         audioAttachments = model.remove("audio_attachments");
@@ -9,6 +9,9 @@ import com.rapidftr.RapidFtrApplication;
 import com.rapidftr.activity.LoginActivity;
 import com.rapidftr.activity.LoginActivity_;
 import com.rapidftr.activity.RapidFtrActivity;
+import com.rapidftr.database.DatabaseMaintenance;
+import com.rapidftr.database.RecordCaches;
+import com.rapidftr.database.SharedSessions;
 import com.rapidftr.utils.http.FluentRequest;
 
 import static android.widget.Toast.LENGTH_LONG;
@@ -25,6 +28,9 @@ public class LogOutService {
     protected void logOut(RapidFtrActivity currentActivity) {
         RapidFtrApplication context = currentActivity.getContext();
         context.setCurrentUser(null);
+        RecordCaches.clearAll();
+        DatabaseMaintenance.stopAll();
+        SharedSessions.closeAll();
         FluentRequest.getHttpClient().getCookieStore().clear();
         Toast.makeText(context, R.string.logout_successful, LENGTH_LONG).show();
 
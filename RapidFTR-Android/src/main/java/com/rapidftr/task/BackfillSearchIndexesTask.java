@@ -0,0 +1,38 @@
+package com.rapidftr.task;
+
+import android.os.AsyncTask;
+import android.util.Log;
+import com.rapidftr.RapidFtrApplication;
+import com.rapidftr.database.SharedSessions;
+import com.rapidftr.model.User;
+import com.rapidftr.repository.ChildRepository;
+import com.rapidftr.repository.EnquiryRepository;
+import lombok.Cleanup;
+
+import static com.rapidftr.RapidFtrApplication.APP_IDENTIFIER;
+
+public class BackfillSearchIndexesTask extends AsyncTask<Void, Void, Void> {
+    private User user;
+    private RapidFtrApplication rapidFtrApplication;
+
+    public BackfillSearchIndexesTask(User user, RapidFtrApplication rapidFtrApplication) {
+        this.user = user;
+        this.rapidFtrApplication = rapidFtrApplication;
+    }
+
+    @Override
+    protected Void doInBackground(Void... voids) {
+        try {
+            @Cleanup ChildRepository children = new ChildRepository(user.getUserName(),
+                    SharedSessions.acquire(user, rapidFtrApplication), rapidFtrApplication);
+            children.backfillSearchIndexes();
+            @Cleanup EnquiryRepository enquiries = new EnquiryRepository(user.getUserName(),
+                    SharedSessions.acquire(user, rapidFtrApplication), rapidFtrApplication);
+            enquiries.backfillSearchIndexes();
+        } catch (Exception e) {
+            // Every batch indexed is kept, the rest is indexed on the next login
+            Log.e(APP_IDENTIFIER, "Failed to backfill search indexes", e);
+        }
+        return null;
+    }
+}
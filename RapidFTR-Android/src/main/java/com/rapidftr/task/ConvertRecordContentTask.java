@@ -0,0 +1,34 @@
+package com.rapidftr.task;
+
+import android.os.AsyncTask;
+import android.util.Log;
+import com.rapidftr.RapidFtrApplication;
+import com.rapidftr.database.DatabaseSession;
+import com.rapidftr.database.RecordContentConversion;
+import com.rapidftr.database.SharedSessions;
+import com.rapidftr.model.User;
+import lombok.Cleanup;
+
+import static com.rapidftr.RapidFtrApplication.APP_IDENTIFIER;
+
+public class ConvertRecordContentTask extends AsyncTask<Void, Void, Void> {
+    private User user;
+    private RapidFtrApplication rapidFtrApplication;
+
+    public ConvertRecordContentTask(User user, RapidFtrApplication rapidFtrApplication) {
+        this.user = user;
+        this.rapidFtrApplication = rapidFtrApplication;
+    }
+
+    @Override
+    protected Void doInBackground(Void... voids) {
+        try {
+            @Cleanup DatabaseSession session = SharedSessions.acquire(user, rapidFtrApplication);
+            new RecordContentConversion(session).run();
+        } catch (Exception e) {
+            // Records read in every format, the rest is converted on the next login
+            Log.e(APP_IDENTIFIER, "Failed to convert record content", e);
+        }
+        return null;
+    }
+}
@@ -3,18 +3,17 @@ package com.rapidftr.task;
 import android.os.AsyncTask;
 import android.util.Log;
 import com.rapidftr.RapidFtrApplication;
-import com.rapidftr.database.SQLCipherHelper;
+import com.rapidftr.database.SharedSessions;
 import com.rapidftr.model.Child;
 import com.rapidftr.model.User;
 import com.rapidftr.repository.ChildRepository;
+import com.rapidftr.repository.RecordStream;
 import com.rapidftr.utils.PhotoCaptureHelper;
 import lombok.Cleanup;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.List;
-
 public class MigrateUnverifiedDataToVerified extends AsyncTask<Void, Void, Void> {
     private JSONObject responseFromServer;
     private User unVerifiedUser;
@@ -35,12 +34,12 @@ public class MigrateUnverifiedDataToVerified extends AsyncTask<Void, Void, Void>
     }
 
     protected ChildRepository getChildRepo(User user) {
-        return new ChildRepository(user.getUserName(), new SQLCipherHelper(user, rapidFtrApplication).getSession(), rapidFtrApplication);
+        return new ChildRepository(user.getUserName(), SharedSessions.acquire(user, rapidFtrApplication), rapidFtrApplication);
     }
 
     private void migrateChildren(ChildRepository unverifiedChildRepo, ChildRepository verifiedChildRepo) {
         try {
-            List<Child> children = unverifiedChildRepo.allCreatedByCurrentUser();
+            @Cleanup RecordStream<Child> children = unverifiedChildRepo.streamAllCreatedByCurrentUser();
             for (Child child : children) {
                 verifiedChildRepo.createOrUpdate(child);
                 JSONArray photoKeys = child.getPhotos();
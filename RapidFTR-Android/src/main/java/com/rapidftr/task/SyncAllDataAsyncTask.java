@@ -4,10 +4,12 @@ import com.google.inject.Inject;
 import com.rapidftr.R;
 import com.rapidftr.model.BaseModel;
 import com.rapidftr.model.User;
+import com.rapidftr.repository.RecordStream;
 import com.rapidftr.repository.Repository;
 import com.rapidftr.service.DeviceService;
 import com.rapidftr.service.FormService;
 import com.rapidftr.service.SyncService;
+import lombok.Cleanup;
 import org.apache.http.HttpException;
 import org.json.JSONException;
 
@@ -29,18 +31,19 @@ public class SyncAllDataAsyncTask<T extends BaseModel> extends SynchronisationAs
     }
 
     protected void sync() throws JSONException, IOException, HttpException {
-        List<T> recordsToUpload = repository.toBeSynced();
+        @Cleanup RecordStream<T> recordsToUpload = repository.streamToBeSynced();
         List<String> idsToDownload;
         Boolean isBlacklisted = deviceService.isBlacklisted();
         if(isBlacklisted){
             sendRecordsToServer(recordsToUpload);
-            if (repository.toBeSynced().isEmpty())
+            @Cleanup RecordStream<T> recordsNotUploaded = repository.streamToBeSynced();
+            if (recordsNotUploaded.size() == 0)
             {
                 deviceService.wipeData();
             }
         } else {
             idsToDownload = recordSyncService.getIdsToDownload();
-            setProgressBarParameters(idsToDownload, recordsToUpload);
+            setProgressBarParameters(idsToDownload, recordsToUpload.size());
             setProgressAndNotify(context.getString(R.string.synchronize_step_1), 0);
 
             sendRecordsToServer(recordsToUpload);
@@ -49,7 +52,7 @@ public class SyncAllDataAsyncTask<T extends BaseModel> extends SynchronisationAs
         repository.close();
     }
 
-    private int numberOfUploadedRecords(List<T> recordsToUpload) throws JSONException {
+    private int numberOfUploadedRecords(RecordStream<T> recordsToUpload) throws JSONException {
         return formSectionProgress + recordsToUpload.size();
     }
 
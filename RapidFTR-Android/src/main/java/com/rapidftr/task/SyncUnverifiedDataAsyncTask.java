@@ -7,11 +7,13 @@ import com.rapidftr.RapidFtrApplication;
 import com.rapidftr.activity.RapidFtrActivity;
 import com.rapidftr.model.BaseModel;
 import com.rapidftr.model.User;
+import com.rapidftr.repository.RecordStream;
 import com.rapidftr.repository.Repository;
 import com.rapidftr.service.FormService;
 import com.rapidftr.service.LoginService;
 import com.rapidftr.service.RegisterUserService;
 import com.rapidftr.service.SyncService;
+import lombok.Cleanup;
 import org.apache.http.HttpException;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
@@ -60,9 +62,10 @@ public class SyncUnverifiedDataAsyncTask<T extends BaseModel> extends Synchronis
             startMigrationTask(response, application);
         }
         getFormSections();
-        sendRecordsToServer(repository.currentUsersUnsyncedRecords());
+        @Cleanup RecordStream<T> recordsToUpload = repository.streamCurrentUsersUnsyncedRecords();
+        sendRecordsToServer(recordsToUpload);
         List<String> idsToDownload = recordSyncService.getIdsToDownload();
-        List<T> recordsToSyncWithServer = repository.toBeSynced();
+        @Cleanup RecordStream<T> recordsToSyncWithServer = repository.streamToBeSynced();
 
         if(!application.getCurrentUser().isVerified()) {
             List<String> idsOfCurrentUser = repository.getRecordIdsByOwner();
@@ -8,8 +8,10 @@ import android.widget.Toast;
 import com.rapidftr.R;
 import com.rapidftr.RapidFtrApplication;
 import com.rapidftr.activity.RapidFtrActivity;
+import com.rapidftr.database.DatabaseMaintenance;
 import com.rapidftr.model.BaseModel;
 import com.rapidftr.model.User;
+import com.rapidftr.repository.RecordStream;
 import com.rapidftr.repository.Repository;
 import com.rapidftr.service.FormService;
 import com.rapidftr.service.SyncService;
@@ -18,6 +20,7 @@ import org.apache.http.HttpException;
 import org.json.JSONException;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
@@ -26,6 +29,7 @@ public abstract class SynchronisationAsyncTask<T extends BaseModel> extends Asyn
     public static int NOTIFICATION_ID = 1010 + new Random().nextInt(10);
     private static final String SYNC_ALL = "SYNC_ALL";
     private static final String CANCEL_SYNC_ALL = "CANCEL_SYNC_ALL";
+    private static final int DOWNLOAD_BATCH_SIZE = 50;
 
     protected FormService formService;
     protected SyncService<T> recordSyncService;
@@ -39,6 +43,7 @@ public abstract class SynchronisationAsyncTask<T extends BaseModel> extends Asyn
     protected int maxProgress;
     @Setter
     private String successMessage = "Records Successfully Synchronized";
+    private int changedRecords;
 
     public SynchronisationAsyncTask(FormService formService, SyncService<T> recordSyncService, Repository<T> repository, User user) {
         this.formService = formService;
@@ -72,6 +77,8 @@ public abstract class SynchronisationAsyncTask<T extends BaseModel> extends Asyn
             Log.e("SyncAllDataTask", "Error in sync", e);
             publishProgress(e.getMessage());
             return false;
+        } finally {
+            DatabaseMaintenance.recordsChanged(currentUser.getDbName(), changedRecords);
         }
     }
 
@@ -83,8 +90,8 @@ public abstract class SynchronisationAsyncTask<T extends BaseModel> extends Asyn
         }
     }
 
-    void setProgressBarParameters(List<String> idsToDownload, List<?> recordsToSyncWithServer) {
-        int totalRecordsToSynchronize = idsToDownload.size() + recordsToSyncWithServer.size();
+    void setProgressBarParameters(List<String> idsToDownload, int numberOfRecordsToSyncWithServer) {
+        int totalRecordsToSynchronize = idsToDownload.size() + numberOfRecordsToSyncWithServer;
         formSectionProgress = totalRecordsToSynchronize / 4 == 0 ? 20 : totalRecordsToSynchronize / 4;
         maxProgress = totalRecordsToSynchronize + formSectionProgress;
     }
@@ -129,7 +136,7 @@ public abstract class SynchronisationAsyncTask<T extends BaseModel> extends Asyn
         }
     }
 
-    void sendRecordsToServer(List<T> recordsToSyncWithServer) throws IOException, JSONException, HttpException {
+    void sendRecordsToServer(RecordStream<T> recordsToSyncWithServer) throws IOException, JSONException, HttpException {
         setProgressAndNotify(context.getString(R.string.synchronize_step_2), formSectionProgress);
         String subStatusFormat = "Uploading Record %s of " + recordsToSyncWithServer.size();
         int counter = 0;
@@ -139,6 +146,7 @@ public abstract class SynchronisationAsyncTask<T extends BaseModel> extends Asyn
                 break;
             }
             recordSyncService.sync(baseModel, currentUser);
+            changedRecords++;
             setProgressAndNotify(String.format(subStatusFormat, ++counter), startProgress);
             startProgress += 1;
         }
@@ -149,21 +157,38 @@ public abstract class SynchronisationAsyncTask<T extends BaseModel> extends Asyn
         int counter = 0;
         setProgressAndNotify(context.getString(R.string.synchronize_step_3), startProgress);
 
+        List<T> pendingRecords = new ArrayList<T>();
         for (String idToDownload : idsToDownload) {
             T incomingRecord = recordSyncService.getRecord(idToDownload);
             if (isCancelled()) {
                 break;
             }
-            try {
-                repository.createOrUpdateWithoutHistory(incomingRecord);
-                recordSyncService.setMedia(incomingRecord);
-                recordSyncService.setLastSyncedAt(incomingRecord);
+            pendingRecords.add(incomingRecord);
+            if (pendingRecords.size() == DOWNLOAD_BATCH_SIZE) {
+                counter = saveDownloadedRecords(pendingRecords, subStatusFormat, counter, startProgress + counter);
+                pendingRecords = new ArrayList<T>();
+            }
+        }
+        saveDownloadedRecords(pendingRecords, subStatusFormat, counter, startProgress + counter);
+    }
+
+    private int saveDownloadedRecords(List<T> pendingRecords, String subStatusFormat, int counter, int startProgress) {
+        if (pendingRecords.isEmpty()) {
+            return counter;
+        }
+        try {
+            repository.createOrUpdateAllWithoutHistory(pendingRecords);
+            changedRecords += pendingRecords.size();
+            for (T record : pendingRecords) {
+                recordSyncService.setMedia(record);
+                recordSyncService.setLastSyncedAt(record);
                 setProgressAndNotify(String.format(subStatusFormat, ++counter), startProgress);
                 startProgress += 1;
-            } catch (Exception e) {
-                Log.e("SyncAllDataTask", "Error syncing record", e);
-                throw new RuntimeException(e);
             }
+            return counter;
+        } catch (Exception e) {
+            Log.e("SyncAllDataTask", "Error syncing record", e);
+            throw new RuntimeException(e);
         }
     }
 
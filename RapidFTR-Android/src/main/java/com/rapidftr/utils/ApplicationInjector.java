@@ -2,15 +2,19 @@ package com.rapidftr.utils;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.content.res.Resources;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provider;
 import com.google.inject.Provides;
 import com.google.inject.TypeLiteral;
 import com.google.inject.name.Named;
+import com.rapidftr.R;
 import com.rapidftr.RapidFtrApplication;
 import com.rapidftr.database.DatabaseHelper;
 import com.rapidftr.database.DatabaseSession;
-import com.rapidftr.database.SQLCipherHelper;
+import com.rapidftr.database.InstrumentedSession;
+import com.rapidftr.database.QueryStats;
+import com.rapidftr.database.SharedSessions;
 import com.rapidftr.features.FeatureToggle;
 import com.rapidftr.model.Child;
 import com.rapidftr.model.Enquiry;
@@ -33,7 +37,6 @@ public class ApplicationInjector extends AbstractModule {
     @Override
     protected void configure() {
         bind(Context.class).to(RapidFtrApplication.class);
-        bind(DatabaseHelper.class).to(SQLCipherHelper.class);
         bind(new TypeLiteral<Repository<Child>>() {
         }).to(ChildRepository.class);
         bind(new TypeLiteral<Repository<Enquiry>>() {
@@ -69,8 +72,19 @@ public class ApplicationInjector extends AbstractModule {
     }
 
     @Provides
-    public DatabaseSession getDatabaseSession(DatabaseHelper helper) {
-        return helper.getSession();
+    public DatabaseHelper getDatabaseHelper(User user, Context context) {
+        return SharedSessions.forDatabase(user, context);
+    }
+
+    @Provides
+    public DatabaseSession getDatabaseSession(DatabaseHelper helper, RapidFtrApplication application) {
+        DatabaseSession session = helper.getSession();
+        Resources resources = application.getResources();
+        if (!resources.getBoolean(R.bool.database_instrumentation)) {
+            return session;
+        }
+        QueryStats.shared().setSlowMillis(resources.getInteger(R.integer.database_slow_query_millis));
+        return new InstrumentedSession(session, QueryStats.shared());
     }
 
     @Provides
@@ -13,6 +13,7 @@ import com.rapidftr.forms.FormSection;
 import com.rapidftr.forms.FormSectionTest;
 import com.rapidftr.model.Child;
 import com.rapidftr.repository.ChildRepository;
+import com.rapidftr.repository.SearchPosition;
 import com.rapidftr.service.FormService;
 import com.rapidftr.utils.SpyActivityController;
 import org.json.JSONException;
@@ -73,8 +74,7 @@ public class SearchActivityTest {
         List<Child> searchResults = new ArrayList<Child>();
         searchResults.add(new Child("id1", "user1", "{ \"name\" : \"child1\", \"test2\" : 0, \"test3\" : [ \"1\", 2, \"3\" ] }"));
         String searchString = "Hild";
-        when(childRepository.getFirstPageOfChildrenMatchingString(eq(searchString))).thenReturn(searchResults);
-        when(formService.getHighlightedFields(anyString())).thenReturn(highLightedFields);
+        when(childRepository.getChildrenMatchingString(eq(searchString), any(SearchPosition.class))).thenReturn(searchResults);
 
         activityController.create();
         TextView textView = (TextView) activity.findViewById(R.id.search_text);
@@ -89,7 +89,7 @@ public class SearchActivityTest {
     public void shouldShowEmptyViewForNoSearchResults() throws JSONException {
         List<Child> searchResults = new ArrayList<Child>();
         String searchString = "Hild";
-        when(childRepository.getFirstPageOfChildrenMatchingString(eq(searchString))).thenReturn(searchResults);
+        when(childRepository.getChildrenMatchingString(eq(searchString), any(SearchPosition.class))).thenReturn(searchResults);
 
         activityController.create();
         TextView textView = (TextView) activity.findViewById(R.id.search_text);
@@ -107,7 +107,7 @@ public class SearchActivityTest {
         textView.setText(searchString);
         activity.findViewById(R.id.search_btn).performClick();
         ListView listView = (ListView) activity.findViewById(R.id.child_list);
-        verify(childRepository, never()).getFirstPageOfChildrenMatchingString(eq(searchString));
+        verify(childRepository, never()).getChildrenMatchingString(eq(searchString), any(SearchPosition.class));
         assertNotNull(listView.getEmptyView());
     }
 
@@ -8,6 +8,7 @@ import com.rapidftr.R;
 import com.rapidftr.RapidFtrApplication;
 import com.rapidftr.features.FeatureToggle;
 import com.rapidftr.model.Child;
+import com.rapidftr.model.RecordSummary;
 import com.rapidftr.repository.ChildRepository;
 import com.rapidftr.service.FormService;
 import com.rapidftr.utils.SpyActivityController;
@@ -54,9 +55,9 @@ public class ViewAllChildrenActivityTest {
 
     @Test
     public void shouldListChildrenCreatedByTheLoggedInUser() throws JSONException {
-        List<Child> children = new ArrayList<Child>();
-        children.add(new Child("id1", "user1", "{ \"name\" : \"child1\", \"test2\" : 0, \"test3\" : [ \"1\", 2, \"3\" ] }"));
-        when(childRepository.getRecordsForFirstPage()).thenReturn(children);
+        List<RecordSummary> children = new ArrayList<RecordSummary>();
+        children.add(new RecordSummary("{ \"unique_identifier\" : \"id1\", \"name\" : \"child1\" }"));
+        when(childRepository.getSummariesForFirstPage()).thenReturn(children);
 
         activityController.create();
         ListView listView = (ListView) activity.findViewById(R.id.child_list);
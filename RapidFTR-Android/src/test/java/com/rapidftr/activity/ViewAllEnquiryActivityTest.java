@@ -6,6 +6,7 @@ import com.rapidftr.CustomTestRunner;
 import com.rapidftr.R;
 import com.rapidftr.RapidFtrApplication;
 import com.rapidftr.model.Enquiry;
+import com.rapidftr.model.RecordSummary;
 import com.rapidftr.repository.EnquiryRepository;
 import com.rapidftr.service.FormService;
 import com.rapidftr.utils.SpyActivityController;
@@ -47,10 +48,10 @@ public class ViewAllEnquiryActivityTest {
 
     @Test
     public void shouldListAllEnquiries() throws JSONException {
-        List<Enquiry> enquiries = new ArrayList<Enquiry>();
-        enquiries.add(new Enquiry("{name:NAME}", "CREATEDBY"));
-        enquiries.add(new Enquiry("{name:NAME}", "CREATEDBY"));
-        when(repository.getRecordsForFirstPage()).thenReturn(enquiries);
+        List<RecordSummary> enquiries = new ArrayList<RecordSummary>();
+        enquiries.add(new RecordSummary("{name:NAME}"));
+        enquiries.add(new RecordSummary("{name:NAME}"));
+        when(repository.getSummariesForFirstPage()).thenReturn(enquiries);
 
         activityController.create();
         ListView listView = (ListView) activity.findViewById(R.id.enquiry_list);
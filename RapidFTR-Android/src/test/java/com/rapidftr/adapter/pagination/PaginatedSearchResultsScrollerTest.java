@@ -5,6 +5,7 @@ import com.rapidftr.adapter.HighlightedFieldsViewAdapter;
 import com.rapidftr.model.Child;
 import com.rapidftr.repository.ChildRepository;
 import com.rapidftr.repository.ChildSearch;
+import com.rapidftr.repository.SearchPosition;
 import org.json.JSONException;
 import org.junit.Before;
 import org.junit.Test;
@@ -13,7 +14,6 @@ import org.junit.runner.RunWith;
 import java.util.Arrays;
 import java.util.List;
 
-import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.*;
 
 @RunWith(CustomTestRunner.class)
@@ -32,15 +32,15 @@ public class PaginatedSearchResultsScrollerTest {
 
     @Test
     public void shouldLoadRecordsForNextPage() throws JSONException {
-        childSearch = new ChildSearch("", repository, null);
+        childSearch = new ChildSearch("", repository);
         scroller = spy(new PaginatedSearchResultsScroller(childSearch, highlightedFieldsViewAdapter));
         List<Child> children = Arrays.asList(new Child("id", "user", "{\"name\": \"Foo Bar\"}"));
-        when(repository.getChildrenMatchingStringBetween(anyString(), anyInt(), anyInt())).thenReturn(children);
+        when(repository.getChildrenMatchingString(anyString(), any(SearchPosition.class))).thenReturn(children);
         doReturn(true).when(scroller).shouldQueryForMoreData();
 
         scroller.loadRecordsForNextPage();
 
-        verify(repository, times(1)).getChildrenMatchingStringBetween(anyString(), anyInt(), anyInt());
+        verify(repository, times(1)).getChildrenMatchingString(anyString(), any(SearchPosition.class));
         verify(highlightedFieldsViewAdapter, times(1)).addAll(children);
     }
 
@@ -51,8 +51,22 @@ public class PaginatedSearchResultsScrollerTest {
 
         scroller.loadRecordsForNextPage();
 
-        verify(repository, times(0)).getChildrenMatchingStringBetween(anyString(), anyInt(), anyInt());
+        verify(repository, times(0)).getChildrenMatchingString(anyString(), any(SearchPosition.class));
         verify(highlightedFieldsViewAdapter, times(0)).addAll(anyList());
     }
 
+    @Test
+    public void shouldNotQueryAgainOnceTheResultsRunOut() throws JSONException {
+        childSearch = new ChildSearch("", repository);
+        scroller = spy(new PaginatedSearchResultsScroller(childSearch, highlightedFieldsViewAdapter));
+        List<Child> children = Arrays.asList(new Child("id", "user", "{\"name\": \"Foo Bar\"}"));
+        when(repository.getChildrenMatchingString(anyString(), any(SearchPosition.class))).thenReturn(children);
+        doReturn(true).when(scroller).shouldQueryForMoreData();
+
+        scroller.loadRecordsForNextPage();
+        scroller.loadRecordsForNextPage();
+
+        verify(repository, times(1)).getChildrenMatchingString(anyString(), any(SearchPosition.class));
+    }
+
 }
@@ -2,7 +2,7 @@ package com.rapidftr.adapter.pagination;
 
 import com.rapidftr.CustomTestRunner;
 import com.rapidftr.adapter.HighlightedFieldsViewAdapter;
-import com.rapidftr.model.Child;
+import com.rapidftr.model.RecordSummary;
 import com.rapidftr.repository.ChildRepository;
 import org.json.JSONException;
 import org.junit.Before;
@@ -12,14 +12,13 @@ import org.junit.runner.RunWith;
 import java.util.Arrays;
 import java.util.List;
 
-import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.*;
 
 @RunWith(CustomTestRunner.class)
 public class ViewAllChildScrollerTest {
 
     private ChildRepository repository;
-    private HighlightedFieldsViewAdapter<Child> highlightedFieldsViewAdapter;
+    private HighlightedFieldsViewAdapter<RecordSummary> highlightedFieldsViewAdapter;
     private ViewAllChildScroller scroller;
 
     @Before
@@ -31,13 +30,13 @@ public class ViewAllChildScrollerTest {
 
     @Test
     public void shouldLoadRecordsForNextPage() throws JSONException {
-        List<Child> children = Arrays.asList(new Child("id", "user", "{\"name\": \"Foo Bar\"}"));
-        when(repository.getRecordsBetween(anyInt(), anyInt())).thenReturn(children);
+        List<RecordSummary> children = Arrays.asList(new RecordSummary("{\"name\": \"Foo Bar\"}"));
+        when(repository.getSummariesAfter(anyString())).thenReturn(children);
         doReturn(true).when(scroller).shouldQueryForMoreData();
 
         scroller.loadRecordsForNextPage();
 
-        verify(repository, atLeastOnce()).getRecordsBetween(anyInt(), anyInt());
+        verify(repository, atLeastOnce()).getSummariesAfter(anyString());
         verify(highlightedFieldsViewAdapter, atLeastOnce()).addAll(children);
     }
 
@@ -47,7 +46,7 @@ public class ViewAllChildScrollerTest {
 
         scroller.loadRecordsForNextPage();
 
-        verify(repository, times(0)).getRecordsBetween(anyInt(), anyInt());
+        verify(repository, times(0)).getSummariesAfter(anyString());
         verify(highlightedFieldsViewAdapter, times(0)).addAll(anyList());
     }
 
@@ -2,7 +2,7 @@ package com.rapidftr.adapter.pagination;
 
 import com.rapidftr.CustomTestRunner;
 import com.rapidftr.adapter.HighlightedFieldsViewAdapter;
-import com.rapidftr.model.Enquiry;
+import com.rapidftr.model.RecordSummary;
 import com.rapidftr.repository.EnquiryRepository;
 import org.json.JSONException;
 import org.junit.Before;
@@ -12,14 +12,13 @@ import org.junit.runner.RunWith;
 import java.util.Arrays;
 import java.util.List;
 
-import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.*;
 
 @RunWith(CustomTestRunner.class)
 public class ViewAllEnquiryScrollerTest {
 
     private EnquiryRepository repository;
-    private HighlightedFieldsViewAdapter<Enquiry> highlightedFieldsViewAdapter;
+    private HighlightedFieldsViewAdapter<RecordSummary> highlightedFieldsViewAdapter;
     private ViewAllEnquiryScroller scroller;
 
     @Before
@@ -31,13 +30,13 @@ public class ViewAllEnquiryScrollerTest {
 
     @Test
     public void shouldLoadRecordsForNextPage() throws JSONException {
-        List<Enquiry> enquiries = Arrays.asList(new Enquiry("{\"name\": \"Foo Bar\"}"));
-        when(repository.getRecordsBetween(anyInt(), anyInt())).thenReturn(enquiries);
+        List<RecordSummary> enquiries = Arrays.asList(new RecordSummary("{\"name\": \"Foo Bar\"}"));
+        when(repository.getSummariesAfter(anyString())).thenReturn(enquiries);
         doReturn(true).when(scroller).shouldQueryForMoreData();
 
         scroller.loadRecordsForNextPage();
 
-        verify(repository, atLeastOnce()).getRecordsBetween(anyInt(), anyInt());
+        verify(repository, atLeastOnce()).getSummariesAfter(anyString());
         verify(highlightedFieldsViewAdapter, atLeastOnce()).addAll(enquiries);
     }
 
@@ -47,7 +46,7 @@ public class ViewAllEnquiryScrollerTest {
 
         scroller.loadRecordsForNextPage();
 
-        verify(repository, times(0)).getRecordsBetween(anyInt(), anyInt());
+        verify(repository, times(0)).getSummariesAfter(anyString());
         verify(highlightedFieldsViewAdapter, times(0)).addAll(anyList());
     }
 
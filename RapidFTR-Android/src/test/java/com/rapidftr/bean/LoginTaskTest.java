@@ -111,6 +111,8 @@ public class LoginTaskTest {
         doReturn(user).when(loginTask).loadOnline("test1", "test2", "test3");
         doNothing().when(loginTask).migrateIfVerified(user);
         doNothing().when(loginTask).cacheForOffline(user);
+        doNothing().when(loginTask).convertRecordContent(user);
+        doNothing().when(loginTask).backfillSearchIndexes(user);
         doThrow(loginException).when(loginTask).loadFormSections();
 
         boolean result = loginTask.loginOnline("test1", "test2", "test3");
@@ -124,6 +126,8 @@ public class LoginTaskTest {
         doReturn(user).when(loginTask).loadOnline("test1", "test2", "test3");
         doNothing().when(loginTask).migrateIfVerified(user);
         doNothing().when(loginTask).cacheForOffline(user);
+        doNothing().when(loginTask).convertRecordContent(user);
+        doNothing().when(loginTask).backfillSearchIndexes(user);
         doNothing().when(loginTask).loadFormSections();
 
         boolean result = loginTask.loginOnline("test1", "test2", "test3");
@@ -159,6 +163,8 @@ public class LoginTaskTest {
         User user = mock(User.class);
         doReturn(user).when(loginTask).loadOffline("test1", "test2");
         doNothing().when(loginTask).cacheForOffline(user);
+        doNothing().when(loginTask).convertRecordContent(user);
+        doNothing().when(loginTask).backfillSearchIndexes(user);
 
         boolean result = loginTask.loginOffline("test1", "test2");
         assertTrue(result);
@@ -0,0 +1,79 @@
+package com.rapidftr.database;
+
+import com.rapidftr.CustomTestRunner;
+import com.rapidftr.RapidFtrApplication;
+import com.rapidftr.model.Child;
+import com.rapidftr.model.User;
+import com.rapidftr.repository.ChildRepository;
+import com.rapidftr.repository.SearchPosition;
+import org.json.JSONException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(CustomTestRunner.class)
+public class ChildArchiveTest {
+
+    private DatabaseSession session;
+    private ChildRepository repository;
+    private ChildArchive archive;
+
+    @Before
+    public void setUp() {
+        session = new ShadowSQLiteHelper("test_database").getSession();
+        RapidFtrApplication application = (RapidFtrApplication) Robolectric.getShadowApplication().getApplicationContext();
+        application.setCurrentUser(new User("userName", "password", true, "http://1.2.3.4"));
+        repository = new ChildRepository("user1", session, application);
+        archive = new ChildArchive(session);
+    }
+
+    @Test
+    public void shouldMoveOnlySyncedChildrenUntouchedSinceTheCutoff() throws Exception {
+        repository.createOrUpdate(new Child("id1", "user1", "{ 'name' : 'john', '_id' : 'internal1' }", true));
+        repository.createOrUpdate(new Child("id2", "user1", "{ 'name' : 'john' }", false));
+
+        assertTrue(archive.hasChildrenUntouchedSince(System.currentTimeMillis() + 1000));
+        assertEquals(1, archive.archiveBatchUntouchedSince(System.currentTimeMillis() + 1000));
+
+        assertFalse(archive.hasChildrenUntouchedSince(System.currentTimeMillis() + 1000));
+        assertEquals(1, repository.size());
+        assertEquals(asList("id2"), ids(repository.getChildrenMatchingString("john", new SearchPosition())));
+        assertEquals(asList("id1"), ids(repository.getArchivedChildrenMatchingString("john", new SearchPosition())));
+        assertTrue(repository.exists("id1"));
+        assertEquals("john", repository.get("id1").getString("name"));
+        assertEquals("id1", repository.getAllWithInternalIds(asList("internal1")).get(0).getUniqueId());
+        assertTrue(repository.getAllIdsAndRevs().containsKey("internal1"));
+    }
+
+    @Test
+    public void shouldMoveAnArchivedChildBackWhenItIsSaved() throws Exception {
+        repository.createOrUpdate(new Child("id1", "user1", "{ 'name' : 'john' }", true));
+        archive.archiveBatchUntouchedSince(System.currentTimeMillis() + 1000);
+
+        Child child = repository.get("id1");
+        child.put("name", "jack");
+        repository.createOrUpdate(child);
+
+        assertEquals(1, repository.size());
+        assertEquals(asList("id1"), ids(repository.getChildrenMatchingString("jack", new SearchPosition())));
+        assertTrue(repository.getArchivedChildrenMatchingString("john", new SearchPosition()).isEmpty());
+        assertEquals(0, DatabaseStatements.queryForLong(session, "SELECT COUNT(1) FROM archived_children"));
+    }
+
+    private static List<String> ids(List<Child> children) throws JSONException {
+        List<String> ids = new ArrayList<String>();
+        for (Child child : children) {
+            ids.add(child.getUniqueId());
+        }
+        return ids;
+    }
+}
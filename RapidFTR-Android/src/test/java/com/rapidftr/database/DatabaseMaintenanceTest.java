@@ -0,0 +1,76 @@
+package com.rapidftr.database;
+
+import android.database.Cursor;
+import com.rapidftr.CustomTestRunner;
+import lombok.Cleanup;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(CustomTestRunner.class)
+public class DatabaseMaintenanceTest {
+
+    private DatabaseSession session;
+    private DatabaseMaintenance maintenance;
+
+    @Before
+    public void setUp() {
+        session = new ShadowSQLiteHelper("test_database").getSession();
+        maintenance = new DatabaseMaintenance(0, TimeUnit.SECONDS.toMillis(10), 200, 1024,
+                TimeUnit.DAYS.toMillis(7), TimeUnit.DAYS.toMillis(90));
+    }
+
+    @Test
+    public void shouldAnalyzeAndCheckIntegrityOnTheFirstRun() {
+        maintenance.runDueTasks(session);
+
+        assertEquals(asList("ANALYZE ok", "INTEGRITY_CHECK ok"), log());
+    }
+
+    @Test
+    public void shouldNotRunTasksAgainBeforeTheyAreDue() {
+        maintenance.runDueTasks(session);
+        maintenance.runDueTasks(session);
+
+        assertEquals(2, log().size());
+    }
+
+    @Test
+    public void shouldAnalyzeAgainOnceEnoughRecordsChanged() {
+        maintenance.runDueTasks(session);
+        maintenance.recordsChanged(200);
+
+        maintenance.runDueTasks(session);
+
+        assertEquals(asList("ANALYZE ok", "INTEGRITY_CHECK ok", "ANALYZE ok"), log());
+        assertFalse(maintenance.isDue(session, DatabaseMaintenance.Task.ANALYZE));
+    }
+
+    @Test
+    public void shouldLogACancelledTask() {
+        maintenance.cancel();
+
+        assertEquals(DatabaseMaintenance.CANCELLED, maintenance.run(session, DatabaseMaintenance.Task.ANALYZE));
+        assertEquals(asList("ANALYZE cancelled"), log());
+        assertTrue(maintenance.isDue(session, DatabaseMaintenance.Task.ANALYZE));
+    }
+
+    private List<String> log() {
+        List<String> entries = new ArrayList<String>();
+        @Cleanup Cursor cursor = session.rawQuery("SELECT task, result, size_before FROM maintenance_log ORDER BY id", null);
+        while (cursor.moveToNext()) {
+            assertTrue(cursor.getLong(2) > 0);
+            entries.add(cursor.getString(0) + " " + cursor.getString(1));
+        }
+        return entries;
+    }
+}
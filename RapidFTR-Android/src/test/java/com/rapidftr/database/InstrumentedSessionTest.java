@@ -0,0 +1,70 @@
+package com.rapidftr.database;
+
+import android.database.Cursor;
+import com.rapidftr.CustomTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(CustomTestRunner.class)
+public class InstrumentedSessionTest {
+
+    private QueryStats stats;
+    private InstrumentedSession session;
+
+    @Before
+    public void setUp() {
+        stats = new QueryStats(QueryStats.DEFAULT_SLOW_MILLIS);
+        session = new InstrumentedSession(new ShadowSQLiteHelper("test_database").getSession(), stats);
+        session.execSQL("CREATE TABLE IF NOT EXISTS names (name text)");
+        session.execSQL("DELETE FROM names");
+    }
+
+    @Test
+    public void shouldFoldLiteralsAndPlaceholderListsIntoTheShape() {
+        assertEquals("SELECT * FROM children WHERE name = ? AND age > ? AND id IN (?)",
+                QueryStats.shapeOf("SELECT *  FROM children\n WHERE name = 'o''brien' AND age > 12 AND id IN (?, ?,?)"));
+        assertEquals("SELECT x1 FROM t2", QueryStats.shapeOf("SELECT x1 FROM t2"));
+    }
+
+    @Test
+    public void shouldRecordTheRowsAndBytesOfAQueryOnceItsCursorIsClosed() {
+        DatabaseStatements.execute(session, "INSERT INTO names(name) VALUES (?)", "john");
+        DatabaseStatements.execute(session, "INSERT INTO names(name) VALUES (?)", "jack");
+
+        Cursor cursor = session.rawQuery("SELECT name FROM names WHERE name LIKE 'j%'", new String[0]);
+        while (cursor.moveToNext()) {
+            cursor.getString(0);
+        }
+        assertNull(stats.getShape("SELECT name FROM names WHERE name LIKE ?"));
+        cursor.close();
+        cursor.close();
+
+        QueryStats.Shape query = stats.getShape("SELECT name FROM names WHERE name LIKE ?");
+        assertEquals(1, query.count);
+        assertEquals(2, query.rows);
+        assertEquals(8, query.bytes);
+        assertEquals(2, stats.getShape("INSERT INTO names(name) VALUES (?)").count);
+    }
+
+    @Test
+    public void shouldKeepOneWrapperPerCompiledStatement() {
+        assertSame(session.compile("SELECT COUNT(1) FROM names"), session.compile("SELECT COUNT(1) FROM names"));
+    }
+
+    @Test
+    public void shouldLogSlowStatementsWithoutTheirValues() {
+        stats.setSlowMillis(0);
+
+        session.execSQL("INSERT INTO names(name) VALUES ('secret')");
+
+        QueryStats.SlowStatement slow = stats.getSlowStatements().get(0);
+        assertEquals("INSERT INTO names(name) VALUES (?)", slow.getShape());
+        assertFalse(stats.report().contains("secret"));
+    }
+}
@@ -0,0 +1,535 @@
+package com.rapidftr.database;
+
+import android.content.ContentValues;
+import android.database.AbstractCursor;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDoneException;
+import com.rapidftr.database.migration.Migrations;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Runs the repositories on a database opened through the sqlite-jdbc driver rather than the Android or SQLCipher
+ * classes, so they can be measured off the device against a database file of any size. The schema comes from the same
+ * Migrations as on the device. With a key the connection is keyed the way SQLCipher expects it; the stock sqlite-jdbc
+ * driver ignores the pragma, so the key only takes effect with a SQLCipher build of the driver on the class path.
+ * A session is meant to be used from one thread at a time.
+ */
+public class JdbcSQLiteHelper implements DatabaseHelper {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final JdbcSession session;
+
+    // In memory when the file is null
+    public JdbcSQLiteHelper(File file, String key) {
+        this(file, key, SQLCipherHelper.DB_VERSION);
+    }
+
+    // With the schema of an older version, to measure a migration by calling migrateTo afterwards
+    public JdbcSQLiteHelper(File file, String key, int version) {
+        try {
+            Class.forName("org.sqlite.JDBC");
+            Connection connection = DriverManager.getConnection("jdbc:sqlite:" + (file == null ? ":memory:" : file.getPath()));
+            session = new JdbcSession(connection);
+            if (key != null) {
+                session.execSQL("PRAGMA key = '" + key.replace("'", "''") + "'");
+            }
+            migrateTo(version);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        } catch (java.sql.SQLException e) {
+            throw sqlException(e);
+        }
+    }
+
+    @Override
+    public DatabaseSession getSession() {
+        return session;
+    }
+
+    @Override
+    public void close() {
+        session.close();
+    }
+
+    public void migrateTo(int target) {
+        int version = (int) DatabaseStatements.queryForLong(session, "PRAGMA user_version");
+        if (version >= target) {
+            return;
+        }
+        session.beginTransaction();
+        try {
+            for (int next = version + 1; next <= target; next++) {
+                for (Migrations migration : Migrations.forVersion(next)) {
+                    session.execSQL(migration.getSql());
+                }
+            }
+            session.execSQL("PRAGMA user_version = " + target);
+            session.setTransactionSuccessful();
+        } finally {
+            session.endTransaction();
+        }
+    }
+
+    // The same unchecked exception the Android classes throw, so the repositories handle both alike
+    static SQLException sqlException(java.sql.SQLException cause) {
+        SQLException exception = new SQLException(cause.getMessage());
+        exception.initCause(cause);
+        return exception;
+    }
+
+    private static void bind(PreparedStatement statement, Object[] args) throws java.sql.SQLException {
+        for (int i = 0; args != null && i < args.length; i++) {
+            statement.setObject(i + 1, args[i]);
+        }
+    }
+
+    private static long lastInsertRowId(Connection connection) throws java.sql.SQLException {
+        Statement statement = connection.createStatement();
+        try {
+            ResultSet result = statement.executeQuery("SELECT last_insert_rowid()");
+            return result.next() ? result.getLong(1) : -1;
+        } finally {
+            statement.close();
+        }
+    }
+
+    public static class JdbcSession implements DatabaseSession {
+
+        private final Connection connection;
+        private final RecordCaches caches = new RecordCaches(RecordCaches.DEFAULT_MAX_SIZE_IN_BYTES_PER_TABLE);
+        private final RecordWriteQueues writeQueues = RecordWriteQueues.writingTo("jdbc", this);
+        private RecordContent.Format contentFormat = RecordContent.Format.PLAIN;
+        private final StatementCache statements = new StatementCache(StatementCache.DEFAULT_CAPACITY) {
+            @Override
+            protected DatabaseStatement compileStatement(String sql) {
+                try {
+                    return new JdbcStatement(connection, connection.prepareStatement(sql));
+                } catch (java.sql.SQLException e) {
+                    throw sqlException(e);
+                }
+            }
+        };
+
+        // Nested transactions commit together, and roll back together once any of them ends without success
+        private int transactionDepth;
+        private boolean transactionSuccessful;
+        private boolean transactionFailed;
+
+        JdbcSession(Connection connection) {
+            this.connection = connection;
+        }
+
+        // Reads the result into memory straight away, as the cursor window does for the pages the repositories ask for
+        @Override
+        public Cursor rawQuery(String sql, String[] selectionArgs) {
+            try {
+                PreparedStatement statement = connection.prepareStatement(sql);
+                try {
+                    bind(statement, selectionArgs);
+                    ResultSet result = statement.executeQuery();
+                    ResultSetMetaData metaData = result.getMetaData();
+                    String[] columns = new String[metaData.getColumnCount()];
+                    for (int i = 0; i < columns.length; i++) {
+                        columns[i] = metaData.getColumnLabel(i + 1);
+                    }
+                    List<Object[]> rows = new ArrayList<Object[]>();
+                    while (result.next()) {
+                        Object[] row = new Object[columns.length];
+                        for (int i = 0; i < columns.length; i++) {
+                            row[i] = result.getObject(i + 1);
+                        }
+                        rows.add(row);
+                    }
+                    result.close();
+                    return new JdbcCursor(columns, rows);
+                } finally {
+                    statement.close();
+                }
+            } catch (java.sql.SQLException e) {
+                throw sqlException(e);
+            }
+        }
+
+        @Override
+        public void execSQL(String sql) {
+            execSQL(sql, null);
+        }
+
+        @Override
+        public void execSQL(String sql, Object[] bindArgs) {
+            try {
+                PreparedStatement statement = connection.prepareStatement(sql);
+                try {
+                    bind(statement, bindArgs);
+                    statement.execute();
+                } finally {
+                    statement.close();
+                }
+            } catch (java.sql.SQLException e) {
+                throw sqlException(e);
+            }
+        }
+
+        @Override
+        public int update(String table, ContentValues values, String whereClause, String[] whereArgs) {
+            List<Object> args = new ArrayList<Object>();
+            StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+            for (Map.Entry<String, Object> value : values.valueSet()) {
+                sql.append(args.isEmpty() ? "" : ", ").append(value.getKey()).append(" = ?");
+                args.add(value.getValue());
+            }
+            if (whereClause != null) {
+                sql.append(" WHERE ").append(whereClause);
+                for (int i = 0; whereArgs != null && i < whereArgs.length; i++) {
+                    args.add(whereArgs[i]);
+                }
+            }
+            try {
+                PreparedStatement statement = connection.prepareStatement(sql.toString());
+                try {
+                    bind(statement, args.toArray());
+                    return statement.executeUpdate();
+                } finally {
+                    statement.close();
+                }
+            } catch (java.sql.SQLException e) {
+                throw sqlException(e);
+            }
+        }
+
+        @Override
+        public long replace(String table, String nullColumnHack, ContentValues values) {
+            try {
+                return replaceOrThrow(table, nullColumnHack, values);
+            } catch (SQLException e) {
+                return -1;
+            }
+        }
+
+        @Override
+        public long replaceOrThrow(String table, String nullColumnHack, ContentValues values) {
+            List<Object> args = new ArrayList<Object>();
+            StringBuilder columns = new StringBuilder();
+            StringBuilder placeholders = new StringBuilder();
+            for (Map.Entry<String, Object> value : values.valueSet()) {
+                columns.append(args.isEmpty() ? "" : ", ").append(value.getKey());
+                placeholders.append(args.isEmpty() ? "?" : ", ?");
+                args.add(value.getValue());
+            }
+            String sql = args.isEmpty()
+                    ? "INSERT OR REPLACE INTO " + table + "(" + nullColumnHack + ") VALUES (NULL)"
+                    : "INSERT OR REPLACE INTO " + table + "(" + columns + ") VALUES (" + placeholders + ")";
+            try {
+                PreparedStatement statement = connection.prepareStatement(sql);
+                try {
+                    bind(statement, args.toArray());
+                    statement.executeUpdate();
+                } finally {
+                    statement.close();
+                }
+                return lastInsertRowId(connection);
+            } catch (java.sql.SQLException e) {
+                throw sqlException(e);
+            }
+        }
+
+        @Override
+        public DatabaseStatement compile(String sql) {
+            return statements.get(sql);
+        }
+
+        @Override
+        public RecordCache getRecordCache(Database table) {
+            return caches.forTable(table);
+        }
+
+        @Override
+        public RecordWriteQueues getWriteQueues() {
+            return writeQueues;
+        }
+
+        @Override
+        public RecordContent.Format getContentFormat() {
+            return contentFormat;
+        }
+
+        public void setContentFormat(RecordContent.Format contentFormat) {
+            this.contentFormat = contentFormat;
+        }
+
+        @Override
+        public void beginTransaction() {
+            try {
+                if (transactionDepth == 0) {
+                    connection.setAutoCommit(false);
+                    transactionFailed = false;
+                }
+                transactionDepth++;
+                transactionSuccessful = false;
+            } catch (java.sql.SQLException e) {
+                throw sqlException(e);
+            }
+        }
+
+        @Override
+        public void setTransactionSuccessful() {
+            transactionSuccessful = true;
+        }
+
+        @Override
+        public void endTransaction() {
+            transactionFailed |= !transactionSuccessful;
+            transactionSuccessful = false;
+            if (--transactionDepth > 0) {
+                return;
+            }
+            try {
+                if (transactionFailed) {
+                    connection.rollback();
+                } else {
+                    connection.commit();
+                }
+                connection.setAutoCommit(true);
+            } catch (java.sql.SQLException e) {
+                throw sqlException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            statements.clear();
+            try {
+                connection.close();
+            } catch (java.sql.SQLException e) {
+                throw sqlException(e);
+            }
+        }
+    }
+
+    public static class JdbcStatement implements DatabaseStatement {
+
+        private final Connection connection;
+        private final PreparedStatement statement;
+
+        JdbcStatement(Connection connection, PreparedStatement statement) {
+            this.connection = connection;
+            this.statement = statement;
+        }
+
+        @Override
+        public void bindString(int index, String value) {
+            try {
+                statement.setString(index, value);
+            } catch (java.sql.SQLException e) {
+                throw sqlException(e);
+            }
+        }
+
+        @Override
+        public void bindLong(int index, long value) {
+            try {
+                statement.setLong(index, value);
+            } catch (java.sql.SQLException e) {
+                throw sqlException(e);
+            }
+        }
+
+        @Override
+        public void bindDouble(int index, double value) {
+            try {
+                statement.setDouble(index, value);
+            } catch (java.sql.SQLException e) {
+                throw sqlException(e);
+            }
+        }
+
+        @Override
+        public void bindBlob(int index, byte[] value) {
+            try {
+                statement.setBytes(index, value);
+            } catch (java.sql.SQLException e) {
+                throw sqlException(e);
+            }
+        }
+
+        @Override
+        public void bindNull(int index) {
+            try {
+                statement.setNull(index, java.sql.Types.NULL);
+            } catch (java.sql.SQLException e) {
+                throw sqlException(e);
+            }
+        }
+
+        @Override
+        public void clearBindings() {
+            try {
+                statement.clearParameters();
+            } catch (java.sql.SQLException e) {
+                throw sqlException(e);
+            }
+        }
+
+        @Override
+        public void execute() {
+            try {
+                statement.execute();
+            } catch (java.sql.SQLException e) {
+                throw sqlException(e);
+            }
+        }
+
+        @Override
+        public long executeInsert() {
+            try {
+                return statement.executeUpdate() > 0 ? lastInsertRowId(connection) : -1;
+            } catch (java.sql.SQLException e) {
+                throw sqlException(e);
+            }
+        }
+
+        @Override
+        public long simpleQueryForLong() {
+            try {
+                ResultSet result = statement.executeQuery();
+                try {
+                    if (!result.next()) {
+                        throw new SQLiteDoneException();
+                    }
+                    return result.getLong(1);
+                } finally {
+                    result.close();
+                }
+            } catch (java.sql.SQLException e) {
+                throw sqlException(e);
+            }
+        }
+
+        @Override
+        public String simpleQueryForString() {
+            try {
+                ResultSet result = statement.executeQuery();
+                try {
+                    if (!result.next()) {
+                        throw new SQLiteDoneException();
+                    }
+                    return result.getString(1);
+                } finally {
+                    result.close();
+                }
+            } catch (java.sql.SQLException e) {
+                throw sqlException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                statement.close();
+            } catch (java.sql.SQLException e) {
+                throw sqlException(e);
+            }
+        }
+    }
+
+    // Hands text over as a blob too, as the cursor window does, which is how RecordContent reads the record content
+    static class JdbcCursor extends AbstractCursor {
+
+        private final String[] columns;
+        private final List<Object[]> rows;
+
+        JdbcCursor(String[] columns, List<Object[]> rows) {
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        @Override
+        public int getCount() {
+            return rows.size();
+        }
+
+        @Override
+        public String[] getColumnNames() {
+            return columns;
+        }
+
+        @Override
+        public int getType(int column) {
+            Object value = get(column);
+            if (value == null) {
+                return FIELD_TYPE_NULL;
+            } else if (value instanceof byte[]) {
+                return FIELD_TYPE_BLOB;
+            } else if (value instanceof Float || value instanceof Double) {
+                return FIELD_TYPE_FLOAT;
+            } else if (value instanceof Number) {
+                return FIELD_TYPE_INTEGER;
+            }
+            return FIELD_TYPE_STRING;
+        }
+
+        @Override
+        public String getString(int column) {
+            Object value = get(column);
+            return value == null ? null : value instanceof byte[] ? new String((byte[]) value, UTF_8) : value.toString();
+        }
+
+        @Override
+        public byte[] getBlob(int column) {
+            Object value = get(column);
+            return value == null ? null : value instanceof byte[] ? (byte[]) value : value.toString().getBytes(UTF_8);
+        }
+
+        @Override
+        public short getShort(int column) {
+            return (short) getLong(column);
+        }
+
+        @Override
+        public int getInt(int column) {
+            return (int) getLong(column);
+        }
+
+        @Override
+        public long getLong(int column) {
+            Object value = get(column);
+            return value == null ? 0 : value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString());
+        }
+
+        @Override
+        public float getFloat(int column) {
+            return (float) getDouble(column);
+        }
+
+        @Override
+        public double getDouble(int column) {
+            Object value = get(column);
+            return value == null ? 0 : value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+        }
+
+        @Override
+        public boolean isNull(int column) {
+            return get(column) == null;
+        }
+
+        private Object get(int column) {
+            if (mPos < 0 || mPos >= rows.size()) {
+                throw new android.database.CursorIndexOutOfBoundsException(mPos, rows.size());
+            }
+            return rows.get(mPos)[column];
+        }
+    }
+}
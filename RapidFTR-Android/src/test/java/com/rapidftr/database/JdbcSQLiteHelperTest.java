@@ -0,0 +1,65 @@
+package com.rapidftr.database;
+
+import com.rapidftr.CustomTestRunner;
+import com.rapidftr.RapidFtrApplication;
+import com.rapidftr.model.Child;
+import com.rapidftr.model.User;
+import com.rapidftr.repository.ChildRepository;
+import com.rapidftr.repository.SearchPosition;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(CustomTestRunner.class)
+public class JdbcSQLiteHelperTest {
+
+    private JdbcSQLiteHelper helper;
+    private DatabaseSession session;
+
+    @Before
+    public void setUp() {
+        helper = new JdbcSQLiteHelper(null, null);
+        session = helper.getSession();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void shouldRollBackTheOuterTransactionWhenANestedOneFails() {
+        session.beginTransaction();
+        try {
+            DatabaseStatements.execute(session, "INSERT INTO children(id, child_owner, child_json, synced) VALUES (?, ?, ?, ?)",
+                    "id1", "user1", "{}", "false");
+            session.beginTransaction();
+            session.endTransaction();
+            session.setTransactionSuccessful();
+        } finally {
+            session.endTransaction();
+        }
+
+        assertEquals(0, DatabaseStatements.queryForLong(session, "SELECT COUNT(1) FROM children"));
+        assertEquals(SQLCipherHelper.DB_VERSION, DatabaseStatements.queryForLong(session, "PRAGMA user_version"));
+    }
+
+    @Test
+    public void shouldRunTheChildRepositoryOnTheMigratedSchema() throws Exception {
+        RapidFtrApplication application = (RapidFtrApplication) Robolectric.getShadowApplication().getApplicationContext();
+        application.setCurrentUser(new User("user1", "password", true, "http://1.2.3.4"));
+        ChildRepository repository = new ChildRepository("user1", session, application);
+
+        repository.createOrUpdate(new Child("id1", "user1", "{ 'name' : 'john', '_id' : 'internal1' }", true));
+
+        assertTrue(repository.exists("id1"));
+        assertEquals("john", repository.get("id1").getString("name"));
+        assertEquals("id1", repository.getChildrenMatchingString("john", new SearchPosition()).get(0).getUniqueId());
+        assertTrue(repository.getAllIdsAndRevs().containsKey("internal1"));
+    }
+}
@@ -0,0 +1,129 @@
+package com.rapidftr.database;
+
+import android.database.Cursor;
+import com.rapidftr.CustomTestRunner;
+import lombok.Cleanup;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.rapidftr.database.DatabaseStatements.execute;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Shows what the v003 indexes change for the lookups they were added for: each query's EXPLAIN QUERY PLAN and average
+ * time on 50k rows of each table, on the version 2 schema and again after migrating to version 3. Run it with
+ *   mvn test -Dtest=QueryPlanBenchmark
+ * It fails if a query does not use the index added for it once migrated.
+ */
+@RunWith(CustomTestRunner.class)
+public class QueryPlanBenchmark {
+
+    static final int ROWS = 50000;
+    static final int OWNERS = 10;
+    static final int ITERATIONS = 100;
+    static final int WRITE_BATCH_SIZE = 1000;
+
+    private static final Query[] QUERIES = {
+            new Query("idx_children_owner_id",
+                    "SELECT child_json FROM children WHERE child_owner = ? AND id > ? ORDER BY id LIMIT 30", "user3", "025000"),
+            new Query("idx_children_synced_owner",
+                    "SELECT child_json FROM children WHERE synced = ? AND child_owner = ?", "false", "user3"),
+            new Query("idx_children_internal_id", "SELECT child_json FROM children WHERE _id = ?", "internal025000"),
+            new Query("idx_enquiry_created_by_id",
+                    "SELECT enquiry_json FROM enquiry WHERE created_by = ? AND id > ? ORDER BY id LIMIT 30", "user3", "025000"),
+            new Query("idx_enquiry_synced", "SELECT enquiry_json FROM enquiry WHERE synced = ?", "false"),
+            new Query("idx_enquiry_internal_id", "SELECT enquiry_json FROM enquiry WHERE _id = ?", "internal025000"),
+            new Query("idx_potential_match_enquiry_id", "SELECT id FROM potential_match WHERE enquiry_id = ?", "025000"),
+            new Query("idx_potential_match_child_id", "SELECT id FROM potential_match WHERE child_id = ?", "025000")
+    };
+
+    @Test
+    public void run() throws Exception {
+        JdbcSQLiteHelper helper = new JdbcSQLiteHelper(null, null, 2);
+        try {
+            DatabaseSession session = helper.getSession();
+            load(session);
+
+            System.out.println("Version 2, " + ROWS + " rows of each table");
+            for (Query query : QUERIES) {
+                String plan = query.plan(session);
+                System.out.println(query.describe(plan, session));
+                assertFalse(plan, plan.contains(query.index));
+            }
+
+            helper.migrateTo(3);
+            System.out.println("Version 3");
+            for (Query query : QUERIES) {
+                String plan = query.plan(session);
+                System.out.println(query.describe(plan, session));
+                assertTrue(plan, plan.contains(query.index));
+            }
+        } finally {
+            helper.close();
+        }
+    }
+
+    // About one in ten records is unsynced, and every child and enquiry has a match
+    private static void load(DatabaseSession session) {
+        for (int batch = 0; batch < ROWS; batch += WRITE_BATCH_SIZE) {
+            session.beginTransaction();
+            try {
+                for (int i = batch; i < batch + WRITE_BATCH_SIZE; i++) {
+                    String id = String.format("%06d", i);
+                    String owner = "user" + (i % OWNERS);
+                    String synced = String.valueOf(i % 10 != 0);
+                    execute(session, "INSERT INTO children(id, child_owner, child_json, synced, _id) VALUES (?, ?, ?, ?, ?)",
+                            id, owner, "{ \"name\" : \"child " + i + "\" }", synced, "internal" + id);
+                    execute(session, "INSERT INTO enquiry(id, enquiry_json, created_by, synced, _id, unique_identifier) VALUES (?, ?, ?, ?, ?, ?)",
+                            id, "{ \"name\" : \"enquiry " + i + "\" }", owner, synced, "internal" + id, id);
+                    execute(session, "INSERT INTO potential_match(id, child_id, enquiry_id) VALUES (?, ?, ?)",
+                            "match" + id, id, id);
+                }
+                session.setTransactionSuccessful();
+            } finally {
+                session.endTransaction();
+            }
+        }
+    }
+
+    static class Query {
+        private final String index;
+        private final String sql;
+        private final String[] args;
+
+        Query(String index, String sql, String... args) {
+            this.index = index;
+            this.sql = sql;
+            this.args = args;
+        }
+
+        String plan(DatabaseSession session) {
+            @Cleanup Cursor cursor = session.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+            StringBuilder plan = new StringBuilder();
+            while (cursor.moveToNext()) {
+                plan.append(plan.length() == 0 ? "" : "; ").append(cursor.getString(cursor.getColumnCount() - 1));
+            }
+            return plan.toString();
+        }
+
+        String describe(String plan, DatabaseSession session) {
+            for (int i = 0; i < ITERATIONS / 10; i++) {
+                read(session);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                read(session);
+            }
+            long micros = (System.nanoTime() - start) / ITERATIONS / 1000;
+            return "  " + micros + "us  " + sql + "\n    " + plan;
+        }
+
+        private void read(DatabaseSession session) {
+            @Cleanup Cursor cursor = session.rawQuery(sql, args);
+            while (cursor.moveToNext()) {
+                cursor.getString(0);
+            }
+        }
+    }
+}
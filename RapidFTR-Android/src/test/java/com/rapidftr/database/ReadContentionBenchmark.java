@@ -0,0 +1,152 @@
+package com.rapidftr.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import lombok.Cleanup;
+import net.sqlcipher.database.SQLiteDatabase;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.rapidftr.database.DatabaseStatements.replace;
+
+/*
+ * Measures how long a list screen waits for a page while a sync writes. One thread rewrites the rows of a 10k row
+ * table in sync-sized transactions while the calling thread scrolls through the table a page at a time, once with the
+ * rollback journal and once in WAL mode with read connections. It needs the SQLCipher native libraries, so it runs on
+ * a device, and it works on a throwaway database of its own.
+ */
+public class ReadContentionBenchmark {
+
+    static final int ROWS = 10000;
+    static final int PAGE_SIZE = 30;
+    static final int WRITE_BATCH_SIZE = 250;
+    static final int READ_CONNECTIONS = 2;
+
+    private static final String DATABASE_NAME = "read_contention_benchmark.db";
+    private static final String KEY = "read_contention_benchmark";
+    private static final String CONTENT = new String(new char[1024]).replace('\0', 'x');
+
+    private final Context context;
+
+    public ReadContentionBenchmark(Context context) {
+        this.context = context;
+    }
+
+    public String run() {
+        SQLiteDatabase.loadLibs(context);
+        return "rollback journal: " + measure(false) + "\nwal, " + READ_CONNECTIONS + " readers: " + measure(true);
+    }
+
+    private Result measure(boolean writeAheadLogging) {
+        File file = context.getDatabasePath(DATABASE_NAME);
+        file.getParentFile().mkdirs();
+        delete(file);
+
+        SQLiteDatabase database = SQLiteDatabase.openOrCreateDatabase(file, KEY, null);
+        ReadConnectionPool readers = null;
+        if (writeAheadLogging && SQLCipherHelper.enableWriteAheadLogging(database)) {
+            readers = new ReadConnectionPool(file.getPath(), KEY, READ_CONNECTIONS);
+            readers.openInBackground();
+        }
+        final SQLCipherSession session = new SQLCipherSession(database, readers,
+                new RecordCaches(RecordCaches.DEFAULT_MAX_SIZE_IN_BYTES_PER_TABLE), RecordContent.Format.PLAIN);
+        try {
+            session.execSQL("CREATE TABLE records(id TEXT PRIMARY KEY, owner TEXT, content TEXT)");
+            write(session, 0, ROWS);
+
+            final AtomicBoolean scrolling = new AtomicBoolean(true);
+            final AtomicInteger batchesWritten = new AtomicInteger();
+            Thread writer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    int offset = 0;
+                    while (scrolling.get()) {
+                        write(session, offset, WRITE_BATCH_SIZE);
+                        batchesWritten.incrementAndGet();
+                        offset = (offset + WRITE_BATCH_SIZE) % ROWS;
+                    }
+                }
+            });
+            writer.start();
+            List<Long> pageTimes = scroll(session);
+            scrolling.set(false);
+            writer.join();
+
+            return new Result(pageTimes, batchesWritten.get());
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } finally {
+            session.close();
+            delete(file);
+        }
+    }
+
+    private static void delete(File file) {
+        for (String suffix : new String[]{"", "-journal", "-wal", "-shm"}) {
+            new File(file.getPath() + suffix).delete();
+        }
+    }
+
+    private static void write(SQLCipherSession session, int offset, int count) {
+        session.beginTransaction();
+        try {
+            for (int i = offset; i < offset + count; i++) {
+                ContentValues values = new ContentValues();
+                values.put("id", String.format("%05d", i));
+                values.put("owner", "user");
+                values.put("content", CONTENT);
+                replace(session, "records", values);
+            }
+            session.setTransactionSuccessful();
+        } finally {
+            session.endTransaction();
+        }
+    }
+
+    private static List<Long> scroll(SQLCipherSession session) {
+        List<Long> pageTimes = new ArrayList<Long>();
+        String lastId = "";
+        int rows;
+        do {
+            long start = System.nanoTime();
+            @Cleanup Cursor page = session.rawQuery("SELECT id, content FROM records WHERE owner = ? AND id > ? ORDER BY id LIMIT "
+                    + PAGE_SIZE, new String[]{"user", lastId});
+            rows = 0;
+            while (page.moveToNext()) {
+                lastId = page.getString(0);
+                page.getString(1);
+                rows++;
+            }
+            pageTimes.add(System.nanoTime() - start);
+        } while (rows == PAGE_SIZE);
+        return pageTimes;
+    }
+
+    static class Result {
+        private final List<Long> pageTimes;
+        private final int batchesWritten;
+
+        Result(List<Long> pageTimes, int batchesWritten) {
+            this.pageTimes = new ArrayList<Long>(pageTimes);
+            this.batchesWritten = batchesWritten;
+            Collections.sort(this.pageTimes);
+        }
+
+        long percentileMillis(int percentile) {
+            int index = Math.min(pageTimes.size() - 1, pageTimes.size() * percentile / 100);
+            return pageTimes.get(index) / 1000000;
+        }
+
+        @Override
+        public String toString() {
+            return pageTimes.size() + " pages, median " + percentileMillis(50) + "ms, p95 " + percentileMillis(95)
+                    + "ms, max " + percentileMillis(100) + "ms, " + batchesWritten + " write batches";
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.rapidftr.database;
+
+import com.rapidftr.CustomTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(CustomTestRunner.class)
+public class RecordCacheTest {
+
+    private RecordCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new RecordCache("children", 1024);
+    }
+
+    @Test
+    public void shouldFindRecordsByUniqueIdAndByInternalId() {
+        RecordCache.Entry entry = new RecordCache.Entry("id1", "internal1", "{}", false);
+        cache.put(cache.getGeneration(), entry);
+
+        assertSame(entry, cache.getByUniqueId("id1"));
+        assertSame(entry, cache.getByInternalId("internal1"));
+    }
+
+    @Test
+    public void shouldNotCacheARecordReadBeforeAnInvalidation() {
+        long generation = cache.getGeneration();
+        cache.invalidate("id1");
+
+        cache.put(generation, new RecordCache.Entry("id1", "internal1", "{}", false));
+
+        assertNull(cache.getByUniqueId("id1"));
+        assertNull(cache.getByInternalId("internal1"));
+    }
+
+    @Test
+    public void shouldForgetTheInternalIdOfAnInvalidatedRecord() {
+        cache.put(cache.getGeneration(), new RecordCache.Entry("id1", "internal1", "{}", false));
+
+        cache.invalidate("id1");
+
+        assertNull(cache.getByInternalId("internal1"));
+    }
+
+    @Test
+    public void shouldEvictTheLeastRecentlyUsedRecordsOnceFullInBytes() {
+        String content = new String(new char[200]);
+        cache.put(cache.getGeneration(), new RecordCache.Entry("id1", null, content, false));
+        cache.put(cache.getGeneration(), new RecordCache.Entry("id2", null, content, false));
+        cache.getByUniqueId("id1");
+
+        cache.put(cache.getGeneration(), new RecordCache.Entry("id3", null, content, false));
+
+        assertNull(cache.getByUniqueId("id2"));
+        assertEquals(content, cache.getByUniqueId("id1").getContent());
+    }
+
+    @Test
+    public void shouldReportTheHitRate() {
+        cache.put(cache.getGeneration(), new RecordCache.Entry("id1", null, "{}", false));
+
+        cache.getByUniqueId("id1");
+        cache.getByUniqueId("id1");
+        cache.getByUniqueId("id1");
+        cache.getByUniqueId("id2");
+
+        assertEquals(75, cache.getHitRate());
+    }
+}
@@ -0,0 +1,147 @@
+package com.rapidftr.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import lombok.Cleanup;
+import net.sqlcipher.database.SQLiteDatabase;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.rapidftr.database.DatabaseStatements.replace;
+
+/*
+ * Compares the formats RecordContent can store record content in. It writes the same 5k child-like records into a
+ * throwaway database in each format, then reports the size of the database file and how long it takes to page through
+ * the table and parse every record, the way the list screens do. It needs the SQLCipher native libraries, so it runs
+ * on a device.
+ */
+public class RecordContentBenchmark {
+
+    static final int ROWS = 5000;
+    static final int PAGE_SIZE = 30;
+
+    private static final String DATABASE_NAME = "record_content_benchmark.db";
+    private static final String KEY = "record_content_benchmark";
+
+    private final Context context;
+
+    public RecordContentBenchmark(Context context) {
+        this.context = context;
+    }
+
+    public String run() throws JSONException {
+        SQLiteDatabase.loadLibs(context);
+        List<JSONObject> records = records();
+        StringBuilder results = new StringBuilder();
+        for (RecordContent.Format format : RecordContent.Format.values()) {
+            results.append(format.name().toLowerCase()).append(": ").append(measure(records, format)).append("\n");
+        }
+        return results.toString();
+    }
+
+    private Result measure(List<JSONObject> records, RecordContent.Format format) throws JSONException {
+        File file = context.getDatabasePath(DATABASE_NAME);
+        file.getParentFile().mkdirs();
+        delete(file);
+
+        SQLCipherSession session = new SQLCipherSession(SQLiteDatabase.openOrCreateDatabase(file, KEY, null), null,
+                new RecordCaches(RecordCaches.DEFAULT_MAX_SIZE_IN_BYTES_PER_TABLE), format);
+        try {
+            session.execSQL("CREATE TABLE records(id TEXT PRIMARY KEY, owner TEXT, content TEXT)");
+            session.beginTransaction();
+            try {
+                for (int i = 0; i < records.size(); i++) {
+                    ContentValues values = new ContentValues();
+                    values.put("id", String.format("%05d", i));
+                    values.put("owner", "user");
+                    RecordContent.put(values, "content", records.get(i), format);
+                    replace(session, "records", values);
+                }
+                session.setTransactionSuccessful();
+            } finally {
+                session.endTransaction();
+            }
+            return new Result(file.length(), scroll(session));
+        } finally {
+            session.close();
+            delete(file);
+        }
+    }
+
+    private static List<Long> scroll(SQLCipherSession session) throws JSONException {
+        List<Long> pageTimes = new ArrayList<Long>();
+        String lastId = "";
+        int rows;
+        do {
+            long start = System.nanoTime();
+            @Cleanup Cursor page = session.rawQuery("SELECT id, content FROM records WHERE owner = ? AND id > ? ORDER BY id LIMIT "
+                    + PAGE_SIZE, new String[]{"user", lastId});
+            rows = 0;
+            while (page.moveToNext()) {
+                lastId = page.getString(0);
+                RecordContent.readObject(page, 1);
+                rows++;
+            }
+            pageTimes.add(System.nanoTime() - start);
+        } while (rows == PAGE_SIZE);
+        return pageTimes;
+    }
+
+    private static List<JSONObject> records() throws JSONException {
+        List<JSONObject> records = new ArrayList<JSONObject>();
+        for (int i = 0; i < ROWS; i++) {
+            String id = UUID.randomUUID().toString();
+            JSONObject record = new JSONObject();
+            record.put("unique_identifier", id);
+            record.put("short_id", id.substring(id.length() - 7));
+            record.put("name", "Child " + i);
+            record.put("gender", i % 2 == 0 ? "male" : "female");
+            record.put("date_of_birth", "2004-0" + (i % 9 + 1) + "-1" + (i % 10));
+            record.put("nationality", "Nationality " + (i % 12));
+            record.put("protection_status", i % 3 == 0 ? "Separated" : "Unaccompanied");
+            record.put("created_by", "user");
+            record.put("created_organisation", "Organisation " + (i % 5));
+            record.put("created_at", "2014-01-01 10:00:00UTC");
+            record.put("last_updated_at", "2014-01-02 10:00:00UTC");
+            record.put("posted_from", "Mobile");
+            record.put("characteristics", "Scar on the left hand, speaks two languages, record number " + i);
+            record.put("separation_details", "Separated from the family at the border crossing during the evacuation");
+            record.put("photo_keys", new JSONArray().put("photo-" + i));
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static void delete(File file) {
+        for (String suffix : new String[]{"", "-journal", "-wal", "-shm"}) {
+            new File(file.getPath() + suffix).delete();
+        }
+    }
+
+    static class Result {
+        private final long fileSize;
+        private final List<Long> pageTimes;
+
+        Result(long fileSize, List<Long> pageTimes) {
+            this.fileSize = fileSize;
+            this.pageTimes = pageTimes;
+        }
+
+        @Override
+        public String toString() {
+            long total = 0;
+            for (Long pageTime : pageTimes) {
+                total += pageTime;
+            }
+            return (fileSize / 1024) + "KB on disk, " + pageTimes.size() + " pages loaded in " + total / 1000000
+                    + "ms, " + total / 1000 / pageTimes.size() + "us per page";
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.rapidftr.database;
+
+import android.database.Cursor;
+import com.rapidftr.CustomTestRunner;
+import com.rapidftr.RapidFtrApplication;
+import com.rapidftr.model.Child;
+import com.rapidftr.repository.ChildRepository;
+import lombok.Cleanup;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(CustomTestRunner.class)
+public class RecordContentConversionTest {
+
+    private ShadowSQLiteHelper.ShadowSQLiteSession session;
+    private ChildRepository repository;
+
+    @Before
+    public void setUp() {
+        session = (ShadowSQLiteHelper.ShadowSQLiteSession) new ShadowSQLiteHelper("test_database").getSession();
+        repository = new ChildRepository("user1", session, (RapidFtrApplication) Robolectric.getShadowApplication().getApplicationContext());
+    }
+
+    @Test
+    public void shouldConvertEveryRowToTheConfiguredFormat() throws Exception {
+        for (int i = 0; i < RecordContentConversion.BATCH_SIZE + 1; i++) {
+            repository.createOrUpdate(new Child("id" + i, "user1", "{ 'name' : 'child " + i + "' }"));
+        }
+        session.setContentFormat(RecordContent.Format.DEFLATE);
+        repository.createOrUpdate(new Child("deflated", "user1", "{ 'name' : 'deflated' }"));
+
+        session.setContentFormat(RecordContent.Format.SMILE);
+        new RecordContentConversion(session).run();
+
+        @Cleanup Cursor cursor = session.rawQuery("SELECT child_json FROM children", null);
+        while (cursor.moveToNext()) {
+            assertEquals(RecordContent.Format.SMILE, RecordContent.formatOf(cursor.getBlob(0)));
+        }
+        assertEquals("child 100", repository.get("id100").getString("name"));
+        assertEquals("deflated", repository.get("deflated").getString("name"));
+    }
+
+    @Test
+    public void shouldConvertEveryRowBackToPlainTextWhenTheFormatIsRolledBack() throws Exception {
+        session.setContentFormat(RecordContent.Format.SMILE);
+        repository.createOrUpdate(new Child("smile", "user1", "{ 'name' : 'smile', 'age' : 12, 'photo_keys' : [ 'a' ] }"));
+        new RecordContentConversion(session).run();
+        session.setContentFormat(RecordContent.Format.DEFLATE);
+        repository.createOrUpdate(new Child("deflated", "user1", "{ 'name' : 'deflated' }"));
+
+        session.setContentFormat(RecordContent.Format.PLAIN);
+        new RecordContentConversion(session).run();
+
+        @Cleanup Cursor cursor = session.rawQuery("SELECT child_json FROM children", null);
+        while (cursor.moveToNext()) {
+            assertEquals(RecordContent.Format.PLAIN, RecordContent.formatOf(cursor.getBlob(0)));
+        }
+        Child smile = repository.get("smile");
+        assertEquals(12, smile.getInt("age"));
+        assertEquals("a", smile.getJSONArray("photo_keys").getString(0));
+        assertEquals("deflated", repository.get("deflated").getString("name"));
+    }
+
+    @Test
+    public void shouldNotScanATableAgainOnceItIsConverted() throws Exception {
+        session.setContentFormat(RecordContent.Format.SMILE);
+        new RecordContentConversion(session).run();
+        session.setContentFormat(RecordContent.Format.PLAIN);
+        repository.createOrUpdate(new Child("id1", "user1", "{ 'name' : 'plain' }"));
+
+        session.setContentFormat(RecordContent.Format.SMILE);
+        new RecordContentConversion(session).run();
+
+        @Cleanup Cursor cursor = session.rawQuery("SELECT child_json FROM children", null);
+        cursor.moveToNext();
+        assertEquals(RecordContent.Format.PLAIN, RecordContent.formatOf(cursor.getBlob(0)));
+    }
+
+    @Test
+    public void shouldOnlyBeNeededWhenATableMayHoldAnotherFormat() throws Exception {
+        repository.createOrUpdate(new Child("id1", "user1", "{ 'name' : 'plain' }"));
+        RecordContentConversion conversion = new RecordContentConversion(session);
+        assertFalse(conversion.isNeeded());
+
+        session.setContentFormat(RecordContent.Format.SMILE);
+        assertTrue(conversion.isNeeded());
+
+        conversion.run();
+        assertFalse(conversion.isNeeded());
+    }
+
+    @Test
+    public void shouldStillBeNeededWhenAConversionWasCutShort() throws Exception {
+        session.setContentFormat(RecordContent.Format.SMILE);
+        repository.createOrUpdate(new Child("id1", "user1", "{ 'name' : 'smile' }"));
+        session.execSQL("INSERT INTO record_content_format(table_name, format) VALUES ('children', 'CONVERTING')");
+
+        session.setContentFormat(RecordContent.Format.PLAIN);
+        assertTrue(new RecordContentConversion(session).isNeeded());
+    }
+}
@@ -0,0 +1,60 @@
+package com.rapidftr.database;
+
+import com.rapidftr.CustomTestRunner;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(CustomTestRunner.class)
+public class RecordContentTest {
+
+    private static final String JSON = "{\"unique_identifier\":\"id1\",\"name\":\"Subhas\",\"created_by\":\"user1\","
+            + "\"created_at\":\"2014-01-01 10:00:00UTC\",\"short_id\":\"id1\",\"synced\":false}";
+
+    @Test
+    public void shouldInflateWhatItDeflated() {
+        byte[] compressed = RecordContent.compress(JSON);
+
+        assertEquals(RecordContent.DEFLATE_V1, compressed[0]);
+        assertTrue(compressed.length < JSON.length());
+        assertEquals(JSON, RecordContent.decode(compressed));
+    }
+
+    @Test
+    public void shouldReadBackTheSameValuesFromSmile() throws Exception {
+        JSONObject record = new JSONObject("{ 'name' : 'Subhas', 'age' : 12, 'big' : 12345678901, 'height' : 1.5,"
+                + " 'verified' : true, 'photo_keys' : [ 'a', 'b' ], 'criteria' : { 'name' : 'x' }, 'note' : null }");
+
+        byte[] smile = RecordContent.smile(record);
+
+        assertEquals(RecordContent.Format.SMILE, RecordContent.formatOf(smile));
+        JSONObject decoded = RecordContent.decodeObject(smile);
+        assertEquals(12, decoded.get("age"));
+        assertEquals(12345678901L, decoded.get("big"));
+        assertEquals(1.5, decoded.getDouble("height"), 0);
+        assertEquals(Boolean.TRUE, decoded.get("verified"));
+        assertEquals("b", decoded.getJSONArray("photo_keys").getString(1));
+        assertEquals("x", decoded.getJSONObject("criteria").getString("name"));
+        assertTrue(decoded.isNull("note"));
+        assertEquals(new JSONObject(record.toString()).toString().length(), decoded.toString().length());
+    }
+
+    @Test
+    public void shouldTellTheFormatFromTheFirstBytes() throws Exception {
+        assertEquals(RecordContent.Format.PLAIN, RecordContent.formatOf(JSON.getBytes("UTF-8")));
+        assertEquals(RecordContent.Format.DEFLATE, RecordContent.formatOf(RecordContent.compress(JSON)));
+    }
+
+    @Test
+    public void shouldReadPlainContentAsItIs() throws Exception {
+        assertEquals(JSON, RecordContent.decode(JSON.getBytes("UTF-8")));
+    }
+
+    @Test
+    public void shouldDropTheTerminatingNulOfATextFieldReadAsABlob() throws Exception {
+        assertEquals(JSON, RecordContent.decode((JSON + "\0").getBytes("UTF-8")));
+    }
+}
@@ -0,0 +1,164 @@
+package com.rapidftr.database;
+
+import com.rapidftr.CustomTestRunner;
+import com.rapidftr.model.Child;
+import org.json.JSONException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(CustomTestRunner.class)
+public class RecordWriteQueueTest {
+
+    private DatabaseHelper database;
+    private DatabaseSession session;
+    private RecordWriteQueue<Child> queue;
+    private CountDownLatch firstWriteStarted;
+    private CountDownLatch firstWriteAllowed;
+    private List<String> written;
+    private RuntimeException failure;
+
+    @Before
+    public void setUp() throws Exception {
+        database = mock(DatabaseHelper.class);
+        session = mock(DatabaseSession.class);
+        when(database.getSession()).thenReturn(session);
+        firstWriteStarted = new CountDownLatch(1);
+        firstWriteAllowed = new CountDownLatch(1);
+        written = Collections.synchronizedList(new ArrayList<String>());
+        queue = new RecordWriteQueue<Child>("children", database, new RecordWriteQueue.Writer<Child>() {
+            @Override
+            public Child copy(Child child) throws JSONException {
+                return new Child(child, child.isSynced());
+            }
+
+            @Override
+            public void write(DatabaseSession session, Child child) throws JSONException {
+                firstWriteStarted.countDown();
+                try {
+                    firstWriteAllowed.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+                written.add(child.getUniqueId() + " " + child.getString("name"));
+            }
+        });
+    }
+
+    @Test
+    public void shouldReadAQueuedRecordUntilItIsWritten() throws Exception {
+        queue.save(new Child("id1", "user1", "{ 'name' : 'queued' }"));
+
+        assertTrue(queue.isPending("id1"));
+        assertEquals("queued", queue.get("id1").getString("name"));
+        assertEquals("queued", queue.getPending().get(0).getString("name"));
+
+        firstWriteAllowed.countDown();
+        awaitWritten();
+
+        assertFalse(queue.isPending("id1"));
+        assertNull(queue.get("id1"));
+        assertTrue(queue.getPending().isEmpty());
+        assertEquals(asList("id1 queued"), written);
+    }
+
+    @Test
+    public void shouldWriteOnlyTheLastSaveOfARecordBehindTheOthers() throws Exception {
+        queue.save(new Child("id0", "user1", "{ 'name' : 'writing' }"));
+        firstWriteStarted.await();
+        queue.save(new Child("id1", "user1", "{ 'name' : 'first' }"));
+        queue.save(new Child("id2", "user1", "{ 'name' : 'second' }"));
+        queue.save(new Child("id1", "user1", "{ 'name' : 'third' }"));
+
+        firstWriteAllowed.countDown();
+        awaitWritten();
+
+        assertEquals(asList("id0 writing", "id2 second", "id1 third"), written);
+    }
+
+    @Test
+    public void shouldKeepWhatWasSavedWhenTheRecordChangesAfterwards() throws Exception {
+        Child child = new Child("id1", "user1", "{ 'name' : 'saved' }");
+        queue.save(child);
+        child.put("name", "changed");
+
+        firstWriteAllowed.countDown();
+        awaitWritten();
+
+        assertEquals(asList("id1 saved"), written);
+    }
+
+    @Test
+    public void shouldReportAFailedWriteToWhoeverSavedItWithoutTryingAgain() throws Exception {
+        failure = new RuntimeException("disk full");
+        final List<String> failed = Collections.synchronizedList(new ArrayList<String>());
+
+        queue.save(new Child("id1", "user1", "{ 'name' : 'lost' }"), new RecordWriteQueue.FailureListener<Child>() {
+            @Override
+            public void failed(Child record, Exception e) {
+                failed.add(record.getUniqueId() + " " + e.getMessage());
+            }
+        });
+        firstWriteAllowed.countDown();
+        awaitWritten();
+
+        assertFalse(queue.isPending("id1"));
+        assertEquals(asList("id1 disk full"), failed);
+        assertTrue(written.isEmpty());
+    }
+
+    @Test
+    public void shouldWriteWhatWasQueuedWhenClosedAndTakeNoMore() throws Exception {
+        final CountDownLatch closed = new CountDownLatch(1);
+        queue.save(new Child("id0", "user1", "{ 'name' : 'writing' }"));
+        firstWriteStarted.await();
+        queue.save(new Child("id1", "user1", "{ 'name' : 'waiting' }"));
+
+        queue.close(new Runnable() {
+            @Override
+            public void run() {
+                closed.countDown();
+            }
+        });
+        try {
+            queue.save(new Child("id2", "user1", "{ 'name' : 'late' }"));
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        assertEquals(1, closed.getCount());
+
+        firstWriteAllowed.countDown();
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+        assertEquals(asList("id0 writing", "id1 waiting"), written);
+    }
+
+    // The test thread is the main thread, which the queue never waits on
+    private void awaitWritten() throws InterruptedException {
+        Thread waiting = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                queue.awaitWritten();
+            }
+        });
+        waiting.start();
+        waiting.join();
+    }
+}
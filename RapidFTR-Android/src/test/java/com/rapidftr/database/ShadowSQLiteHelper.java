@@ -4,6 +4,7 @@ package com.rapidftr.database;
 import android.app.Activity;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import com.rapidftr.database.migration.Migrations;
 import lombok.Delegate;
 import lombok.Getter;
@@ -31,12 +32,64 @@ public class ShadowSQLiteHelper extends SQLiteOpenHelper implements DatabaseHelp
         @Delegate(types = DatabaseSession.class)
         private final SQLiteDatabase database;
 
+        private final StatementCache statements = new StatementCache(StatementCache.DEFAULT_CAPACITY) {
+            @Override
+            protected DatabaseStatement compileStatement(String sql) {
+                return new ShadowSQLiteStatement(database.compileStatement(sql));
+            }
+        };
+
+        // Every in-memory database is a new one, so its caches belong to the session rather than to the database name
+        private final RecordCaches caches = new RecordCaches(RecordCaches.DEFAULT_MAX_SIZE_IN_BYTES_PER_TABLE);
+
+        private final RecordWriteQueues writeQueues = RecordWriteQueues.writingTo("test_database", this);
+
+        private RecordContent.Format contentFormat = RecordContent.Format.PLAIN;
+
+        @Override
+        public DatabaseStatement compile(String sql) {
+            return statements.get(sql);
+        }
+
+        @Override
+        public RecordCache getRecordCache(Database table) {
+            return caches.forTable(table);
+        }
+
+        @Override
+        public RecordWriteQueues getWriteQueues() {
+            return writeQueues;
+        }
+
+        @Override
+        public RecordContent.Format getContentFormat() {
+            return contentFormat;
+        }
+
+        // Tests write rows in every format through the same session
+        public void setContentFormat(RecordContent.Format contentFormat) {
+            this.contentFormat = contentFormat;
+        }
+
+        @Override
+        public void close() {
+            statements.clear();
+            database.close();
+        }
+    }
+
+    @RequiredArgsConstructor(suppressConstructorProperties = true)
+    public static class ShadowSQLiteStatement implements DatabaseStatement {
+
+        @Delegate(types = DatabaseStatement.class)
+        private final SQLiteStatement statement;
+
     }
 
     private @Getter DatabaseSession session;
 
     public ShadowSQLiteHelper(String dbName) {
-        super(new Activity(), dbName, null, 2);
+        super(new Activity(), dbName, null, SQLCipherHelper.DB_VERSION);
         session = new ShadowSQLiteSession(getWritableDatabase());
     }
 
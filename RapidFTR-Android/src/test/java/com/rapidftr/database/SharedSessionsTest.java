@@ -0,0 +1,150 @@
+package com.rapidftr.database;
+
+import com.rapidftr.CustomTestRunner;
+import com.rapidftr.model.Child;
+import org.json.JSONException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(CustomTestRunner.class)
+public class SharedSessionsTest {
+
+    private DatabaseHelper helper;
+    private DatabaseSession session;
+    private int opened;
+    private SharedSessions sessions;
+
+    @Before
+    public void setUp() {
+        helper = mock(DatabaseHelper.class);
+        session = mock(DatabaseSession.class);
+        when(helper.getSession()).thenReturn(session);
+        sessions = new SharedSessions("test_database", 60000, new SharedSessions.Opener() {
+            @Override
+            public DatabaseHelper open() {
+                opened++;
+                return helper;
+            }
+        });
+    }
+
+    @Test
+    public void shouldOpenTheDatabaseOnceForAllSessions() {
+        DatabaseSession first = sessions.getSession();
+        DatabaseSession second = sessions.getSession();
+
+        first.execSQL("SELECT 1");
+        second.execSQL("SELECT 2");
+
+        assertEquals(1, opened);
+        assertEquals(2, sessions.getReferences());
+        verify(session).execSQL("SELECT 1");
+        verify(session).execSQL("SELECT 2");
+    }
+
+    @Test
+    public void shouldCloseTheDatabaseOnlyOnceEverySessionIsClosed() throws Exception {
+        DatabaseSession first = sessions.getSession();
+        DatabaseSession second = sessions.getSession();
+
+        first.close();
+        first.close();
+        sessions.closeIfIdle();
+
+        assertTrue(sessions.isOpen());
+        verify(helper, never()).close();
+
+        second.close();
+        sessions.closeIfIdle();
+
+        assertFalse(sessions.isOpen());
+        verify(helper).close();
+    }
+
+    @Test
+    public void shouldOpenTheDatabaseAgainAfterItWasClosed() throws Exception {
+        sessions.getSession().close();
+        sessions.closeIfIdle();
+
+        sessions.getSession();
+
+        assertEquals(2, opened);
+        verify(helper, times(1)).close();
+    }
+    @Test
+    public void shouldScheduleMaintenanceOnlyOnceTheLastSessionIsClosed() {
+        final SQLCipherHelper cipherHelper = mock(SQLCipherHelper.class);
+        when(cipherHelper.getSession()).thenReturn(session);
+        sessions = new SharedSessions("test_database", 60000, new SharedSessions.Opener() {
+            @Override
+            public DatabaseHelper open() {
+                return cipherHelper;
+            }
+        });
+
+        DatabaseSession first = sessions.getSession();
+        DatabaseSession second = sessions.getSession();
+        first.close();
+
+        verify(cipherHelper, never()).scheduleMaintenance();
+        verify(cipherHelper, times(2)).cancelMaintenance();
+
+        second.close();
+        verify(cipherHelper).scheduleMaintenance();
+
+        sessions.getSession();
+        verify(cipherHelper, times(3)).cancelMaintenance();
+    }
+
+    @Test
+    public void shouldWriteTheQueuedRecordsBeforeClosingTheDatabase() throws Exception {
+        final CountDownLatch writeAllowed = new CountDownLatch(1);
+        RecordWriteQueue<Child> queue = sessions.getSession().getWriteQueues().forTable(Database.child, new RecordWriteQueue.Writer<Child>() {
+            @Override
+            public Child copy(Child child) throws JSONException {
+                return new Child(child, child.isSynced());
+            }
+
+            @Override
+            public void write(DatabaseSession session, Child child) throws JSONException {
+                try {
+                    writeAllowed.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                session.execSQL("WRITE " + child.getUniqueId());
+            }
+        });
+        queue.save(new Child("id1", "user1", "{ 'name' : 'queued' }"));
+
+        sessions.close();
+
+        assertTrue(sessions.isOpen());
+        try {
+            queue.save(new Child("id2", "user1", "{ 'name' : 'late' }"));
+            fail();
+        } catch (IllegalStateException e) {
+        }
+
+        writeAllowed.countDown();
+        for (int i = 0; i < 100 && sessions.isOpen(); i++) {
+            Thread.sleep(50);
+        }
+        assertFalse(sessions.isOpen());
+        verify(session).execSQL("WRITE id1");
+        verify(helper).close();
+    }
+}
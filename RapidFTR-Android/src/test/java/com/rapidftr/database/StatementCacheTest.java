@@ -0,0 +1,103 @@
+package com.rapidftr.database;
+
+import com.rapidftr.CustomTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(CustomTestRunner.class)
+public class StatementCacheTest {
+
+    private Map<String, DatabaseStatement> compiled;
+    private String thisThread;
+    private StatementCache cache;
+
+    @Before
+    public void setUp() {
+        thisThread = Thread.currentThread().getName() + " ";
+        compiled = Collections.synchronizedMap(new HashMap<String, DatabaseStatement>());
+        cache = new StatementCache(2) {
+            @Override
+            protected DatabaseStatement compileStatement(String sql) {
+                DatabaseStatement statement = mock(DatabaseStatement.class);
+                compiled.put(Thread.currentThread().getName() + " " + sql, statement);
+                return statement;
+            }
+        };
+    }
+
+    @Test
+    public void shouldCompileEachStatementOnlyOnce() {
+        DatabaseStatement statement = cache.get("SELECT 1");
+
+        assertSame(statement, cache.get("SELECT 1"));
+        assertEquals(1, compiled.size());
+    }
+
+    @Test
+    public void shouldCloseTheLeastRecentlyUsedStatementWhenFull() {
+        cache.get("SELECT 1");
+        cache.get("SELECT 2");
+        cache.get("SELECT 1");
+        cache.get("SELECT 3");
+
+        assertEquals(2, cache.size());
+        verify(compiled.get(thisThread + "SELECT 2")).close();
+        verify(compiled.get(thisThread + "SELECT 1"), never()).close();
+    }
+
+    @Test
+    public void shouldCloseEveryStatementWhenCleared() {
+        cache.get("SELECT 1");
+        cache.get("SELECT 2");
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        verify(compiled.get(thisThread + "SELECT 1")).close();
+        verify(compiled.get(thisThread + "SELECT 2")).close();
+    }
+    @Test
+    public void shouldGiveEveryThreadStatementsOfItsOwn() throws Exception {
+        final DatabaseStatement[] other = new DatabaseStatement[1];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                other[0] = cache.get("SELECT 1");
+            }
+        }, "other");
+        thread.start();
+        thread.join();
+
+        assertNotSame(other[0], cache.get("SELECT 1"));
+        assertEquals(2, compiled.size());
+    }
+
+    @Test
+    public void shouldCloseTheStatementsOfAThreadThatEnded() throws Exception {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                cache.get("SELECT 1");
+            }
+        }, "ended");
+        thread.start();
+        thread.join();
+
+        cache.get("SELECT 2");
+
+        verify(compiled.get("ended SELECT 1")).close();
+        assertEquals(1, cache.size());
+    }
+}
@@ -5,12 +5,15 @@ import com.rapidftr.CustomTestRunner;
 import com.rapidftr.RapidFtrApplication;
 import com.rapidftr.database.Database;
 import com.rapidftr.database.DatabaseSession;
+import com.rapidftr.database.RecordWriteQueues;
+import com.rapidftr.database.RecordContent;
 import com.rapidftr.database.ShadowSQLiteHelper;
 import com.rapidftr.forms.FormField;
 import com.rapidftr.forms.FormSection;
 import com.rapidftr.forms.FormSectionTest;
 import com.rapidftr.model.Child;
 import com.rapidftr.model.History;
+import com.rapidftr.model.RecordSummary;
 import com.rapidftr.model.User;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -22,12 +25,14 @@ import org.robolectric.Robolectric;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
 import static com.rapidftr.CustomTestRunner.createUser;
 import static com.rapidftr.model.History.HISTORIES;
 import static com.rapidftr.utils.JSONMatcher.equalJSONIgnoreOrder;
+import static java.util.Arrays.asList;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsEqual.equalTo;
@@ -70,9 +75,8 @@ public class ChildRepositoryTest {
     @Test
     public void shouldCreateChildRecordAndSetCreatedAt() throws Exception {
         repository.createOrUpdate(new Child("id1", "user1", "{ 'test1' : 'value1' }"));
-        JSONObject childJsonValues = repository.get("id1").values();
-        JSONArray histories = (JSONArray) childJsonValues.get(History.HISTORIES);
-        JSONObject changes = (JSONObject) ((JSONObject) histories.get(0)).get("changes");
+        List<History> histories = repository.getHistories("id1");
+        JSONObject changes = (JSONObject) histories.get(0).get("changes");
         assert(((JSONObject) changes.get("child")).has(History.CREATED));
     }
 
@@ -99,13 +103,98 @@ public class ChildRepositoryTest {
     public void shouldUpdateChildRecordWithHistory() throws Exception {
         repository.createOrUpdate(new Child("idx", "user1", "{ 'test1' : 'value1', 'test2' : 0, 'test3' : [ '1', 2, '3' ] }"));
         Child child = repository.get("idx");
-        JSONObject childJsonValues = child.values();
-        assertEquals(1, childJsonValues.getJSONArray(History.HISTORIES).length());
+        assertEquals(1, repository.getHistories("idx").size());
 
         child.put("test1", "value2");
         repository.createOrUpdate(child);
-        childJsonValues = repository.get("idx").values();
-        assertEquals(2, childJsonValues.getJSONArray(History.HISTORIES).length());
+        assertEquals(2, repository.getHistories("idx").size());
+        assertFalse(repository.get("idx").has(HISTORIES));
+    }
+
+    @Test
+    public void shouldReadChildrenStoredInEveryContentFormatFromTheSameTable() throws Exception {
+        ShadowSQLiteHelper.ShadowSQLiteSession shadowSession = (ShadowSQLiteHelper.ShadowSQLiteSession) session;
+        shadowSession.setContentFormat(RecordContent.Format.DEFLATE);
+        repository.createOrUpdate(new Child("id1", "user1", "{ 'name' : 'compressed' }"));
+        shadowSession.setContentFormat(RecordContent.Format.SMILE);
+        repository.createOrUpdate(new Child("id2", "user1", "{ 'name' : 'smile', 'age' : 12, 'photo_keys' : [ 'a' ] }"));
+        shadowSession.setContentFormat(RecordContent.Format.PLAIN);
+        repository.createOrUpdate(new Child("id3", "user1", "{ 'name' : 'plain' }"));
+
+        List<Child> children = new ChildRepository("user1", session, rapidFtrApplication).getRecordsForFirstPage();
+
+        assertEquals("compressed", children.get(0).getString("name"));
+        assertEquals("smile", children.get(1).getString("name"));
+        assertEquals(12, children.get(1).getInt("age"));
+        assertEquals("a", children.get(1).getJSONArray("photo_keys").getString(0));
+        assertEquals("plain", children.get(2).getString("name"));
+    }
+
+    @Test
+    public void shouldMoveTheHistoriesInsideAnUnsyncedChildToTheHistoryTable() throws Exception {
+        Child child = new Child("id1", "user1", "{ 'histories' : [ { 'changes' : { 'name' : { 'to' : 'kid' } } } ] }", false);
+
+        repository.createOrUpdateWithoutHistory(child);
+
+        assertFalse(repository.get("id1").has(HISTORIES));
+        assertEquals(1, repository.getHistories("id1").size());
+    }
+
+    @Test
+    public void shouldKeepTheHistoriesOfASyncedChildAsSynced() throws Exception {
+        Child child = new Child("id1", "user1", "{ 'histories' : [ { 'changes' : { 'name' : { 'to' : 'kid' } } } ] }", true);
+
+        repository.createOrUpdateWithoutHistory(child);
+        repository.createOrUpdateWithoutHistory(new Child("id1", "user1", "{ 'histories' : [ { 'changes' : { 'name' : { 'to' : 'kid' } } } ] }", true));
+
+        assertFalse(repository.get("id1").has(HISTORIES));
+        assertEquals(1, repository.getHistories("id1").size());
+        assertTrue(repository.getUnsyncedHistories("id1").isEmpty());
+    }
+
+    @Test
+    public void shouldKeepTheSyncedHistoriesAndSendOnlyTheNewerOnes() throws Exception {
+        Child child = new Child("id1", "user1", "{ 'name' : 'first' }");
+        repository.createOrUpdate(child);
+        child.put("name", "second");
+        repository.createOrUpdate(child);
+
+        repository.markHistoriesSynced("id1", 1);
+
+        assertEquals(2, repository.getHistories("id1").size());
+        List<History> unsynced = repository.getUnsyncedHistories("id1");
+        assertEquals(1, unsynced.size());
+        assertTrue(unsynced.get(0).getJSONObject(History.CHANGES).has("name"));
+    }
+
+    @Test
+    public void shouldReadTheExistingChildOnlyOnceWhenUpdatingIt() throws Exception {
+        repository.createOrUpdate(new Child("id1", "user1", "{ 'test1' : 'value1' }"));
+        session = spy(session);
+        repository = new ChildRepository("user1", session, rapidFtrApplication);
+
+        repository.createOrUpdate(new Child("id1", "user1", "{ 'test1' : 'value2' }"));
+
+        verify(session, times(1)).rawQuery("SELECT child_json, synced FROM children WHERE id = ?", new String[]{"id1"});
+        assertEquals(2, repository.getHistories("id1").size());
+    }
+
+    @Test
+    public void shouldServeRepeatedReadsFromTheRecordCacheUntilTheChildIsUpdated() throws Exception {
+        repository.createOrUpdate(new Child("id1", "user1", "{ 'test1' : 'value1', '_id' : 'internal1' }"));
+        repository.get("id1");
+        session = spy(session);
+        repository = new ChildRepository("user1", session, rapidFtrApplication);
+
+        assertEquals("value1", repository.get("id1").getString("test1"));
+        assertEquals("value1", repository.getAllWithInternalIds(asList("internal1")).get(0).getString("test1"));
+        verify(session, never()).rawQuery(anyString(), any(String[].class));
+
+        Child child = repository.get("id1");
+        child.put("test1", "value2");
+        repository.createOrUpdate(child);
+
+        assertEquals("value2", repository.get("id1").getString("test1"));
     }
 
     @Test
@@ -172,7 +261,7 @@ public class ChildRepositoryTest {
         repository.createOrUpdate(child1);
         repository.createOrUpdate(child2);
 
-        List<Child> children = repository.getFirstPageOfChildrenMatchingString("hild");
+        List<Child> children = repository.getChildrenMatchingString("child", new SearchPosition());
         assertEquals(1, children.size());
     }
 
@@ -205,53 +294,156 @@ public class ChildRepositoryTest {
     @Test
     public void shouldReturnFirstPage() throws JSONException {
         session = mock(DatabaseSession.class);
+        when(session.getWriteQueues()).thenReturn(RecordWriteQueues.writingTo("test_database", session));
         repository = spy(new ChildRepository("user1", session, rapidFtrApplication));
         doReturn(new ArrayList<Child>()).when(repository).toChildren(any(Cursor.class));
 
         repository.getRecordsForFirstPage();
 
-        String sql = "SELECT child_json, synced FROM children WHERE child_owner='user1' ORDER BY id LIMIT 30";
-        verify(session, times(1)).rawQuery(sql, null);
+        String sql = "SELECT child_json, synced FROM children WHERE child_owner = ? ORDER BY id LIMIT 30";
+        verify(session, times(1)).rawQuery(sql, new String[]{"user1"});
     }
 
     @Test
-    public void shouldReturnRecordsBetweenSpecifiedLimits() throws JSONException {
+    public void shouldReturnRecordsAfterTheLastRecordOfThePreviousPage() throws JSONException {
         session = mock(DatabaseSession.class);
+        when(session.getWriteQueues()).thenReturn(RecordWriteQueues.writingTo("test_database", session));
         repository = spy(new ChildRepository("user1", session, rapidFtrApplication));
         doReturn(new ArrayList<Child>()).when(repository).toChildren(any(Cursor.class));
 
-        repository.getRecordsBetween(1, 10);
+        repository.getRecordsAfter("id30");
 
-        String sql = "SELECT child_json, synced FROM children WHERE child_owner='user1' ORDER BY id LIMIT 9 OFFSET 1";
-        verify(session, times(1)).rawQuery(sql, null);
+        String sql = "SELECT child_json, synced FROM children WHERE child_owner = ? AND id > ? ORDER BY id LIMIT 30";
+        verify(session, times(1)).rawQuery(sql, new String[]{"user1", "id30"});
     }
 
     @Test
-    public void shouldQueryForFirstThirtyMatches() throws JSONException {
-        session = mock(DatabaseSession.class);
-        repository = spy(new ChildRepository("user1", session, rapidFtrApplication));
-        doReturn(new ArrayList<Child>()).when(repository).toChildren(any(Cursor.class));
+    public void shouldSeekPastTheLastRecordIdWhenPaging() throws JSONException {
+        repository.createOrUpdate(new Child("id1", "user1", null));
+        repository.createOrUpdate(new Child("id2", "user1", null));
+        repository.createOrUpdate(new Child("id3", "user1", null));
+
+        List<Child> children = repository.getRecordsAfter("id1");
+
+        assertEquals(2, children.size());
+        assertEquals("id2", children.get(0).getUniqueId());
+        assertEquals("id3", children.get(1).getUniqueId());
+    }
+
+    @Test
+    public void shouldOnlyReturnChildrenMatchingEverySearchTerm() throws JSONException {
+        repository.createOrUpdate(new Child("id1", "user1", "{ 'name' : 'john' }"));
+        repository.createOrUpdate(new Child("id2", "user1", "{ 'name' : 'john smith' }"));
+        repository.createOrUpdate(new Child("id3", "user1", "{ 'name' : 'jane smith' }"));
+
+        List<Child> children = repository.getChildrenMatchingString("smi joh", new SearchPosition());
+
+        assertEquals(1, children.size());
+        assertEquals("id2", children.get(0).getUniqueId());
+    }
+
+    @Test
+    public void shouldRankChildrenWithMoreHitsFirst() throws JSONException {
+        repository.createOrUpdate(new Child("id1", "user1", "{ 'name' : 'john smith' }"));
+        repository.createOrUpdate(new Child("id2", "user1", "{ 'name' : 'john johnson' }"));
+
+        List<Child> children = repository.getChildrenMatchingString("joh", new SearchPosition());
+
+        assertEquals(2, children.size());
+        assertEquals("id2", children.get(0).getUniqueId());
+        assertEquals("id1", children.get(1).getUniqueId());
+    }
+
+    @Test
+    public void shouldPageThroughMatchingChildrenFromTheLastRecordShown() throws JSONException {
+        for (int i = 0; i < 31; i++) {
+            repository.createOrUpdate(new Child(String.format("id%02d", i), "user1", "{ 'name' : 'john' }"));
+        }
+
+        SearchPosition position = new SearchPosition();
+        assertEquals(30, repository.getChildrenMatchingString("john", position).size());
+        repository.createOrUpdate(new Child("id31", "user1", "{ 'name' : 'john john' }"));
+        List<Child> lastPage = repository.getChildrenMatchingString("john", position);
+        assertEquals(1, lastPage.size());
+        assertEquals("id30", lastPage.get(0).getUniqueId());
+        assertTrue(repository.getChildrenMatchingString("john", position).isEmpty());
+    }
+
+    @Test
+    public void shouldSearchTheUpdatedValuesOfARecord() throws JSONException {
+        Child child = new Child("id1", "user1", "{ 'name' : 'john' }");
+        repository.createOrUpdate(child);
+        child.put("name", "jack");
+        repository.createOrUpdate(child);
+
+        assertEquals(0, repository.getChildrenMatchingString("john", new SearchPosition()).size());
+        assertEquals(1, repository.getChildrenMatchingString("jack", new SearchPosition()).size());
+    }
+
+    @Test
+    public void shouldNotSearchChildrenDeletedWithTheirOwner() throws JSONException {
+        repository.createOrUpdate(new Child("id1", "user1", "{ 'name' : 'john' }"));
+
+        repository.deleteChildrenByOwner();
+
+        assertEquals(0, repository.getChildrenMatchingString("john", new SearchPosition()).size());
+    }
+
+    @Test
+    public void shouldIndexChildrenWrittenBeforeTheSearchTableExisted() throws JSONException {
+        repository.createOrUpdate(new Child("id1", "user1", "{ 'name' : 'john' }"));
+        session.execSQL("DELETE FROM " + Database.child_search.getTableName());
+        session.execSQL("INSERT INTO " + Database.search_index_backfill.getTableName() + "(table_name) VALUES ('children')");
+        assertEquals(0, repository.getChildrenMatchingString("john", new SearchPosition()).size());
 
-        repository.getFirstPageOfChildrenMatchingString("john");
+        repository.backfillSearchIndexes();
 
-        PaginatedSearchQueryBuilder queryBuilder = new PaginatedSearchQueryBuilder(
-                RapidFtrApplication.getApplicationInstance(), "john");
-        String sql = queryBuilder.queryForMatchingChildrenFirstPage();
-        verify(session, times(1)).rawQuery(sql, null);
+        assertEquals(1, repository.getChildrenMatchingString("john", new SearchPosition()).size());
     }
 
     @Test
-    public void shouldQueryForMatchingChildrenBetweenSpecifiedLimits() throws JSONException {
+    public void shouldNotQueryForSearchKeysWithoutAnyWords() throws JSONException {
         session = mock(DatabaseSession.class);
-        repository = spy(new ChildRepository("user1", session, rapidFtrApplication));
-        doReturn(new ArrayList<Child>()).when(repository).toChildren(any(Cursor.class));
+        when(session.getWriteQueues()).thenReturn(RecordWriteQueues.writingTo("test_database", session));
+        repository = new ChildRepository("user1", session, rapidFtrApplication);
+
+        assertTrue(repository.getChildrenMatchingString(" ?! ", new SearchPosition()).isEmpty());
+        verify(session, never()).rawQuery(anyString(), any(String[].class));
+    }
+
+    @Test
+    public void shouldFindChildrenWithNamesSpeltDifferentlyClosestSpellingFirst() throws JSONException {
+        repository.createOrUpdate(new Child("id1", "user1", "{ 'name' : 'Mohammed Ali' }"));
+        repository.createOrUpdate(new Child("id2", "user1", "{ 'name' : 'Muhamad Goma' }"));
+        repository.createOrUpdate(new Child("id3", "user1", "{ 'name' : 'Amina Goma' }"));
+
+        List<Child> children = repository.getChildrenWithNamesLike("Mohamed", new SearchPosition());
+
+        assertEquals(2, children.size());
+        assertEquals("id1", children.get(0).getUniqueId());
+        assertEquals("id2", children.get(1).getUniqueId());
+    }
+
+    @Test
+    public void shouldOnlyFindChildrenWithANameLikeEveryWordOfTheSearchKey() throws JSONException {
+        repository.createOrUpdate(new Child("id1", "user1", "{ 'name' : 'Mohammed Ali' }"));
+        repository.createOrUpdate(new Child("id2", "user1", "{ 'name' : 'Muhamad', 'fathers_name' : 'Goma' }"));
+
+        List<Child> children = repository.getChildrenWithNamesLike("mohamed ghoma", new SearchPosition());
 
-        repository.getChildrenMatchingStringBetween("john", 1, 10);
+        assertEquals(1, children.size());
+        assertEquals("id2", children.get(0).getUniqueId());
+    }
+
+    @Test
+    public void shouldForgetTheOldNamesOfAChildWhenItIsSaved() throws JSONException {
+        Child child = new Child("id1", "user1", "{ 'name' : 'Amina' }");
+        repository.createOrUpdate(child);
+        child.put("name", "Fatima");
+        repository.createOrUpdate(child);
 
-        PaginatedSearchQueryBuilder queryBuilder = new PaginatedSearchQueryBuilder(
-                RapidFtrApplication.getApplicationInstance(), "john");
-        String sql = queryBuilder.queryForMatchingChildrenBetweenPages(1, 10);
-        verify(session, times(1)).rawQuery(sql, null);
+        assertTrue(repository.getChildrenWithNamesLike("Aminah", new SearchPosition()).isEmpty());
+        assertEquals(1, repository.getChildrenWithNamesLike("Fatuma", new SearchPosition()).size());
     }
 
     @Test
@@ -316,6 +508,45 @@ public class ChildRepositoryTest {
         assertThat(children, hasItems(child1));
     }
 
+    @Test
+    public void shouldStreamUnsyncedRecordsAcrossPagesWhileTheyAreMarkedAsSynced() throws JSONException {
+        int numberOfChildren = PagedRecordStream.PAGE_SIZE * 2 + 1;
+        for (int i = 0; i < numberOfChildren; i++) {
+            repository.createOrUpdate(new Child(String.format("id%03d", i), "user1", null));
+        }
+
+        RecordStream<Child> stream = repository.streamToBeSynced();
+        assertThat(stream.size(), equalTo(numberOfChildren));
+
+        List<String> streamedIds = new ArrayList<String>();
+        for (Child child : stream) {
+            streamedIds.add(child.getUniqueId());
+            child.setSynced(true);
+            repository.createOrUpdateWithoutHistory(child);
+        }
+        stream.close();
+
+        assertThat(streamedIds.size(), equalTo(numberOfChildren));
+        assertThat(streamedIds.get(numberOfChildren - 1), equalTo(String.format("id%03d", numberOfChildren - 1)));
+        assertThat(repository.toBeSynced().size(), equalTo(0));
+    }
+
+    @Test
+    public void shouldStreamOnlyTheChildrenOfTheCurrentUser() throws JSONException {
+        repository.createOrUpdate(new Child("id1", "user1", null));
+        repository.createOrUpdate(new Child("id2", "user2", null));
+
+        RecordStream<Child> stream = repository.streamAllCreatedByCurrentUser();
+        List<Child> children = new ArrayList<Child>();
+        for (Child child : stream) {
+            children.add(child);
+        }
+        stream.close();
+
+        assertThat(children.size(), equalTo(1));
+        assertThat(children.get(0).getUniqueId(), equalTo("id1"));
+    }
+
     @Test
     public void shouldReturnTrueWhenAChildWithTheGivenIdExistsInTheDatabase() {
         assertThat(repository.exists("1234"), is(false));
@@ -352,7 +583,7 @@ public class ChildRepositoryTest {
         repository.createOrUpdate(updatedChild);
 
         Child savedChild = repository.get(updatedChild.getUniqueId());
-        assertTrue(savedChild.get(HISTORIES).toString().matches(".*\"changes\":\\{.*\"name\":\\{(\"to\":\"updatedname\"|\"from\":\"oldname\"),(\"from\":\"oldname\"|\"to\":\"updatedname\")\\}.*"));
+        assertTrue(repository.getHistories(savedChild.getUniqueId()).toString().matches(".*\"changes\":\\{.*\"name\":\\{(\"to\":\"updatedname\"|\"from\":\"oldname\"),(\"from\":\"oldname\"|\"to\":\"updatedname\")\\}.*"));
     }
 
     @Test
@@ -413,6 +644,40 @@ public class ChildRepositoryTest {
         assertTrue(children.contains(child3));
     }
 
+    @Test
+    public void shouldReturnChildrenInTheOrderOfTheGivenInternalIds() throws JSONException {
+        Child child1 = new Child("id1", "user1", "{ 'name' : 'child1', '_id' : 'ae0fc' }");
+        Child child2 = new Child("id2", "user1", "{ 'name' : 'child2', '_id' : 'b32fa' }");
+        repository.createOrUpdate(child1);
+        repository.createOrUpdate(child2);
+
+        List<Child> children = repository.getAllWithInternalIds(asList("b32fa", "ae0fc", "b32fa"));
+
+        assertEquals(asList("id2", "id1", "id2"), uniqueIds(children));
+    }
+
+    @Test
+    public void shouldLookUpMoreInternalIdsThanFitInOneQuery() throws JSONException {
+        List<String> internalIds = new ArrayList<String>();
+        for (int i = 0; i < RecordLookup.MAX_KEYS_PER_QUERY + 3; i++) {
+            internalIds.add("internal" + i);
+        }
+        repository.createOrUpdate(new Child("first", "user1", "{ '_id' : 'internal0' }"));
+        repository.createOrUpdate(new Child("last", "user1", "{ '_id' : 'internal" + (internalIds.size() - 1) + "' }"));
+
+        List<Child> children = repository.getAllWithInternalIds(internalIds);
+
+        assertEquals(asList("first", "last"), uniqueIds(children));
+    }
+
+    private List<String> uniqueIds(List<Child> children) throws JSONException {
+        List<String> ids = new ArrayList<String>();
+        for (Child child : children) {
+            ids.add(child.getUniqueId());
+        }
+        return ids;
+    }
+
     @Test
     public void shouldRetrieveAllIdsAndRevs() throws JSONException {
         Child child1 = new ChildBuilder()
@@ -475,6 +740,42 @@ public class ChildRepositoryTest {
         assertEquals("some_more_stuff", savedChild.get("more_stuff"));
     }
 
+    @Test
+    public void shouldCreateOrUpdateAllChildrenAcrossBatchesWithoutHistory() throws JSONException {
+        repository.setBatchSize(2);
+        Child child1 = new Child("id1", "user1", null, true);
+        Child child2 = new Child("id2", "user1", null, true);
+        Child child3 = new Child("id3", "user1", null, true);
+
+        repository.createOrUpdateAllWithoutHistory(Arrays.asList(child1, child2, child3));
+
+        assertEquals(3, repository.size());
+        assertFalse(repository.get("id3").has(HISTORIES));
+    }
+
+    @Test
+    public void shouldReadListSummariesWithoutTheRecordHistories() throws JSONException {
+        repository.createOrUpdate(new Child("id1", "user1", "{ 'current_photo_key' : 'photo1' }"));
+
+        List<RecordSummary> summaries = repository.getSummariesForFirstPage();
+
+        assertEquals(1, summaries.size());
+        assertEquals("id1", summaries.get(0).getUniqueId());
+        assertEquals("photo1", summaries.get(0).optString(RecordSummary.CURRENT_PHOTO_KEY));
+        assertFalse(summaries.get(0).has(HISTORIES));
+    }
+
+    @Test
+    public void shouldSummariseRecordsThatHaveNoSummaryRow() throws JSONException {
+        repository.createOrUpdate(new Child("id1", "user1", "{ 'current_photo_key' : 'photo1' }"));
+        session.execSQL("DELETE FROM children_summary");
+
+        List<RecordSummary> summaries = repository.getSummariesForFirstPage();
+
+        assertEquals(1, summaries.size());
+        assertEquals("photo1", summaries.get(0).optString(RecordSummary.CURRENT_PHOTO_KEY));
+    }
+
     public class ChildBuilder {
         Child child = new Child();
 
@@ -2,11 +2,9 @@ package com.rapidftr.repository;
 
 import com.rapidftr.CustomTestRunner;
 import com.rapidftr.RapidFtrApplication;
+import com.rapidftr.database.ChildArchive;
 import com.rapidftr.database.DatabaseSession;
 import com.rapidftr.database.ShadowSQLiteHelper;
-import com.rapidftr.forms.FormField;
-import com.rapidftr.forms.FormSection;
-import com.rapidftr.forms.FormSectionTest;
 import com.rapidftr.model.Child;
 import com.rapidftr.model.User;
 import org.json.JSONException;
@@ -16,7 +14,6 @@ import org.junit.runner.RunWith;
 import org.robolectric.Robolectric;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -28,7 +25,6 @@ public class ChildSearchTest {
     private ChildRepository repository;
     private DatabaseSession session;
     private ChildSearch childSearch;
-    private List<FormField> highlightedFormFields;
     private RapidFtrApplication rapidFtrApplication;
 
     @Before
@@ -39,11 +35,6 @@ public class ChildSearchTest {
         rapidFtrApplication.setCurrentUser(user);
 
         repository = new ChildRepository("user1", session, rapidFtrApplication);
-        highlightedFormFields = new ArrayList<FormField>();
-        List<FormSection> formSections = FormSectionTest.loadFormSectionsFromClassPathResource();
-        for (FormSection formSection : formSections) {
-            highlightedFormFields.addAll(formSection.getOrderedHighLightedFields());
-        }
     }
 
     @Test
@@ -60,7 +51,7 @@ public class ChildSearchTest {
         repository.createOrUpdate(child4);
         repository.createOrUpdate(child5);
 
-        childSearch = new ChildSearch("chåld", repository, highlightedFormFields);
+        childSearch = new ChildSearch("chåld", repository);
         List<Child> children = childSearch.getRecordsForFirstPage();
         assertEquals(2, children.size());
     }
@@ -72,12 +63,12 @@ public class ChildSearchTest {
         String childShortId = "jklmnop";
         Child child1 = new Child(childId, "user1", "{ 'name' : 'first second', 'test2' : 0, 'test3' : [ '1', 2, '3' ] }");
         repository.createOrUpdate(child1);
-        childSearch = new ChildSearch(childId, repository, highlightedFormFields);
+        childSearch = new ChildSearch(childId, repository);
 
         List<Child> children = childSearch.getRecordsForFirstPage();
         assertEquals(0, children.size());
 
-        childSearch = new ChildSearch(childShortId, repository, highlightedFormFields);
+        childSearch = new ChildSearch(childShortId, repository);
         children = childSearch.getRecordsForFirstPage();
         assertEquals(1, children.size());
     }
@@ -94,7 +85,7 @@ public class ChildSearchTest {
         repository.createOrUpdate(child2);
         repository.createOrUpdate(child3);
         repository.createOrUpdate(child4);
-        childSearch = new ChildSearch("hiLd1", repository, highlightedFormFields);
+        childSearch = new ChildSearch("chiLd1", repository);
 
         List<Child> children = childSearch.getRecordsForFirstPage();
         assertEquals(2, children.size());
@@ -114,16 +105,16 @@ public class ChildSearchTest {
         repository.createOrUpdate(child4);
         repository.createOrUpdate(child5);
 
-        childSearch = new ChildSearch("child3", repository, highlightedFormFields);
+        childSearch = new ChildSearch("child3", repository);
         assertEquals(1, childSearch.getRecordsForFirstPage().size());
 
-        childSearch = new ChildSearch("hiLd", repository, highlightedFormFields);
+        childSearch = new ChildSearch("chiLd", repository);
         assertEquals(5, childSearch.getRecordsForFirstPage().size());
 
-        childSearch = new ChildSearch("hiLd1", repository, highlightedFormFields);
+        childSearch = new ChildSearch("chiLd1", repository);
         assertEquals(2, childSearch.getRecordsForFirstPage().size());
 
-        childSearch = new ChildSearch("developer", repository, highlightedFormFields);
+        childSearch = new ChildSearch("developer", repository);
         assertEquals(1, childSearch.getRecordsForFirstPage().size());
     }
 
@@ -134,23 +125,23 @@ public class ChildSearchTest {
         repository.createOrUpdate(child1);
         repository.createOrUpdate(child2);
 
-        childSearch = new ChildSearch("first second", repository, highlightedFormFields);
+        childSearch = new ChildSearch("first second", repository);
         List<Child> children = childSearch.getRecordsForFirstPage();
 
         assertEquals(1, children.size());
     }
 
     @Test
-    public void shouldReturnAllRecordsMatchingOfSearchTerm() throws JSONException, IOException {
+    public void shouldNotReturnRecordsMatchingOnlySomeOfTheSearchTerms() throws JSONException, IOException {
         Child child1 = new Child("id1", "user1", "{ 'name' : 'first second', 'test2' : 0, 'test3' : [ '1', 2, '3' ] }");
         Child child2 = new Child("id2", "user1", "{ 'name' : 'john smith', 'test2' : 0, 'test3' : [ '1', 2, '3' ] }");
         repository.createOrUpdate(child1);
         repository.createOrUpdate(child2);
 
-        childSearch = new ChildSearch("first john", repository, highlightedFormFields);
+        childSearch = new ChildSearch("first john", repository);
         List<Child> children = childSearch.getRecordsForFirstPage();
 
-        assertEquals(2, children.size());
+        assertEquals(0, children.size());
     }
 
     @Test
@@ -160,7 +151,7 @@ public class ChildSearchTest {
         repository.createOrUpdate(child1);
         repository.createOrUpdate(child2);
 
-        childSearch = new ChildSearch("second first", repository, highlightedFormFields);
+        childSearch = new ChildSearch("second first", repository);
         List<Child> children = childSearch.getRecordsForFirstPage();
 
         assertEquals(1, children.size());
@@ -173,10 +164,54 @@ public class ChildSearchTest {
         repository.createOrUpdate(child1);
         repository.createOrUpdate(child2);
 
-        childSearch = new ChildSearch("sam", repository, highlightedFormFields);
+        childSearch = new ChildSearch("sam", repository);
         List<Child> children = childSearch.getRecordsForFirstPage();
 
         assertEquals(0, children.size());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldMatchSearchTermsAsWordPrefixes() throws JSONException {
+        Child child1 = new Child("id1", "user1", "{ 'name' : 'johnathan smith' }");
+        repository.createOrUpdate(child1);
+
+        assertEquals(1, new ChildSearch("JOHN", repository).getRecordsForFirstPage().size());
+        assertEquals(0, new ChildSearch("nathan", repository).getRecordsForFirstPage().size());
+    }
+
+    @Test
+    public void shouldContinueFromTheLastRecordOfThePreviousPage() throws JSONException {
+        for (int i = 0; i < 35; i++) {
+            repository.createOrUpdate(new Child(String.format("id%02d", i), "user1", "{ 'name' : 'john' }"));
+        }
+
+        childSearch = new ChildSearch("john", repository);
+
+        assertEquals(30, childSearch.getRecordsForFirstPage().size());
+        List<Child> nextPage = childSearch.getRecordsForNextPage();
+        assertEquals(5, nextPage.size());
+        assertEquals("id30", nextPage.get(0).getUniqueId());
+    }
+    @Test
+    public void shouldFillEveryPageButTheLastWithArchivedChildren() throws JSONException {
+        for (int i = 0; i < 40; i++) {
+            repository.createOrUpdate(new Child(String.format("id%02d", i), "user1", "{ 'name' : 'john' }", true));
+        }
+        new ChildArchive(session).archiveBatchUntouchedSince(System.currentTimeMillis() + 1000);
+        for (int i = 40; i < 50; i++) {
+            repository.createOrUpdate(new Child(String.format("id%02d", i), "user1", "{ 'name' : 'john' }"));
+        }
+
+        childSearch = new ChildSearch("john", repository, true);
+
+        List<Child> firstPage = childSearch.getRecordsForFirstPage();
+        assertEquals(30, firstPage.size());
+        assertEquals("id40", firstPage.get(0).getUniqueId());
+        assertEquals("id00", firstPage.get(10).getUniqueId());
+        List<Child> secondPage = childSearch.getRecordsForNextPage();
+        assertEquals(20, secondPage.size());
+        assertEquals("id20", secondPage.get(0).getUniqueId());
+        assertFalse(childSearch.hasMoreRecords());
+        assertTrue(childSearch.getRecordsForNextPage().isEmpty());
+    }
+}
@@ -6,6 +6,7 @@ import com.rapidftr.CustomTestRunner;
 import com.rapidftr.RapidFtrApplication;
 import com.rapidftr.database.Database;
 import com.rapidftr.database.DatabaseSession;
+import com.rapidftr.database.RecordWriteQueues;
 import com.rapidftr.database.ShadowSQLiteHelper;
 import com.rapidftr.model.Child;
 import com.rapidftr.model.Enquiry;
@@ -72,9 +73,8 @@ public class EnquiryRepositoryTest {
     public void shouldCreateChildRecordAndSetCreatedAtHistory() throws Exception {
         Enquiry enquiry = new Enquiry("{\"age\":14,\"name\":\"Subhas\"}", user);
         enquiryRepository.createOrUpdate(enquiry);
-        JSONObject enquiryJsonValues = enquiryRepository.get(enquiry.getUniqueId()).values();
-        JSONArray histories = (JSONArray) enquiryJsonValues.get(History.HISTORIES);
-        JSONObject changes = (JSONObject) ((JSONObject) histories.get(0)).get("changes");
+        List<History> histories = enquiryRepository.getHistories(enquiry.getUniqueId());
+        JSONObject changes = (JSONObject) histories.get(0).get("changes");
         assert(((JSONObject) changes.get("enquiry")).has(History.CREATED));
     }
 
@@ -145,6 +145,26 @@ public class EnquiryRepositoryTest {
         assertThat(enquiries.get(0).getUniqueId(), is(enquiry1.getUniqueId()));
     }
 
+    @Test
+    public void shouldStreamOnlyTheUnsyncedEnquiriesOfTheCurrentUser() throws Exception {
+        Enquiry unsynced = new Enquiry("{age:14,name:Subhas}", user);
+        enquiryRepository.createOrUpdate(unsynced);
+        Enquiry synced = new Enquiry("{age:14,name:Subhas}", user);
+        synced.setSynced(true);
+        enquiryRepository.createOrUpdate(synced);
+        enquiryRepository.createOrUpdate(new Enquiry("{age:14,name:Subhas}", "field worker 2"));
+
+        RecordStream<Enquiry> stream = enquiryRepository.streamCurrentUsersUnsyncedRecords();
+        List<Enquiry> enquiries = new ArrayList<Enquiry>();
+        for (Enquiry enquiry : stream) {
+            enquiries.add(enquiry);
+        }
+        stream.close();
+
+        assertThat(enquiries.size(), is(1));
+        assertThat(enquiries.get(0).getUniqueId(), is(unsynced.getUniqueId()));
+    }
+
     @Test
     public void existsShouldReturnTrueGivenAnIdOfAnEnquiryThatAlreadyExists() throws Exception {
         Enquiry enquiry1 = new Enquiry("{age:14,name:Subhas}", user);
@@ -221,8 +241,7 @@ public class EnquiryRepositoryTest {
         enquiry.put("enquirer_name", "New Reporter Name");
         enquiryRepository.createOrUpdate(enquiry);
 
-        JSONObject enquiryJsonValues = enquiryRepository.get(enquiry.getUniqueId()).values();
-        assertTrue(enquiryJsonValues.has(History.HISTORIES));
+        assertEquals(2, enquiryRepository.getHistories(enquiry.getUniqueId()).size());
     }
 
     @Test
@@ -238,8 +257,7 @@ public class EnquiryRepositoryTest {
         enquiry.put("enquirer_name", "New Reporter Name");
         enquiryRepository.createOrUpdate(enquiry);
 
-        JSONObject enquiryJsonValues = enquiryRepository.get(enquiry.getUniqueId()).values();
-        assertTrue(enquiryJsonValues.has(History.HISTORIES));
+        assertEquals(2, enquiryRepository.getHistories(enquiry.getUniqueId()).size());
     }
 
     @Test(expected = android.database.SQLException.class)
@@ -350,24 +368,38 @@ public class EnquiryRepositoryTest {
     @Test
     public void shouldReturnFirstPage() throws JSONException {
         session = mock(DatabaseSession.class);
+        when(session.getWriteQueues()).thenReturn(RecordWriteQueues.writingTo("test_database", session));
         enquiryRepository = spy(new EnquiryRepository("user1", session, rapidFtrApplication));
         doReturn(new ArrayList<Child>()).when(enquiryRepository).toEnquiries(any(Cursor.class));
 
         enquiryRepository.getRecordsForFirstPage();
 
-        String sql = "SELECT enquiry_json, synced FROM enquiry WHERE created_by ='user1' ORDER BY id LIMIT 30";
-        verify(session, times(1)).rawQuery(sql, null);
+        String sql = "SELECT enquiry_json, synced FROM enquiry WHERE created_by = ? ORDER BY id LIMIT 30";
+        verify(session, times(1)).rawQuery(sql, new String[]{"user1"});
     }
 
     @Test
-    public void shouldReturnRecordsBetweenSpecifiedLimits() throws JSONException {
+    public void shouldReturnRecordsAfterTheLastRecordOfThePreviousPage() throws JSONException {
         session = mock(DatabaseSession.class);
+        when(session.getWriteQueues()).thenReturn(RecordWriteQueues.writingTo("test_database", session));
         enquiryRepository = spy(new EnquiryRepository("user1", session, rapidFtrApplication));
         doReturn(new ArrayList<Child>()).when(enquiryRepository).toEnquiries(any(Cursor.class));
 
-        enquiryRepository.getRecordsBetween(1, 10);
+        enquiryRepository.getRecordsAfter("id30");
+
+        String sql = "SELECT enquiry_json, synced FROM enquiry WHERE created_by = ? AND id > ? ORDER BY id LIMIT 30";
+        verify(session, times(1)).rawQuery(sql, new String[]{"user1", "id30"});
+    }
+
+    @Test
+    public void shouldSearchEnquiriesByTheirHighlightedFields() throws JSONException {
+        Enquiry enquiry = new Enquiry("{\"enq_first_name\":\"Subhas\",\"enq_last_name\":\"Bose\"}", user);
+        enquiryRepository.createOrUpdate(enquiry);
+        enquiryRepository.createOrUpdate(new Enquiry("{\"enq_first_name\":\"Jane\"}", user));
+
+        List<Enquiry> enquiries = enquiryRepository.getEnquiriesMatchingString("subh", new SearchPosition());
 
-        String sql = "SELECT enquiry_json, synced FROM enquiry WHERE created_by='user1' ORDER BY id LIMIT 9 OFFSET 10";
-        verify(session, times(1)).rawQuery(sql, null);
+        assertEquals(1, enquiries.size());
+        assertEquals(enquiry.getUniqueId(), enquiries.get(0).getUniqueId());
     }
 }
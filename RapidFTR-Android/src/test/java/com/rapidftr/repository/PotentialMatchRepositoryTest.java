@@ -1,20 +1,24 @@
 package com.rapidftr.repository;
 
 import com.rapidftr.CustomTestRunner;
+import com.rapidftr.RapidFtrApplication;
 import com.rapidftr.database.DatabaseSession;
 import com.rapidftr.database.ShadowSQLiteHelper;
 import com.rapidftr.model.Child;
 import com.rapidftr.model.Enquiry;
 import com.rapidftr.model.PotentialMatch;
+import com.rapidftr.model.User;
 import org.json.JSONException;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
 
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
 
+import static java.util.Arrays.asList;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -89,6 +93,32 @@ public class PotentialMatchRepositoryTest {
         assertThat(matches.get(0).getChildId(), is("child_id"));
     }
 
+    @Test
+    public void shouldReturnAPageOfTheMatchedChildrenWithTheGivenStatus() throws JSONException, SQLException {
+        RapidFtrApplication application = (RapidFtrApplication) Robolectric.getShadowApplication().getApplicationContext();
+        application.setCurrentUser(new User());
+        ChildRepository childRepository = new ChildRepository("user1", session, application);
+        for (String id : asList("child_id_1", "child_id_2", "child_id_3", "child_id_4")) {
+            childRepository.createOrUpdate(new Child(id, "owner1", "{'name':'" + id + "','_id':'" + id + "'}"));
+        }
+        repository.createOrUpdate(new PotentialMatch("enquiry_id", "child_id_3", "unique_id_1"));
+        repository.createOrUpdate(new PotentialMatch("enquiry_id", "child_id_1", "unique_id_2", true));
+        repository.createOrUpdate(new PotentialMatch("enquiry_id", "child_id_2", "unique_id_3"));
+        repository.createOrUpdate(new PotentialMatch("other_enquiry_id", "child_id_4", "unique_id_4"));
+        Enquiry enquiry = new Enquiry("{\"_id\":\"enquiry_id\"}");
+
+        List<Child> firstPage = repository.getMatchedChildren(enquiry, false, 0, 1);
+        List<Child> secondPage = repository.getMatchedChildren(enquiry, false, 1, 1);
+        List<Child> confirmed = repository.getMatchedChildren(enquiry, true, 0, PotentialMatchRepository.NO_LIMIT);
+
+        assertThat(firstPage.size(), is(1));
+        assertThat(firstPage.get(0).getString("name"), is("child_id_3"));
+        assertThat(secondPage.size(), is(1));
+        assertThat(secondPage.get(0).getString("name"), is("child_id_2"));
+        assertThat(confirmed.size(), is(1));
+        assertThat(confirmed.get(0).getString("name"), is("child_id_1"));
+    }
+
     @Test
     public void shouldUpdateExistingRecords() throws JSONException, SQLException {
         PotentialMatch potentialMatch = new PotentialMatch("enquiry_id", "child_id", "unique_id_1");
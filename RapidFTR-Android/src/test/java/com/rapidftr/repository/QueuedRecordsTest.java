@@ -0,0 +1,74 @@
+package com.rapidftr.repository;
+
+import com.rapidftr.CustomTestRunner;
+import com.rapidftr.model.Child;
+import org.json.JSONException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(CustomTestRunner.class)
+public class QueuedRecordsTest {
+
+    private final QueuedRecords.View<Child, Child> asQueued = QueuedRecords.asQueued();
+
+    @Test
+    public void shouldPutQueuedRecordsInPlaceOfTheirStoredVersionAndWhereTheirIdSorts() throws JSONException {
+        QueuedRecords<Child> queued = new QueuedRecords<Child>(asList(
+                child("id2", "user1", "queued"), child("id4", "user1", "new"), child("id3", "user2", "not mine")));
+
+        List<Child> page = queued.overPage(asList(child("id1", "user1", "stored"), child("id2", "user1", "stored")),
+                "user1", null, 30, asQueued);
+
+        assertEquals(asList("id1 stored", "id2 queued", "id4 new"), describe(page));
+    }
+
+    @Test
+    public void shouldLeaveQueuedRecordsBeyondAFullPageForTheNextOne() throws JSONException {
+        QueuedRecords<Child> queued = new QueuedRecords<Child>(asList(child("id0", "user1", "before"),
+                child("id2", "user1", "inside"), child("id9", "user1", "beyond")));
+
+        List<Child> page = queued.overPage(asList(child("id1", "user1", "stored"), child("id3", "user1", "stored")),
+                "user1", "id0", 2, asQueued);
+
+        assertEquals(asList("id1 stored", "id2 inside"), describe(page));
+    }
+
+    @Test
+    public void shouldLeadTheFirstSearchPageWithMatchingQueuedRecordsAndNotShowThemAgain() throws JSONException {
+        QueuedRecords<Child> queued = new QueuedRecords<Child>(asList(
+                child("id1", "user1", "match"), child("id2", "user1", "other")));
+        QueuedRecords.Match<Child> match = new QueuedRecords.Match<Child>() {
+            @Override
+            public boolean matches(Child child) {
+                return child.getString("name").equals("match");
+            }
+        };
+        SearchPosition position = new SearchPosition();
+
+        List<Child> first = queued.overSearchPage(asList(child("id3", "user1", "match"), child("id2", "user1", "match")),
+                null, position, true, match);
+        List<Child> next = new QueuedRecords<Child>(new ArrayList<Child>())
+                .overSearchPage(asList(child("id1", "user1", "match"), child("id4", "user1", "match")), null, position, false, match);
+
+        assertEquals(asList("id1 match", "id3 match"), describe(first));
+        assertEquals(asList("id4 match"), describe(next));
+    }
+
+    private Child child(String id, String owner, String name) throws JSONException {
+        return new Child(id, owner, "{ 'name' : '" + name + "' }");
+    }
+
+    private List<String> describe(List<Child> children) throws JSONException {
+        List<String> described = new ArrayList<String>();
+        for (Child child : children) {
+            described.add(child.getUniqueId() + " " + child.getString("name"));
+        }
+        return described;
+    }
+}
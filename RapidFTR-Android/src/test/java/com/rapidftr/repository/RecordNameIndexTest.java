@@ -0,0 +1,43 @@
+package com.rapidftr.repository;
+
+import com.rapidftr.CustomTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(CustomTestRunner.class)
+public class RecordNameIndexTest {
+
+    @Test
+    public void shouldIndexNameFieldsOnly() {
+        assertTrue(RecordNameIndex.isNameField("name"));
+        assertTrue(RecordNameIndex.isNameField("2_first_name"));
+        assertTrue(RecordNameIndex.isNameField("2_other_names"));
+        assertTrue(RecordNameIndex.isNameField("wishes_name_1"));
+        assertFalse(RecordNameIndex.isNameField("names_origin"));
+        assertFalse(RecordNameIndex.isNameField("created_by_full_name"));
+    }
+
+    @Test
+    public void shouldGiveTransliterationsOfANameTheSameKey() {
+        RecordNameIndex.Encoding encoding = RecordNameIndex.Encoding.DOUBLE_METAPHONE;
+
+        assertEquals(encoding.keys("mohammed"), encoding.keys("muhamad"));
+        assertEquals(encoding.keys("goma"), encoding.keys("ghoma"));
+    }
+
+    @Test
+    public void shouldKeyWordsTheEncoderCannotSpellByTheWordItself() {
+        assertEquals(asList("أمينة"), asList(RecordNameIndex.Encoding.SOUNDEX.keys("أمينة").toArray()));
+    }
+
+    @Test
+    public void shouldRankCloserSpellingsHigher() {
+        assertEquals(1.0, RecordNameIndex.similarity("amina", "amina"), 0.001);
+        assertTrue(RecordNameIndex.similarity("amina", "aminah") > RecordNameIndex.similarity("amina", "emine"));
+    }
+}
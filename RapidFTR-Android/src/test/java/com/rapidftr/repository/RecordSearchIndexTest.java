@@ -0,0 +1,32 @@
+package com.rapidftr.repository;
+
+import com.rapidftr.CustomTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(CustomTestRunner.class)
+public class RecordSearchIndexTest {
+
+    @Test
+    public void shouldMatchAllOfTheWordsAsPrefixes() {
+        assertEquals("\"john*\" \"doe*\"", RecordSearchIndex.matchExpression("john doe"));
+    }
+
+    @Test
+    public void shouldDropQuerySyntaxFromTheSearchKey() {
+        assertEquals("\"john*\" \"NOT*\" \"doe*\"", RecordSearchIndex.matchExpression(" \"john\" NOT -doe* "));
+    }
+
+    @Test
+    public void shouldKeepAccentedCharacters() {
+        assertEquals("\"chåld*\"", RecordSearchIndex.matchExpression("chåld"));
+    }
+
+    @Test
+    public void shouldReturnNullWhenTheSearchKeyHasNoWords() {
+        assertNull(RecordSearchIndex.matchExpression(" ?! "));
+    }
+}
@@ -0,0 +1,79 @@
+package com.rapidftr.repository;
+
+import com.rapidftr.CustomTestRunner;
+import com.rapidftr.RapidFtrApplication;
+import com.rapidftr.database.Database;
+import com.rapidftr.database.DatabaseSession;
+import com.rapidftr.database.ShadowSQLiteHelper;
+import com.rapidftr.model.Child;
+import com.rapidftr.model.Enquiry;
+import com.rapidftr.model.User;
+import org.json.JSONException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(CustomTestRunner.class)
+public class RecordStatsTest {
+
+    private DatabaseSession session;
+    private ChildRepository childRepository;
+    private RecordStats stats;
+
+    @Before
+    public void setUp() {
+        session = new ShadowSQLiteHelper("test_database").getSession();
+        RapidFtrApplication application = (RapidFtrApplication) Robolectric.getShadowApplication().getApplicationContext();
+        application.setCurrentUser(new User("user1", "password", true, "http://1.2.3.4"));
+        childRepository = new ChildRepository("user1", session, application);
+        stats = new RecordStats(session);
+    }
+
+    @Test
+    public void shouldCountRecordsPerOwnerAndSyncedState() throws JSONException {
+        childRepository.createOrUpdate(new Child("id1", "user1", null, false));
+        childRepository.createOrUpdate(new Child("id2", "user1", null, true));
+        childRepository.createOrUpdate(new Child("id3", "user2", null, false));
+
+        assertEquals(3, stats.count(Database.child));
+        assertEquals(2, stats.countByOwner(Database.child, "user1"));
+        assertEquals(2, stats.countUnsynced(Database.child));
+        assertEquals(1, stats.countUnsyncedByOwner(Database.child, "user1"));
+    }
+
+    @Test
+    public void shouldMoveAnUpdatedRecordBetweenCounts() throws JSONException {
+        Child child = new Child("id1", "user1", null, false);
+        childRepository.createOrUpdate(child);
+
+        child.setSynced(true);
+        childRepository.createOrUpdateWithoutHistory(child);
+
+        assertEquals(1, stats.count(Database.child));
+        assertEquals(0, stats.countUnsynced(Database.child));
+    }
+
+    @Test
+    public void shouldStopCountingDeletedRecords() throws JSONException {
+        childRepository.createOrUpdate(new Child("id1", "user1", null, false));
+        childRepository.createOrUpdate(new Child("id2", "user2", null, false));
+
+        childRepository.deleteChildrenByOwner();
+
+        assertEquals(0, stats.countByOwner(Database.child, "user1"));
+        assertEquals(1, stats.count(Database.child));
+    }
+
+    @Test
+    public void shouldCountEachEntityTypeSeparately() throws JSONException {
+        childRepository.createOrUpdate(new Child("id1", "user1", null, false));
+        new EnquiryRepository("user1", session, RapidFtrApplication.getApplicationInstance())
+                .createOrUpdate(new Enquiry("{ 'enquirer_name' : 'sam' }", "user1"));
+
+        assertEquals(1, stats.count(Database.child));
+        assertEquals(1, stats.count(Database.enquiry));
+    }
+}
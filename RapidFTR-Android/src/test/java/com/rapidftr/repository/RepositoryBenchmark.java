@@ -0,0 +1,271 @@
+package com.rapidftr.repository;
+
+import com.rapidftr.CustomTestRunner;
+import com.rapidftr.RapidFtrApplication;
+import com.rapidftr.database.DatabaseSession;
+import com.rapidftr.database.JdbcSQLiteHelper;
+import com.rapidftr.model.Child;
+import com.rapidftr.model.Enquiry;
+import com.rapidftr.model.PotentialMatch;
+import com.rapidftr.model.RecordSummary;
+import com.rapidftr.model.User;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.rapidftr.adapter.pagination.ViewAllChildrenPaginatedScrollListener.DEFAULT_PAGE_SIZE;
+
+/*
+ * Times the common reads and writes of the child, enquiry and potential match repositories on databases of 1k, 10k
+ * and 100k synthetic records of each, through the sqlite-jdbc backed session so it runs on a build server. The pom
+ * excludes benchmarks from the normal test run; run it with
+ *   mvn test -Dtest=RepositoryBenchmark [-Dbenchmark.records=1000,10000,100000]
+ * Each operation runs a tenth of its iterations as warm up before the measured ones, and the timings are printed.
+ * It is a timing loop rather than a JMH benchmark because the repositories need the Robolectric application, which
+ * only exists inside the Robolectric test runner, so the numbers are for comparing changes rather than absolute.
+ */
+@RunWith(CustomTestRunner.class)
+public class RepositoryBenchmark {
+
+    static final int WRITE_BATCH_SIZE = 1000;
+    static final int ITERATIONS = 200;
+    static final int PAGES = 10;
+    static final int PAGE_SIZE = 30;
+
+    private static final String OWNER = "user1";
+    private static final String[] FIRST_NAMES = {"Amina", "Mohammed", "Fatima", "Jean", "Grace", "Emmanuel", "Aisha",
+            "Joseph", "Mariam", "David", "Esther", "Ibrahim", "Ruth", "Samuel", "Zainab", "Patrick", "Halima", "Moses",
+            "Khadija", "Daniel"};
+    private static final String[] LAST_NAMES = {"Goma", "Mugisha", "Ali", "Habimana", "Okello", "Uwase", "Hassan",
+            "Kamara", "Niyonzima", "Omar", "Mukamana", "Bangura", "Abdi", "Nshimiyimana", "Kabila", "Ochieng", "Yusuf",
+            "Mutesi", "Koroma", "Ahmed"};
+
+    private final Random random = new Random(42);
+    private int records;
+    private ChildRepository children;
+    private EnquiryRepository enquiries;
+    private PotentialMatchRepository matches;
+
+    interface Operation {
+        void run() throws Exception;
+    }
+
+    @Test
+    public void run() throws Exception {
+        RapidFtrApplication application = (RapidFtrApplication) Robolectric.getShadowApplication().getApplicationContext();
+        application.setCurrentUser(new User(OWNER, "password", true, "http://1.2.3.4"));
+
+        for (String size : System.getProperty("benchmark.records", "1000,10000,100000").split(",")) {
+            records = Integer.parseInt(size.trim());
+            File file = File.createTempFile("repository_benchmark", ".db");
+            file.delete();
+            JdbcSQLiteHelper helper = new JdbcSQLiteHelper(file, null);
+            try {
+                DatabaseSession session = helper.getSession();
+                children = new ChildRepository(OWNER, session, application);
+                enquiries = new EnquiryRepository(OWNER, session, application);
+                matches = new PotentialMatchRepository(OWNER, session);
+                System.out.println(records + " records of each");
+                benchmarkChildren();
+                benchmarkEnquiries();
+                benchmarkPotentialMatches();
+            } finally {
+                helper.close();
+                file.delete();
+            }
+        }
+    }
+
+    private void benchmarkChildren() throws Exception {
+        long start = System.nanoTime();
+        for (int batch = 0; batch < records; batch += WRITE_BATCH_SIZE) {
+            List<Child> written = new ArrayList<Child>();
+            for (int i = batch; i < Math.min(records, batch + WRITE_BATCH_SIZE); i++) {
+                written.add(new Child(childId(i), OWNER, "{'name':'" + childName(i) + "','age':'" + (i % 18) + "','_id':'"
+                        + childInternalId(i) + "','_rev':'1-" + i + "'}", i % 2 == 0));
+            }
+            children.createOrUpdateAllWithoutHistory(written);
+        }
+        report("ChildRepository.createOrUpdateAllWithoutHistory, per record", Collections.singletonList((System.nanoTime() - start) / records));
+
+        time("ChildRepository.get", ITERATIONS, new Operation() {
+            @Override
+            public void run() throws Exception {
+                children.get(childId(random.nextInt(records)));
+            }
+        });
+        time("ChildRepository.getSummaries, " + PAGES + " pages", ITERATIONS / 10, new Operation() {
+            @Override
+            public void run() throws Exception {
+                List<RecordSummary> page = children.getSummariesForFirstPage();
+                for (int i = 1; i < PAGES && page.size() == DEFAULT_PAGE_SIZE; i++) {
+                    page = children.getSummariesAfter(page.get(page.size() - 1).getUniqueId());
+                }
+            }
+        });
+        time("ChildRepository.getChildrenMatchingString", ITERATIONS, new Operation() {
+            @Override
+            public void run() throws Exception {
+                children.getChildrenMatchingString(childName(random.nextInt(records)), new SearchPosition());
+            }
+        });
+        // Spelt the way another caseworker might have written the names down
+        time("ChildRepository.getChildrenWithNamesLike", ITERATIONS, new Operation() {
+            @Override
+            public void run() throws Exception {
+                children.getChildrenWithNamesLike(childName(random.nextInt(records)).replace('o', 'u').replace("mm", "m"), new SearchPosition());
+            }
+        });
+        time("ChildRepository.getAllIdsAndRevs", 10, new Operation() {
+            @Override
+            public void run() throws Exception {
+                children.getAllIdsAndRevs();
+            }
+        });
+        time("ChildRepository.streamToBeSynced", 10, new Operation() {
+            @Override
+            public void run() throws Exception {
+                drain(children.streamToBeSynced());
+            }
+        });
+    }
+
+    private void benchmarkEnquiries() throws Exception {
+        long start = System.nanoTime();
+        for (int batch = 0; batch < records; batch += WRITE_BATCH_SIZE) {
+            List<Enquiry> written = new ArrayList<Enquiry>();
+            for (int i = batch; i < Math.min(records, batch + WRITE_BATCH_SIZE); i++) {
+                Enquiry enquiry = new Enquiry("{'enquirer_name':'enquirer" + i + "','_id':'" + enquiryInternalId(i)
+                        + "','_rev':'1-" + i + "'}", OWNER);
+                enquiry.setUniqueId(enquiryId(i));
+                written.add(enquiry);
+            }
+            enquiries.createOrUpdateAllWithoutHistory(written);
+        }
+        report("EnquiryRepository.createOrUpdateAllWithoutHistory, per record", Collections.singletonList((System.nanoTime() - start) / records));
+
+        time("EnquiryRepository.get", ITERATIONS, new Operation() {
+            @Override
+            public void run() throws Exception {
+                enquiries.get(enquiryId(random.nextInt(records)));
+            }
+        });
+        time("EnquiryRepository.getSummaries, " + PAGES + " pages", ITERATIONS / 10, new Operation() {
+            @Override
+            public void run() throws Exception {
+                List<RecordSummary> page = enquiries.getSummariesForFirstPage();
+                for (int i = 1; i < PAGES && page.size() == DEFAULT_PAGE_SIZE; i++) {
+                    page = enquiries.getSummariesAfter(page.get(page.size() - 1).getUniqueId());
+                }
+            }
+        });
+        time("EnquiryRepository.getEnquiriesMatchingString", ITERATIONS, new Operation() {
+            @Override
+            public void run() throws Exception {
+                enquiries.getEnquiriesMatchingString("enquirer" + random.nextInt(records), new SearchPosition());
+            }
+        });
+        time("EnquiryRepository.getAllIdsAndRevs", 10, new Operation() {
+            @Override
+            public void run() throws Exception {
+                enquiries.getAllIdsAndRevs();
+            }
+        });
+    }
+
+    // Each enquiry is matched to three children picked at random
+    private void benchmarkPotentialMatches() throws Exception {
+        long start = System.nanoTime();
+        for (int batch = 0; batch < records; batch += WRITE_BATCH_SIZE) {
+            List<PotentialMatch> written = new ArrayList<PotentialMatch>();
+            for (int i = batch; i < Math.min(records, batch + WRITE_BATCH_SIZE); i++) {
+                for (int match = 0; match < 3; match++) {
+                    written.add(new PotentialMatch(enquiryInternalId(i), childInternalId(random.nextInt(records)),
+                            "match" + i + "_" + match, match == 0));
+                }
+            }
+            matches.createOrUpdateAllWithoutHistory(written);
+        }
+        report("PotentialMatchRepository.createOrUpdateAllWithoutHistory, per record",
+                Collections.singletonList((System.nanoTime() - start) / (3L * records)));
+
+        time("PotentialMatchRepository.getMatchedChildren", ITERATIONS, new Operation() {
+            @Override
+            public void run() throws Exception {
+                Enquiry enquiry = new Enquiry("{'_id':'" + enquiryInternalId(random.nextInt(records)) + "'}");
+                matches.getMatchedChildren(enquiry, false, 0, PAGE_SIZE);
+            }
+        });
+        time("PotentialMatchRepository.getAllIdsAndRevs", 10, new Operation() {
+            @Override
+            public void run() throws Exception {
+                matches.getAllIdsAndRevs();
+            }
+        });
+        time("PotentialMatchRepository.streamToBeSynced", 10, new Operation() {
+            @Override
+            public void run() throws Exception {
+                drain(matches.streamToBeSynced());
+            }
+        });
+    }
+
+    private static void drain(RecordStream<?> stream) {
+        try {
+            for (Object ignored : stream) {
+            }
+        } finally {
+            stream.close();
+        }
+    }
+
+    private static void time(String name, int iterations, Operation operation) throws Exception {
+        for (int i = 0; i < Math.max(1, iterations / 10); i++) {
+            operation.run();
+        }
+        List<Long> times = new ArrayList<Long>();
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            operation.run();
+            times.add(System.nanoTime() - start);
+        }
+        report(name, times);
+    }
+
+    private static void report(String name, List<Long> times) {
+        List<Long> sorted = new ArrayList<Long>(times);
+        Collections.sort(sorted);
+        System.out.println("  " + name + ": median " + percentileMicros(sorted, 50) + "us, p95 "
+                + percentileMicros(sorted, 95) + "us, max " + percentileMicros(sorted, 100) + "us");
+    }
+
+    private static long percentileMicros(List<Long> sorted, int percentile) {
+        return sorted.get(Math.min(sorted.size() - 1, sorted.size() * percentile / 100)) / 1000;
+    }
+
+    private static String childName(int i) {
+        return FIRST_NAMES[i % FIRST_NAMES.length] + " " + LAST_NAMES[i / FIRST_NAMES.length % LAST_NAMES.length];
+    }
+
+    private static String childId(int i) {
+        return String.format("child%06d", i);
+    }
+
+    private static String childInternalId(int i) {
+        return String.format("child_internal%06d", i);
+    }
+
+    private static String enquiryId(int i) {
+        return String.format("enquiry%06d", i);
+    }
+
+    private static String enquiryInternalId(int i) {
+        return String.format("enquiry_internal%06d", i);
+    }
+}
@@ -268,6 +268,23 @@ public class GenericSyncServiceTest {
         verify(childSpy).remove(History.HISTORIES);
     }
 
+    @Test
+    public void shouldSendThePendingHistoriesAndMarkThemSyncedAfterSuccessfulSync() throws Exception {
+        Child child = new Child("{\"_id\" : \"couch_id\", \"child_name\":\"subhas\",\"unique_identifier\":\"78223s4h1e468f5200edc\"}");
+        given(repository.getUnsyncedHistories("78223s4h1e468f5200edc")).willReturn(Arrays.asList(new History("{\"changes\":{}}")));
+
+        childHttpDao = mock(EntityHttpDao.class);
+        doReturn(child).when(childHttpDao).update(argThat(new ArgumentMatcher<Child>() {
+            @Override
+            public boolean matches(Object argument) {
+                return ((Child) argument).optJSONArray(History.HISTORIES).length() == 1;
+            }
+        }), anyString(), any(Map.class));
+        new GenericSyncService<Child>(mediaSyncHelper, childHttpDao, repository).sync(child, "");
+
+        verify(repository).markHistoriesSynced("78223s4h1e468f5200edc", 1);
+    }
+
     @Test(expected = SyncFailedException.class)
     public void shouldNotRemoveHistoriesAfterFailedSync() throws Exception {
         Child childSpy = spy(new Child("{\"_id\" : \"couch_id\", \"child_name\":\"subhas\",\"unique_identifier\":\"78223s4h1e468f5200edc\"}"));
@@ -5,6 +5,7 @@ import com.rapidftr.RapidFtrApplication;
 import com.rapidftr.model.Child;
 import com.rapidftr.model.User;
 import com.rapidftr.repository.ChildRepository;
+import com.rapidftr.repository.ListRecordStream;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.Before;
@@ -42,7 +43,7 @@ public class MigrateUnverifiedDataToVerifiedTest {
                                       new Child("2", unverifiedUser.getUserName(), "{\"name\":\"some content\"}"),
                                       new Child("3", unverifiedUser.getUserName(), "{\"name\":\"some content\"}"));
 
-        doReturn(children).when(unverifiedChildRepo).allCreatedByCurrentUser();
+        doReturn(new ListRecordStream<Child>(children)).when(unverifiedChildRepo).streamAllCreatedByCurrentUser();
         doNothing().when(verifiedChildRepo).createOrUpdate(children.get(0));
         doNothing().when(verifiedChildRepo).createOrUpdate(children.get(1));
         doNothing().when(verifiedChildRepo).createOrUpdate(children.get(2));
@@ -12,6 +12,7 @@ import com.rapidftr.activity.RapidFtrActivity;
 import com.rapidftr.model.Child;
 import com.rapidftr.model.User;
 import com.rapidftr.repository.ChildRepository;
+import com.rapidftr.repository.ListRecordStream;
 import com.rapidftr.roboelectric.shadows.ShadowTaskStackBuilder;
 import com.rapidftr.service.*;
 import org.apache.http.HttpException;
@@ -82,13 +83,14 @@ public class SyncAllDataAsyncTaskTest {
         doReturn("Notify").when(application).getString(any(Integer.class));
         doReturn(new User("foo", "bar")).when(application).getCurrentUser();
         doReturn("Child Synchronization").when(childSyncService).getNotificationTitle();
+        given(childRepository.streamToBeSynced()).willReturn(new ListRecordStream<Child>(new ArrayList<Child>()));
     }
 
     @Test
     public void shouldSyncFormsAndChildren() throws Exception {
         Child child1 = mock(Child.class);
         Child child2 = mock(Child.class);
-        given(childRepository.toBeSynced()).willReturn(newArrayList(child1, child2));
+        given(childRepository.streamToBeSynced()).willReturn(new ListRecordStream<Child>(newArrayList(child1, child2)));
         syncAllDataAsyncTask.setContext(rapidFtrActivity);
 
         syncAllDataAsyncTask.execute();
@@ -112,7 +114,7 @@ public class SyncAllDataAsyncTaskTest {
     public void shouldNotSyncChildrenIfCancelled() throws Exception {
         Child child1 = mock(Child.class);
         Child child2 = mock(Child.class);
-        given(childRepository.toBeSynced()).willReturn(newArrayList(child1, child2));
+        given(childRepository.streamToBeSynced()).willReturn(new ListRecordStream<Child>(newArrayList(child1, child2)));
 
         syncAllDataAsyncTask.setContext(rapidFtrActivity);
         syncAllDataAsyncTask = spy(syncAllDataAsyncTask);
@@ -150,7 +152,7 @@ public class SyncAllDataAsyncTaskTest {
         ArrayList<Child> childList = new ArrayList<Child>();
         childList.add(child1);
 
-        given(childRepository.toBeSynced()).willReturn(childList);
+        given(childRepository.streamToBeSynced()).willReturn(new ListRecordStream<Child>(childList));
         given(deviceService.isBlacklisted()).willReturn(true);
 
         syncAllDataAsyncTask.execute();
@@ -181,8 +183,7 @@ public class SyncAllDataAsyncTaskTest {
         syncAllDataAsyncTask.execute();
 
         verify(childSyncService).getRecord("qwerty0987");
-        verify(childRepository).createOrUpdateWithoutHistory(child1);
-        verify(childRepository).createOrUpdateWithoutHistory(child2);
+        verify(childRepository).createOrUpdateAllWithoutHistory(Arrays.asList(child1, child2));
     }
 
     @Test
@@ -239,7 +240,7 @@ public class SyncAllDataAsyncTaskTest {
         sharedPreferences.edit().putLong(RapidFtrApplication.LAST_CHILD_SYNC, 0).commit();
         Child child1 = mock(Child.class);
         Child child2 = mock(Child.class);
-        given(childRepository.toBeSynced()).willReturn(newArrayList(child1, child2));
+        given(childRepository.streamToBeSynced()).willReturn(new ListRecordStream<Child>(newArrayList(child1, child2)));
         given(childSyncService.getIdsToDownload()).willReturn(Arrays.asList("qwerty0987", "abcd1234"));
         given(childSyncService.getRecord("qwerty0987")).willReturn(mock(Child.class));
         given(childSyncService.getRecord("abcd1234")).willReturn(mock(Child.class));
@@ -260,7 +261,7 @@ public class SyncAllDataAsyncTaskTest {
         syncAllDataAsyncTask.setContext(rapidFtrActivity);
         ArrayList<Child> childList = new ArrayList<Child>();
 
-        given(childRepository.toBeSynced()).willReturn(childList);
+        given(childRepository.streamToBeSynced()).willReturn(new ListRecordStream<Child>(childList));
         given(deviceService.isBlacklisted()).willReturn(true);
         doNothing().when(deviceService).wipeData();
 
@@ -274,11 +275,11 @@ public class SyncAllDataAsyncTaskTest {
         ArrayList<Child> childList = new ArrayList<Child>();
         Child child = mock(Child.class);
         childList.add(child);
-        given(childRepository.toBeSynced()).willReturn(childList);
+        given(childRepository.streamToBeSynced()).willReturn(new ListRecordStream<Child>(childList));
         given(deviceService.isBlacklisted()).willReturn(true);
 
         syncAllDataAsyncTask.execute();
-        verify(childRepository, times(2)).toBeSynced();
+        verify(childRepository, times(2)).streamToBeSynced();
         verify(deviceService, never()).wipeData();
     }
 
@@ -9,6 +9,7 @@ import com.rapidftr.activity.RapidFtrActivity;
 import com.rapidftr.model.Child;
 import com.rapidftr.model.User;
 import com.rapidftr.repository.ChildRepository;
+import com.rapidftr.repository.ListRecordStream;
 import com.rapidftr.roboelectric.shadows.ShadowTaskStackBuilder;
 import com.rapidftr.service.ChildSyncService;
 import com.rapidftr.service.FormService;
@@ -23,6 +24,8 @@ import org.mockito.Mock;
 import org.robolectric.annotation.Config;
 import org.robolectric.tester.org.apache.http.TestHttpResponse;
 
+import java.util.ArrayList;
+
 import static com.google.common.collect.Lists.newArrayList;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.any;
@@ -73,6 +76,8 @@ public class SyncUnverifiedDataAsyncTaskTest {
 
         doReturn("Notify").when(rapidFtrActivity).getString(any(Integer.class));
         doReturn("Child Synchronization").when(childSyncService).getNotificationTitle();
+        given(childRepository.streamCurrentUsersUnsyncedRecords()).willReturn(new ListRecordStream<Child>(new ArrayList<Child>()));
+        given(childRepository.streamToBeSynced()).willReturn(new ListRecordStream<Child>(new ArrayList<Child>()));
     }
 
     @Test
@@ -94,7 +99,7 @@ public class SyncUnverifiedDataAsyncTaskTest {
     @Test
     public void shouldSyncAllChildrenForGivenUser() throws Exception {
         Child child = mock(Child.class);
-        given(childRepository.currentUsersUnsyncedRecords()).willReturn(newArrayList(child));
+        given(childRepository.streamCurrentUsersUnsyncedRecords()).willReturn(new ListRecordStream<Child>(newArrayList(child)));
 
         task.onPreExecute();
         task.execute();